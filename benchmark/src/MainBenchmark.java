@@ -0,0 +1,24 @@
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the JMH benchmarks of the benchmark package with allocation profiling.
+ * The first argument, if any, is a regular expression selecting the benchmarks
+ * to run (for example "WCGEB" or "LoaderBenchmark.loadUTransactionDatabase").
+ */
+public class MainBenchmark {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "benchmark\\..*";
+        Options options = new OptionsBuilder()
+                .include(include)
+                // report the allocation rate and the bytes allocated per operation
+                .addProfiler(GCProfiler.class)
+                .shouldFailOnError(true)
+                .build();
+        new Runner(options).run();
+    }
+}
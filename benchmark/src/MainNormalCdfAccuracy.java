@@ -0,0 +1,42 @@
+import org.apache.commons.math3.special.Erf;
+import util.NormalDistribution;
+
+/**
+ * Check the accuracy of util.NormalDistribution against the reference implementation of
+ * Apache Commons Math (Erf.erfc, accurate to about 1e-15) on a grid of values in [-40, 40].
+ * The maximum absolute error of the CDF and of the complementary CDF, and the maximum relative
+ * error of the tail probabilities (down to -37), are printed. The program exits with status 1 if an error
+ * exceeds its tolerance.
+ */
+public class MainNormalCdfAccuracy {
+
+    // the tolerances of the absolute and relative errors
+    private static final double ABSOLUTE_TOLERANCE = 1e-12;
+    private static final double RELATIVE_TOLERANCE = 1e-8;
+
+    public static void main(String[] args) {
+        NormalDistribution.Table table = new NormalDistribution.Table();
+        double rationalError = 0;
+        double tableError = 0;
+        double tailError = 0;
+        for (double x = -40; x <= 40; x += 1.0 / 1024) {
+            double reference = 0.5 * Erf.erfc(-x / Math.sqrt(2));
+            double complementaryReference = 0.5 * Erf.erfc(x / Math.sqrt(2));
+            rationalError = Math.max(rationalError, Math.abs(NormalDistribution.cdf(x) - reference));
+            rationalError = Math.max(rationalError, Math.abs(NormalDistribution.complementaryCdf(x) - complementaryReference));
+            tableError = Math.max(tableError, Math.abs(table.cdf(x) - reference));
+            // relative error of the lower tail, which is approximated by 0 below -37
+            if (x < 0 && x >= -37) {
+                tailError = Math.max(tailError, Math.abs(NormalDistribution.cdf(x) - reference) / reference);
+            }
+        }
+        System.out.println("Maximum absolute error of the rational approximation: " + rationalError);
+        System.out.println("Maximum absolute error of the table: " + tableError);
+        System.out.println("Maximum relative error of the tail: " + tailError);
+        if (rationalError > ABSOLUTE_TOLERANCE || tableError > ABSOLUTE_TOLERANCE || tailError > RELATIVE_TOLERANCE) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+}
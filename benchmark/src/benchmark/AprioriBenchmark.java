@@ -0,0 +1,55 @@
+package benchmark;
+
+import algorithms.AprioriAlgo;
+import org.openjdk.jmh.annotations.*;
+import pattern.itemset.UTransactionDatabase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of AprioriAlgo.runAlgorithm. The minimum expected support is given
+ * as a fraction of the number of transactions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AprioriBenchmark {
+
+    @Param({"10000", "100000"})
+    int transactionCount;
+
+    @Param({"0.01", "0.04"})
+    double density;
+
+    @Param({"1000"})
+    int itemCount;
+
+    @Param({"0.01", "0.005"})
+    double minSupportRatio;
+
+    // the database, loaded once per trial
+    private UTransactionDatabase<Integer> database;
+    // the output file of the algorithm
+    private File output;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        File input = SyntheticDatabase.generate(transactionCount, itemCount, density, false);
+        database = new UTransactionDatabase<>();
+        database.loadFile(input.getPath());
+        output = File.createTempFile("apriori", ".txt");
+        output.deleteOnExit();
+    }
+
+    @Benchmark
+    public AprioriAlgo<Integer> runAlgorithm() throws IOException {
+        AprioriAlgo<Integer> algo = new AprioriAlgo<>(database);
+        algo.runAlgorithm(minSupportRatio * transactionCount, output.getPath());
+        return algo;
+    }
+}
@@ -0,0 +1,56 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pattern.itemset.UTransactionDatabase;
+import pattern.itemset.UncertainTransaction;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the loaders of the two text formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoaderBenchmark {
+
+    @Param({"10000", "100000"})
+    int transactionCount;
+
+    @Param({"0.01", "0.04"})
+    double density;
+
+    @Param({"1000"})
+    int itemCount;
+
+    // the synthetic databases in both formats
+    private File uncertainFile;
+    private File weightedFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        uncertainFile = SyntheticDatabase.generate(transactionCount, itemCount, density, false);
+        weightedFile = SyntheticDatabase.generate(transactionCount, itemCount, density, true);
+    }
+
+    @Benchmark
+    public UTransactionDatabase<Integer> loadUTransactionDatabase() throws IOException {
+        UTransactionDatabase<Integer> database = new UTransactionDatabase<>();
+        database.loadFile(uncertainFile.getPath());
+        return database;
+    }
+
+    @Benchmark
+    public List<UncertainTransaction<Integer>> loadUncertainTransactions() throws IOException {
+        List<UncertainTransaction<Integer>> uncertainDB = new ArrayList<>();
+        UncertainTransaction.loadFile(weightedFile.getPath(), uncertainDB);
+        return uncertainDB;
+    }
+}
@@ -0,0 +1,85 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import util.NormalDistribution;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-benchmark of the normal CDF used by the FM test of WAPFI_MAX: the power series
+ * previously used by WAPFI_MAX, the rational approximation (one value at a time and in batch)
+ * and the interpolated table. Each operation computes the CDF of 1024 values in [-6, 6].
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NormalCdfBenchmark {
+
+    // the number of values per operation
+    private static final int COUNT = 1024;
+
+    // the values and the results
+    private final double[] values = new double[COUNT];
+    private final double[] results = new double[COUNT];
+    // the interpolated table
+    private final NormalDistribution.Table table = new NormalDistribution.Table();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = random.nextDouble() * 12 - 6;
+        }
+    }
+
+    @Benchmark
+    public double[] powerSeries() {
+        for (int i = 0; i < COUNT; i++) {
+            results[i] = seriesCdf(values[i]);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public double[] rational() {
+        for (int i = 0; i < COUNT; i++) {
+            results[i] = NormalDistribution.cdf(values[i]);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public double[] rationalBatch() {
+        NormalDistribution.cdf(values, results, COUNT);
+        return results;
+    }
+
+    @Benchmark
+    public double[] table() {
+        table.cdf(values, results, COUNT);
+        return results;
+    }
+
+    /**
+     * The CDF computed with the power series of erf previously used by WAPFI_MAX
+     * (with the same scaling of x), kept as the baseline of this benchmark.
+     * @param x the value
+     * @return the CDF
+     */
+    static double seriesCdf(double x) {
+        x = x / Math.sqrt(2 * Math.PI);
+        double sum = x;
+        double term = x;
+        int n = 1;
+        while (Math.abs(term) > 1e-15) {
+            term *= -x * x / (n + 0.5);
+            sum += term;
+            n++;
+        }
+        return 0.5 * (1 + 2 * sum / Math.sqrt(Math.PI));
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generate synthetic uncertain databases for the benchmarks, in the two text formats
+ * read by the project: "item(probability)" for UTransactionDatabase and
+ * "item(probability)[weight]" for UncertainTransaction.
+ * The random generator is seeded so that every run uses the same data.
+ */
+public class SyntheticDatabase {
+
+    // the seed of the random generator
+    private static final long SEED = 42;
+
+    /**
+     * Write a synthetic database to a temporary file.
+     * @param transactionCount the number of transactions
+     * @param itemCount the number of distinct items
+     * @param density the average fraction of the items appearing in a transaction
+     * @param weighted true to write the weighted format item(probability)[weight]
+     * @return the file
+     * @throws IOException if an error occurs while writing the file
+     */
+    public static File generate(int transactionCount, int itemCount, double density, boolean weighted) throws IOException {
+        File file = File.createTempFile("synthetic_" + transactionCount + "_" + density, ".txt");
+        file.deleteOnExit();
+        Random random = new Random(SEED);
+        int averageLength = Math.max(1, (int) Math.round(itemCount * density));
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < transactionCount; i++) {
+                // the length follows a uniform distribution around the average length
+                int length = Math.min(itemCount, 1 + random.nextInt(2 * averageLength));
+                int[] items = random.ints(0, itemCount).distinct().limit(length).toArray();
+                Arrays.sort(items);
+                StringBuilder line = new StringBuilder();
+                for (int item : items) {
+                    if (line.length() > 0) {
+                        line.append(' ');
+                    }
+                    line.append(item).append('(').append(String.format(Locale.ROOT, "%.2f", random.nextDouble() * 0.99 + 0.01)).append(')');
+                    if (weighted) {
+                        line.append('[').append(String.format(Locale.ROOT, "%.2f", random.nextDouble() * 0.99 + 0.01)).append(']');
+                    }
+                }
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+}
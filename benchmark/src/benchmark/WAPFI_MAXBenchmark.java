@@ -0,0 +1,61 @@
+package benchmark;
+
+import algorithms.WAPFI_MAX;
+import org.openjdk.jmh.annotations.*;
+import pattern.itemset.UncertainTransaction;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the whole APFI-MAX algorithm (candidate generation and confirmation).
+ * The smallest database has 10000 transactions: with fewer transactions, the item supports
+ * fall below 1 and the number of candidates grows exponentially with the number of items.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WAPFI_MAXBenchmark {
+
+    @Param({"10000", "100000"})
+    int transactionCount;
+
+    @Param({"0.01", "0.04"})
+    double density;
+
+    @Param({"1000"})
+    int itemCount;
+
+    @Param({"0.02", "0.06"})
+    double minSupport;
+
+    @Param({"0.6", "0.9"})
+    double minProbability;
+
+    // the database, loaded once per trial
+    private List<UncertainTransaction<Integer>> uncertainDB;
+    // the output file of the algorithm
+    private File output;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        File input = SyntheticDatabase.generate(transactionCount, itemCount, density, true);
+        uncertainDB = new ArrayList<>();
+        UncertainTransaction.loadFile(input.getPath(), uncertainDB);
+        output = File.createTempFile("apfi_max", ".txt");
+        output.deleteOnExit();
+    }
+
+    @Benchmark
+    public WAPFI_MAX<Integer> runAPFI_MAX() throws IOException {
+        WAPFI_MAX<Integer> apfiMax = new WAPFI_MAX<>(uncertainDB, minSupport, minProbability);
+        apfiMax.runAPFI_MAX(output.getPath());
+        return apfiMax;
+    }
+}
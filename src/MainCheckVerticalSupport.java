@@ -0,0 +1,74 @@
+import algorithms.AprioriAlgo;
+import pattern.itemset.ItemU;
+import pattern.itemset.UTransactionDatabase;
+import util.MemoryResultSink;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Check that the horizontal (prefix-tree) and vertical (tid-list) modes of AprioriAlgo report
+ * the same expected supports on a database where some transactions repeat an item. Only the
+ * first occurrence of an item in a transaction is counted, so {1} has a support of 1.0 and {3}
+ * a support of 0.6. The program exits with status 1 if the supports differ.
+ */
+public class MainCheckVerticalSupport {
+
+    // the database, where items 1 and 3 are repeated in a transaction
+    private static final String DATABASE = "1(0.5) 1(0.4) 2(0.9)\n1(0.5) 2(0.8)\n2(0.7) 3(0.6) 3(0.6)\n";
+
+    // the tolerance of the difference between the supports
+    private static final double TOLERANCE = 1e-9;
+
+    public static void main(String [] arg) throws IOException{
+        Map<List<Integer>, Double> horizontalSupports = mine(false);
+        Map<List<Integer>, Double> verticalSupports = mine(true);
+        System.out.println("Horizontal supports: " + horizontalSupports);
+        System.out.println("Vertical supports: " + verticalSupports);
+
+        boolean ok = horizontalSupports.keySet().equals(verticalSupports.keySet());
+        for (Map.Entry<List<Integer>, Double> entry : horizontalSupports.entrySet()) {
+            Double verticalSupport = verticalSupports.get(entry.getKey());
+            if (verticalSupport == null || Math.abs(entry.getValue() - verticalSupport) > TOLERANCE) {
+                ok = false;
+            }
+        }
+        ok &= Math.abs(horizontalSupports.get(List.of(1)) - 1.0) <= TOLERANCE;
+        ok &= Math.abs(horizontalSupports.get(List.of(3)) - 0.6) <= TOLERANCE;
+        if (!ok) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    /**
+     * Mine the frequent itemsets of the test database with AprioriAlgo.
+     * @param useVerticalMode true to use the vertical mode
+     * @return the expected support of each frequent itemset, as a list of item ids
+     */
+    private static Map<List<Integer>, Double> mine(boolean useVerticalMode) throws IOException {
+        UTransactionDatabase<Integer> context = new UTransactionDatabase<>();
+        context.load(new ByteArrayInputStream(DATABASE.getBytes(StandardCharsets.US_ASCII)));
+
+        AprioriAlgo<Integer> algo = new AprioriAlgo<>(context);
+        algo.setVerticalMode(useVerticalMode);
+        MemoryResultSink<ItemU<Integer>> sink = new MemoryResultSink<>();
+        algo.runAlgorithm(0.1, sink);
+
+        Map<List<Integer>, Double> supports = new HashMap<>();
+        for (int i = 0; i < sink.size(); i++) {
+            List<Integer> items = new ArrayList<>();
+            for (ItemU<Integer> item : sink.getPatterns().get(i)) {
+                items.add(item.getId());
+            }
+            supports.put(items, sink.getSupport(i));
+        }
+        return supports;
+    }
+}
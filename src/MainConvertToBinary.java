@@ -0,0 +1,34 @@
+
+
+import pattern.itemset.BinaryUncertainDatabase;
+import pattern.itemset.UTransactionDatabase;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+
+
+public class MainConvertToBinary {
+
+    public static void main(String [] arg) throws IOException{
+
+        // Text dataset in the format item(probability) or item(probability)[weight]
+        String inputPath = "dataset/T10I4D100K/T10I4D100K_with_P_W.dat.txt";
+        // Binary dataset that can then be loaded with loadBinaryFile
+        String binaryPath = ".//T10I4D100K_with_P_W.udb";
+
+        // Convert the dataset to the binary format
+        BinaryUncertainDatabase.convert(fileToPath(inputPath), binaryPath);
+
+        // Loading the binary dataset (memory-mapped, no text is parsed)
+        UTransactionDatabase<Integer> context = new UTransactionDatabase<>();
+        long startTimestamp = System.currentTimeMillis();
+        context.loadBinaryFile(binaryPath);
+        System.out.println("Binary database loaded in " + (System.currentTimeMillis() - startTimestamp) + " ms");
+        System.out.println("Transaction count: " + context.size());
+    }
+
+    public static String fileToPath(String filename) throws UnsupportedEncodingException {
+        URL url = Main.class.getResource(filename);
+        return java.net.URLDecoder.decode(url.getPath(),"UTF-8");    }
+}
@@ -1,5 +1,5 @@
 import algorithms.WAPFI_MAX;
-import pattern.itemset.UncertainTransaction;
+import pattern.itemset.WeightedTransaction;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -11,12 +11,12 @@ public class MainWAPFI_MAX {
 
 	public static void main(String[] args) throws IOException {
 		// Load the uncertain database
-		List<UncertainTransaction<Integer>> uncertainDB = new ArrayList<>();
+		List<WeightedTransaction<Integer>> uncertainDB = new ArrayList<>();
 
 		String inputPath = "dataset/test.txt";
 //		String inputPath = "dataset/T10I4D100K/T10I4D100K_with_P_W.dat.txt";
 		try {
-			UncertainTransaction.loadFile(fileToPath(inputPath), uncertainDB);
+			WeightedTransaction.loadFile(fileToPath(inputPath), uncertainDB);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -26,7 +26,7 @@ public class MainWAPFI_MAX {
 		double minProbability = 0.6;
 
 		// Create an instance of algorithms.APFI_MAX
-		WAPFI_MAX<Integer> apfiMax = new WAPFI_MAX<>(uncertainDB, minSupport, minProbability);
+		WAPFI_MAX<Integer> apfiMax = WAPFI_MAX.forTransactions(uncertainDB, minSupport, minProbability);
 
 		// Run the algorithms.APFI_MAX algorithm
 		apfiMax.runAPFI_MAX("test.txt");
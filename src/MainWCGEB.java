@@ -1,5 +1,6 @@
+import algorithms.MiningThresholds;
 import algorithms.WCGEB;
-import pattern.itemset.UncertainTransaction;
+import pattern.itemset.WeightedTransaction;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -10,11 +11,11 @@ import java.util.Set;
 
 public class MainWCGEB {
 	public static void main(String[] args) throws IOException {
-		List<UncertainTransaction<Integer>> uncertainDB = new ArrayList<>();
+		List<WeightedTransaction<Integer>> uncertainDB = new ArrayList<>();
 		String inputPath = "dataset/test.txt";
 //		String inputPath = "dataset/T40I10D100K_with_P_W_10%.dat.txt";
 		try {
-			UncertainTransaction.loadFile(fileToPath(inputPath), uncertainDB);
+			WeightedTransaction.loadFile(fileToPath(inputPath), uncertainDB);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -22,11 +23,11 @@ public class MainWCGEB {
 		double minSupport = 0.06;
 		double minProbability = 0.6;
 
-		WCGEB wcgeb = new WCGEB(uncertainDB, minSupport, minProbability);
-		Set<Set<?>> candidates = wcgeb.generateCandidates();
+		WCGEB<Integer> wcgeb = WCGEB.forTransactions(uncertainDB, new MiningThresholds(minSupport, minProbability));
+		Set<Set<Integer>> candidates = wcgeb.generateCandidates();
 		wcgeb.printStats();
 		System.out.println("Candidates:");
-		for (Set<?> candidate : candidates) {
+		for (Set<Integer> candidate : candidates) {
 			System.out.println(candidate);
 		}
 	}
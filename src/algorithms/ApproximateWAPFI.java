@@ -0,0 +1,437 @@
+package algorithms;
+
+import pattern.itemset.TransactionParser;
+import pattern.itemset.UncertainTransaction;
+import util.MemoryLogger;
+import util.MemoryResultSink;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * An approximate version of WAPFI_MAX for exploratory queries on large databases: the PMFIs are
+ * mined from a uniform random sample of the transactions (lines) of the database, drawn by reservoir
+ * sampling in a single pass over the file (see UncertainTransaction.loadSample).
+ * <br/><br/>
+ * The sample contains a fraction f = n / N of the N transactions, so the minimum support is scaled by f.
+ * It is also lowered by a Hoeffding-Serfling bound on the sampling error of the support of an item, so
+ * that an item that is frequent in the database is missed with a probability of at most delta. If the
+ * sample is too small for delta, that is the lowered minimum support is not positive, the whole
+ * database is mined instead, which is reported in the output and the statistics.
+ * <br/><br/>
+ * For each PMFI of the sample, the expected support of the itemset in the database, that is the sum
+ * over the transactions of the product of the values p * w of its items, is estimated from the sample,
+ * with a confidence interval holding with probability 1 - delta. The values p * w are assumed to be at
+ * most max(1, the largest value of the sample). An optional verification pass over the whole file
+ * computes the exact expectation and variance of the support of each PMFI in the database, and checks
+ * each PMFI with the FM test of WAPFI_MAX on these moments.
+ */
+public class ApproximateWAPFI<T> {
+
+	/**
+	 * A PMFI of the sample and the estimation of its support in the database.
+	 *
+	 * @param <T> the type of items
+	 */
+	public static class ApproximatePMFI<T> {
+		private final List<T> items;
+		private final double estimatedSupport;
+		private final double lowerBound;
+		private final double upperBound;
+		/** the results of the verification pass, if any */
+		private Boolean verified = null;
+		private double support = Double.NaN;
+
+		ApproximatePMFI(List<T> items, double estimatedSupport, double lowerBound, double upperBound) {
+			this.items = items;
+			this.estimatedSupport = estimatedSupport;
+			this.lowerBound = lowerBound;
+			this.upperBound = upperBound;
+		}
+
+		/**
+		 * Get the items of this PMFI.
+		 *
+		 * @return the items
+		 */
+		public List<T> getItems() {
+			return items;
+		}
+
+		/**
+		 * Get the expected support of this itemset in the database, estimated from the sample.
+		 *
+		 * @return the estimated expected support
+		 */
+		public double getEstimatedSupport() {
+			return estimatedSupport;
+		}
+
+		/**
+		 * Get the lower bound of the confidence interval of the expected support.
+		 *
+		 * @return the lower bound
+		 */
+		public double getLowerBound() {
+			return lowerBound;
+		}
+
+		/**
+		 * Get the upper bound of the confidence interval of the expected support.
+		 *
+		 * @return the upper bound
+		 */
+		public double getUpperBound() {
+			return upperBound;
+		}
+
+		/**
+		 * Check if this itemset is probabilistic frequent in the database, according to the FM test on the
+		 * exact expectation and variance of its support computed by the verification pass.
+		 *
+		 * @return true or false, or null if the verification pass was not run
+		 */
+		public Boolean isVerified() {
+			return verified;
+		}
+
+		/**
+		 * Get the exact expected support of this itemset in the database, computed by the verification pass.
+		 *
+		 * @return the expected support, or NaN if the verification pass was not run
+		 */
+		public double getSupport() {
+			return support;
+		}
+	}
+
+	double minSupport;
+	double minProbability;
+
+	/** the thresholds and the bounds derived from them, in the database */
+	private final MiningThresholds thresholds;
+
+	/** the maximum number of transactions of the sample */
+	private final int sampleSize;
+
+	/** the probability that a confidence bound does not hold */
+	private double delta = 0.05;
+
+	/** if true, the PMFIs of the sample are checked by a pass over the whole database */
+	private boolean useVerification = false;
+
+	/** the random generator used to draw the sample */
+	private Random random = new Random();
+
+	/** the number of transactions of the database and of the sample, in the latest execution */
+	private long transactionCount;
+	private int sampledTransactionCount;
+
+	/** the minimum support used to mine the sample, in the latest execution */
+	private double sampleMinSupport;
+
+	/** true if the sample was too small for delta in the latest execution, so the whole database was mined */
+	private boolean sampleTooSmall;
+
+	/** the number of PMFIs confirmed by the verification pass */
+	private int verifiedCount;
+
+	/** start time of latest execution, and end time of its sampling and mining phases */
+	protected long startTimestamp;
+	protected long miningTimestamp;
+
+	/** end time of latest execution */
+	protected long endTimestamp;
+
+	/**
+	 * Constructor
+	 *
+	 * @param minSupport the minimum support in the database
+	 * @param minProbability the minimum probability
+	 * @param sampleSize the maximum number of transactions of the sample
+	 */
+	public ApproximateWAPFI(double minSupport, double minProbability, int sampleSize) {
+		if (sampleSize < 1) {
+			throw new IllegalArgumentException("The sample must contain at least one transaction: " + sampleSize);
+		}
+		this.minSupport = minSupport;
+		this.minProbability = minProbability;
+		this.thresholds = new MiningThresholds(minSupport, minProbability);
+		this.sampleSize = sampleSize;
+	}
+
+	/**
+	 * Run the algorithm and write the PMFIs and their confidence intervals to a file.
+	 *
+	 * @param input the path of the database
+	 * @param output the path of the output file
+	 * @throws IOException If an I/O error occurs while reading or writing a file.
+	 */
+	public void runAlgorithm(String input, String output) throws IOException {
+		List<ApproximatePMFI<T>> PMFIs = runAlgorithm(input);
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(output))) {
+			writer.write("Transaction count: " + transactionCount);
+			writer.newLine();
+			writer.write("Sample size: " + sampledTransactionCount);
+			if (sampleTooSmall) {
+				writer.write(" (the sample of " + sampleSize + " transactions is too small for delta, the whole database is mined)");
+			}
+			writer.newLine();
+			writer.write("minPro: " + minProbability);
+			writer.newLine();
+			writer.write("minSup: " + minSupport + " (sample: " + sampleMinSupport + ")");
+			writer.newLine();
+			writer.write("Confidence: " + (1 - delta));
+			writer.newLine();
+			writer.write("PMFIs:");
+			writer.newLine();
+			for (ApproximatePMFI<T> pmfi : PMFIs) {
+				writer.write(pmfi.getItems() + " #SUP: " + pmfi.getEstimatedSupport()
+						+ " [" + pmfi.getLowerBound() + ", " + pmfi.getUpperBound() + "]");
+				if (pmfi.isVerified() != null) {
+					writer.write(" #EXACT: " + pmfi.getSupport() + " #VERIFIED: " + pmfi.isVerified());
+				}
+				writer.newLine();
+			}
+			writer.write("Running time: " + (endTimestamp - startTimestamp) + " ms");
+			writer.newLine();
+			writer.write("Maximum memory usage : " + MemoryLogger.getInstance().getMaxMemory() + " mb");
+			writer.newLine();
+		}
+	}
+
+	/**
+	 * Run the algorithm.
+	 *
+	 * @param input the path of the database
+	 * @return the PMFIs of the sample, with the estimation of their support in the database
+	 * @throws IOException If an I/O error occurs while reading the database.
+	 */
+	public List<ApproximatePMFI<T>> runAlgorithm(String input) throws IOException {
+		startTimestamp = System.currentTimeMillis();
+		verifiedCount = 0;
+		List<UncertainTransaction<T>> sample = new ArrayList<>();
+		try (InputStream stream = new FileInputStream(input)) {
+			transactionCount = UncertainTransaction.loadSample(stream, sampleSize, random, sample);
+		}
+		sampledTransactionCount = (int) Math.min(sampleSize, transactionCount);
+		double fraction = transactionCount == 0 ? 1 : (double) sampledTransactionCount / transactionCount;
+		double maxValue = 1;
+		for (UncertainTransaction<T> transaction : sample) {
+			maxValue = Math.max(maxValue, transaction.probability * transaction.weight);
+		}
+
+		// scale the minimum support to the sample, and lower it by the one-sided sampling error of an item
+		sampleMinSupport = fraction * minSupport
+				- sampledTransactionCount * getSamplingError(maxValue, Math.log(1 / delta));
+		sampleTooSmall = sampleMinSupport <= 0 && sampledTransactionCount < transactionCount;
+		if (sampleTooSmall) {
+			// the sample is too small for delta, so the whole database is mined instead
+			if (transactionCount > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("The sample size " + sampleSize + " is too small for delta "
+						+ delta + " and the database is too large to be mined as a whole: " + transactionCount);
+			}
+			sample.clear();
+			try (InputStream stream = new FileInputStream(input)) {
+				UncertainTransaction.loadSample(stream, (int) transactionCount, random, sample);
+			}
+			sampledTransactionCount = (int) transactionCount;
+			fraction = 1;
+			sampleMinSupport = minSupport;
+		}
+		WAPFI_MAX<T> wapfi = new WAPFI_MAX<>(sample, sampleMinSupport, minProbability);
+		wapfi.setOrderedExtensions(true);
+		MemoryResultSink<T> sink = new MemoryResultSink<>();
+		wapfi.runAPFI_MAX(sink);
+		miningTimestamp = System.currentTimeMillis();
+
+		// estimate the expected support of each PMFI in the database from its support in the sample
+		List<Map<T, Double>> lines = getLines(sample);
+		List<ApproximatePMFI<T>> PMFIs = new ArrayList<>();
+		for (List<T> items : sink.getPatterns()) {
+			double sampleSupport = 0;
+			for (Map<T, Double> line : lines) {
+				sampleSupport += getProbability(items, line);
+			}
+			double estimatedSupport = sampleSupport / fraction;
+			double error = transactionCount * getSamplingError(Math.pow(maxValue, items.size()), Math.log(2 / delta));
+			PMFIs.add(new ApproximatePMFI<>(new ArrayList<>(items), estimatedSupport,
+					Math.max(0, estimatedSupport - error), estimatedSupport + error));
+		}
+		MemoryLogger.getInstance().checkMemory();
+
+		if (useVerification) {
+			verify(input, PMFIs);
+		}
+		endTimestamp = System.currentTimeMillis();
+		return PMFIs;
+	}
+
+	/**
+	 * Get the Hoeffding-Serfling bound of the error of the mean of a sample drawn without replacement,
+	 * for values in [0, range]. The mean is in the bound with probability 1 - exp(-logTerm).
+	 *
+	 * @param range the maximum value
+	 * @param logTerm the logarithm of the inverse of the probability that the bound does not hold
+	 * @return the bound of the error of the mean
+	 */
+	private double getSamplingError(double range, double logTerm) {
+		if (sampledTransactionCount >= transactionCount) {
+			// the sample is the whole database
+			return 0;
+		}
+		double correction = 1 - (sampledTransactionCount - 1) / (double) transactionCount;
+		return range * Math.sqrt(correction * logTerm / (2.0 * sampledTransactionCount));
+	}
+
+	/**
+	 * Group the uncertain transactions of the sample by line. If an item appears several times in a
+	 * line, only its first occurrence is kept, as in the exact mode of WAPFI_MAX.
+	 *
+	 * @param sample the uncertain transactions of the sample, where the tid is the position of the line
+	 * @return the value p * w of each item, for each line
+	 */
+	private List<Map<T, Double>> getLines(List<UncertainTransaction<T>> sample) {
+		List<Map<T, Double>> lines = new ArrayList<>();
+		for (int i = 0; i < sampledTransactionCount; i++) {
+			lines.add(new HashMap<>());
+		}
+		for (UncertainTransaction<T> transaction : sample) {
+			for (T item : transaction.items) {
+				lines.get(transaction.tid).putIfAbsent(item, transaction.probability * transaction.weight);
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Get the probability of an itemset in a line: the product of the values p * w of its items.
+	 *
+	 * @param items the items
+	 * @param line the value p * w of each item of the line
+	 * @return the probability, 0 if the line does not contain all the items
+	 */
+	private double getProbability(List<T> items, Map<T, Double> line) {
+		double probability = 1;
+		for (T item : items) {
+			Double value = line.get(item);
+			if (value == null) {
+				return 0;
+			}
+			probability *= value;
+		}
+		return probability;
+	}
+
+	/**
+	 * Read the whole database to compute the exact expectation and variance of the support of each PMFI:
+	 * the sums over the transactions of the probability P of the PMFI and of P * (1 - P), where P is the
+	 * product of the values p * w of its items. Each PMFI is then checked with the FM test of WAPFI_MAX
+	 * on these moments.
+	 *
+	 * @param input the path of the database
+	 * @param PMFIs the PMFIs of the sample
+	 * @throws IOException If an I/O error occurs while reading the database.
+	 */
+	private void verify(String input, List<ApproximatePMFI<T>> PMFIs) throws IOException {
+		double[] exactSupports = new double[PMFIs.size()];
+		double[] exactVariances = new double[PMFIs.size()];
+		try (InputStream stream = new FileInputStream(input)) {
+			new TransactionParser(stream).parse(new TransactionParser.WeightedItemHandler<T>() {
+				// the value p * w of each item of the current line
+				final Map<T, Double> line = new HashMap<>();
+
+				@Override
+				protected void weightedItem(T item, double probability, double weight) {
+					line.putIfAbsent(item, probability * weight);
+				}
+
+				@Override
+				public void endTransaction() {
+					for (int i = 0; i < exactSupports.length; i++) {
+						double probability = getProbability(PMFIs.get(i).getItems(), line);
+						exactSupports[i] += probability;
+						exactVariances[i] += probability * (1 - probability);
+					}
+					line.clear();
+				}
+			});
+		}
+		for (int i = 0; i < PMFIs.size(); i++) {
+			ApproximatePMFI<T> pmfi = PMFIs.get(i);
+			pmfi.support = exactSupports[i];
+			pmfi.verified = thresholds.isFrequentByMoments(exactSupports[i], exactVariances[i], null);
+			if (pmfi.verified) {
+				verifiedCount++;
+			}
+		}
+	}
+
+	/**
+	 * Set the probability that a confidence bound does not hold.
+	 *
+	 * @param delta the probability, in (0, 1) (0.05 by default)
+	 */
+	public void setDelta(double delta) {
+		if (!(delta > 0 && delta < 1)) {
+			throw new IllegalArgumentException("delta must be in (0, 1): " + delta);
+		}
+		this.delta = delta;
+	}
+
+	/**
+	 * Set whether the PMFIs of the sample are checked by a second pass over the whole database.
+	 *
+	 * @param useVerification true to run the verification pass (false by default)
+	 */
+	public void setVerification(boolean useVerification) {
+		this.useVerification = useVerification;
+	}
+
+	/**
+	 * Set the seed of the random generator used to draw the sample, to get reproducible samples.
+	 *
+	 * @param seed the seed
+	 */
+	public void setSeed(long seed) {
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Get the thresholds of this miner and the bounds derived from them.
+	 *
+	 * @return the thresholds
+	 */
+	public MiningThresholds getThresholds() {
+		return thresholds;
+	}
+
+	/**
+	 * Print statistics about the latest execution.
+	 */
+	public void printStats() {
+		System.out
+				.println("=============  APPROXIMATE APFI-MAX - STATS =============");
+		System.out.println(" Transactions count from database : " + transactionCount);
+		System.out.println(" Transactions count in sample : " + sampledTransactionCount);
+		System.out.println(" Minimum support in sample : " + sampleMinSupport);
+		if (sampleTooSmall) {
+			System.out.println(" The sample of " + sampleSize + " transactions is too small for delta, the whole database was mined");
+		}
+		System.out.println(" Sampling and mining time ~ " + (miningTimestamp - startTimestamp) + " ms");
+		if (useVerification) {
+			System.out.println(" PMFIs confirmed by the verification pass : " + verifiedCount);
+		}
+		System.out.println(" Total time ~ " + (endTimestamp - startTimestamp) + " ms");
+		System.out
+				.println("===================================================");
+	}
+}
@@ -1,9 +1,16 @@
 package algorithms;
 
 
+import pattern.itemset.ItemDictionary;
 import pattern.itemset.ItemU;
+import pattern.itemset.ItemsetTrie;
 import pattern.itemset.ItemsetU;
+import pattern.itemset.TidList;
 import pattern.itemset.UTransactionDatabase;
+import pattern.itemset.UVerticalDatabase;
+import util.ParallelSupportCounter;
+import util.ResultSink;
+import util.TextResultSink;
 
 import java.io.*;
 import java.util.*;
@@ -33,12 +40,53 @@ public class AprioriAlgo<T extends Comparable<T>> {
     /**  the number of itemsets found */
     private int itemsetCount;
 
-    /** write to file */
-    BufferedWriter writer = null;
+    /** the sink receiving the frequent itemsets */
+    ResultSink<ItemU<T>> sink = null;
 
     /** Special parameter to set the maximum size of itemsets to be discovered */
     int maxItemsetSize = Integer.MAX_VALUE;
 
+    /** if true, the support is calculated by intersecting tid-lists instead of scanning the database */
+    boolean useVerticalMode = false;
+
+    /** the number of threads used to count the support of candidates (horizontal mode) */
+    int threadCount = 1;
+
+    /** the vertical representation of the database (only used in vertical mode) */
+    private UVerticalDatabase<T> verticalDatabase;
+
+    /** the tid-lists of the frequent itemsets of the last level, and of the current candidates (vertical mode) */
+    private Map<List<ItemU<T>>, TidList> levelTidLists = new HashMap<>();
+    private Map<List<ItemU<T>>, TidList> candidateTidLists = new HashMap<>();
+
+    /** if true, the supports of the counted itemsets are kept to update them at the next execution */
+    boolean useIncrementalMode = false;
+
+    /** the itemsets counted by the latest execution (frequent itemsets and infrequent candidates), by items */
+    private Map<List<ItemU<T>>, ItemsetU<T>> countedItemsets = new HashMap<>();
+
+    /** the itemsets counted by the current execution (incremental mode) */
+    private Map<List<ItemU<T>>, ItemsetU<T>> nextCountedItemsets = new HashMap<>();
+
+    /** the number of transactions of the database when the counted itemsets were last updated */
+    private int processedTransactionCount = 0;
+
+    /** the number of candidates whose support was kept from the previous execution */
+    private int reusedCandidateCount = 0;
+
+    /** if true, the scanned database is reduced after each level (horizontal mode) */
+    boolean useDatabaseReduction = false;
+
+    /** the minimum probability of the item occurrences kept when the database is reduced */
+    double minReductionProbability = 0;
+
+    /** the database scanned to count the candidates, which is a reduced copy of the database after each level
+     * if database reduction is used */
+    private UTransactionDatabase<T> scannedDatabase;
+
+    /** the number of transactions scanned at the last level of the latest execution */
+    private int lastScannedTransactionCount = 0;
+
     /**
      * Constructor
      * @param database the database for applying this algorithm
@@ -54,15 +102,37 @@ public class AprioriAlgo<T extends Comparable<T>> {
      * @throws IOException exception if error reading/writing files
      */
     public void runAlgorithm(double minsupp, String output) throws IOException {
+        try (ResultSink<ItemU<T>> fileSink = TextResultSink.withSupport(output)) {
+            runAlgorithm(minsupp, fileSink);
+        }
+    }
+
+    /**
+     * Run this algorithm
+     * @param minsupp  a minimum support threshold
+     * @param sink  the sink receiving each frequent itemset as soon as it is found (it is not closed)
+     * @throws IOException exception if error writing the result
+     */
+    public void runAlgorithm(double minsupp, ResultSink<ItemU<T>> sink) throws IOException {
         // record start time
         startTimestamp = System.currentTimeMillis();
         // reset variables for statistics
         totalCandidateCount = 0;
         databaseScanCount = 0;
         itemsetCount=0;
+        reusedCandidateCount = 0;
+        verticalDatabase = null;
+        levelTidLists = new HashMap<>();
+        candidateTidLists = new HashMap<>();
+        nextCountedItemsets = new HashMap<>();
+        scannedDatabase = database;
+        if (useIncrementalMode) {
+            // add the support of the appended transactions to the itemsets counted by the previous execution
+            updateCountedItemsets();
+        }
 
-        // prepare the output file
-        writer = new BufferedWriter(new FileWriter(output));
+        // prepare the output
+        this.sink = sink;
 
         // Generate candidates with size k = 1 (all itemsets of size 1)
         k = 1;
@@ -89,6 +159,10 @@ public class AprioriAlgo<T extends Comparable<T>> {
 
         // While the level is not empty
         while (!level.isEmpty()  && k <= maxItemsetSize) {
+            if (useDatabaseReduction && !useVerticalMode && !useIncrementalMode) {
+                // remove the items and transactions that cannot contribute to the candidates of size k
+                reduceScannedDatabase(level);
+            }
             // Generate candidates of size K
             Set<ItemsetU<T>> candidatesK = generateCandidateSizeK(level);
             // increase the candidate count
@@ -108,23 +182,31 @@ public class AprioriAlgo<T extends Comparable<T>> {
             k++;
         }
 
-        // close the output file
-        writer.close();
+        this.sink = null;
+        lastScannedTransactionCount = scannedDatabase.size();
+        // release the reduced database and the tid-lists
+        scannedDatabase = null;
+        verticalDatabase = null;
+        levelTidLists = new HashMap<>();
+        candidateTidLists = new HashMap<>();
+        if (useIncrementalMode) {
+            // only keep the itemsets counted by this execution, which are up to date
+            countedItemsets = nextCountedItemsets;
+            processedTransactionCount = database.size();
+        }
+        nextCountedItemsets = new HashMap<>();
         // record end time
         endTimestamp = System.currentTimeMillis();
     }
 
 
     /**
-     * Save an itemset to the output file.
+     * Save an itemset to the output.
      * @param itemset  the itemset
-     * @throws IOException exception if error writing the itemset to the file
+     * @throws IOException exception if error writing the itemset
      */
     private void saveItemsetToFile(ItemsetU<T> itemset) throws IOException{
-//        writer.write(itemset.toString() + " #SUP: " + itemset.getExpectedSupport());
-//        writer.write(itemset.toString());
-        writer.write(itemset.toString() + " #SUP: " + itemset.getExpectedSupport());
-        writer.newLine();
+        sink.writePattern(itemset.getItems(), itemset.getExpectedSupport());
         itemsetCount++;
     }
 
@@ -151,6 +233,17 @@ public class AprioriAlgo<T extends Comparable<T>> {
 
             }
         }
+        // in vertical mode, only keep the tid-lists of the frequent itemsets
+        // since they are the only ones that can be extended
+        if (useVerticalMode) {
+            Map<List<ItemU<T>>, TidList> frequentTidLists = new HashMap<>();
+            for (ItemsetU<T> itemset : levelK) {
+                List<ItemU<T>> key = itemset.getItems();
+                frequentTidLists.put(key, candidateTidLists.get(key));
+            }
+            levelTidLists = frequentTidLists;
+            candidateTidLists = new HashMap<>();
+        }
         // return frequent k-itemsets
         return levelK;
     }
@@ -160,41 +253,143 @@ public class AprioriAlgo<T extends Comparable<T>> {
      * @param candidatesK  a set of candidates of size k
      */
     protected void calculateSupportForEachCandidate(Set<ItemsetU<T>> candidatesK) {
-        // increase database scan count
-        databaseScanCount++;
+        if (useIncrementalMode) {
+            calculateSupportIncrementally(candidatesK);
+            return;
+        }
+        if (useVerticalMode) {
+            calculateSupportWithTidLists(candidatesK);
+            return;
+        }
+        calculateSupportInRange(scannedDatabase, candidatesK, k, 0, scannedDatabase.size());
+    }
 
-        for (ItemsetU<T> transaction : database.getTransactions()) {
-            for (ItemsetU<T> candidate : candidatesK) {
-                double expectedSupport = calculateExpectedSupport(candidate, transaction);
-                candidate.increaseSupportBy(expectedSupport);
+    /**
+     * Reduce the scanned database before counting the candidates of size k. The items that are not in
+     * any frequent itemset of size k-1 cannot be in a candidate, and a transaction with less than k
+     * remaining items cannot contain a candidate, so they are removed without changing the supports.
+     * The item occurrences whose probability is below the minimum reduction probability are also removed,
+     * which underestimates the supports of the next levels.
+     * @param levelK_1  the frequent itemsets of size k-1
+     */
+    private void reduceScannedDatabase(Set<ItemsetU<T>> levelK_1) {
+        ItemDictionary<T> dictionary = database.getDictionary();
+        boolean[] keptCodes = new boolean[dictionary.size()];
+        for (ItemsetU<T> itemset : levelK_1) {
+            for (ItemU<T> item : itemset.getItems()) {
+                keptCodes[dictionary.getCode(item.getId())] = true;
             }
         }
+        scannedDatabase = scannedDatabase.project(keptCodes, k, minReductionProbability);
     }
 
-    private double calculateExpectedSupport(ItemsetU<T> candidate, ItemsetU<T> transaction) {
-        double expectedSupport = 0;
-
-        for (ItemU<T> item : candidate.getItems()) {
-            boolean found = false;
+    /**
+     * Calculate the support of a set of candidates of the same size by scanning a range of transactions.
+     * @param scanned  the scanned database (the database or a reduced copy)
+     * @param candidatesK  the candidates
+     * @param size  the size of the candidates
+     * @param first  the position of the first transaction to scan
+     * @param end  the position after the last transaction to scan
+     */
+    private void calculateSupportInRange(UTransactionDatabase<T> scanned, Collection<ItemsetU<T>> candidatesK,
+                                         int size, int first, int end) {
+        // increase database scan count
+        databaseScanCount++;
 
-            for (ItemU<T> itemT : transaction.getItems()) {
-                if (item.getId() == itemT.getId()) {
-                    found = true;
-                    expectedSupport = (expectedSupport == 0) ? itemT.getProbability() : expectedSupport * itemT.getProbability();
-                    break;
-                } else if (item.getId().compareTo(itemT.getId()) < 0) {
-                    break;
-                }
-            }
+        // store the candidates in a prefix-tree so that the candidates contained
+        // in a transaction are found with a single walk of that transaction
+        ItemsetTrie<T> trie = new ItemsetTrie<>(size);
+        List<ItemsetU<T>> candidates = new ArrayList<>(candidatesK);
+        for (ItemsetU<T> candidate : candidates) {
+            trie.insert(candidate);
+        }
+        // the transactions are split into chunks counted by different threads
+        double[] supports = new ParallelSupportCounter(threadCount).count(end - first, candidates.size(),
+                (from, to, partialSupports) -> {
+                    for (int i = first + from; i < first + to; i++) {
+                        trie.countSupport(scanned, i, partialSupports);
+                    }
+                });
+        for (int i = 0; i < candidates.size(); i++) {
+            candidates.get(i).increaseSupportBy(supports[i]);
+        }
+    }
 
-            if (!found) {
-                return 0; // If any item is not found, expected support is 0
+    /**
+     * Calculate the support of a set of candidates in incremental mode. A candidate counted by the
+     * previous execution is replaced by the itemset of that execution, whose support was updated with
+     * the appended transactions. Only the other candidates are counted, on the whole database.
+     * @param candidatesK  a set of candidates of size k, where counted candidates are replaced
+     */
+    private void calculateSupportIncrementally(Set<ItemsetU<T>> candidatesK) {
+        Set<ItemsetU<T>> newCandidates = new HashSet<>();
+        Set<ItemsetU<T>> reusedCandidates = new HashSet<>();
+        for (ItemsetU<T> candidate : candidatesK) {
+            ItemsetU<T> counted = countedItemsets.get(candidate.getItems());
+            if (counted != null) {
+                reusedCandidates.add(counted);
+            } else {
+                newCandidates.add(candidate);
             }
         }
+        if (!newCandidates.isEmpty()) {
+            calculateSupportInRange(database, newCandidates, k, 0, database.size());
+        }
+        reusedCandidateCount += reusedCandidates.size();
+        candidatesK.clear();
+        candidatesK.addAll(newCandidates);
+        candidatesK.addAll(reusedCandidates);
+        for (ItemsetU<T> candidate : candidatesK) {
+            nextCountedItemsets.put(candidate.getItems(), candidate);
+        }
+    }
 
-        return expectedSupport;
+    /**
+     * Update the support of the itemsets counted by the previous execution with the transactions
+     * appended to the database since then, scanning only these transactions.
+     */
+    private void updateCountedItemsets() {
+        if (processedTransactionCount == database.size()) {
+            return;
+        }
+        Map<Integer, List<ItemsetU<T>>> itemsetsBySize = new HashMap<>();
+        for (ItemsetU<T> itemset : countedItemsets.values()) {
+            itemsetsBySize.computeIfAbsent(itemset.size(), size -> new ArrayList<>()).add(itemset);
+        }
+        for (Map.Entry<Integer, List<ItemsetU<T>>> entry : itemsetsBySize.entrySet()) {
+            calculateSupportInRange(database, entry.getValue(), entry.getKey(), processedTransactionCount, database.size());
+        }
+        processedTransactionCount = database.size();
     }
 
+    /**
+     * Calculate the support of a set of candidates by intersecting tid-lists.
+     * The database is scanned only once, to build the tid-list of each item. Then, the tid-list
+     * of a candidate of size k is obtained by intersecting the tid-list of its prefix of size k-1
+     * (a frequent itemset of the previous level) with the tid-list of its last item.
+     * @param candidatesK  a set of candidates of size k
+     */
+    private void calculateSupportWithTidLists(Set<ItemsetU<T>> candidatesK) {
+        if (verticalDatabase == null) {
+            // increase database scan count
+            databaseScanCount++;
+            verticalDatabase = new UVerticalDatabase<>(database);
+        }
+        for (ItemsetU<T> candidate : candidatesK) {
+            List<ItemU<T>> items = candidate.getItems();
+            TidList lastItemTidList = verticalDatabase.getTidList(items.get(items.size() - 1).getId());
+            TidList tidList;
+            if (items.size() == 1) {
+                tidList = lastItemTidList;
+            } else {
+                // the prefix is frequent since it is one of the two itemsets joined to create the candidate
+                TidList prefixTidList = levelTidLists.get(items.subList(0, items.size() - 1));
+                tidList = prefixTidList.intersect(lastItemTidList);
+            }
+            candidate.increaseSupportBy(verticalDatabase.getExpectedSupport(tidList));
+            candidateTidLists.put(items, tidList);
+        }
+    }
 
     /**
      * Generate candidate itemsets containing a single item.
@@ -219,75 +414,15 @@ public class AprioriAlgo<T extends Comparable<T>> {
      * @return  candidates of size K
      */
     protected Set<ItemsetU<T>> generateCandidateSizeK(Set<ItemsetU<T>> levelK_1) {
-        // a set to store candidates
-        Set<ItemsetU<T>> candidates = new HashSet<ItemsetU<T>>();
-        // For each itemset I1 and I2 of level k-1
-        Object[] itemsets = levelK_1.toArray();
-
-        for(int i=0; i< levelK_1.size(); i++){
-            ItemsetU<T> itemset1 = (ItemsetU<T>)itemsets[i];
-            System.out.println(itemset1);
-            for(int j=0; j< levelK_1.size(); j++){
-                ItemsetU<T> itemset2 = (ItemsetU<T>)itemsets[j];
-                // If I1 is smaller than I2 according to lexical order and
-                // they share all the same items except the last one.
-                ItemU<T> missing = itemset1.allTheSameExceptLastItem(itemset2);
-                if(missing != null){
-                    // Then, create a new candidate by combining itemset1 and itemset2
-                    ItemsetU<T> candidate = new ItemsetU<T>();
-                    for(ItemU<T> item : itemset1.getItems()){
-                        candidate.addItem(item);
-                    }
-                    candidate.addItem(missing);
-
-                    // The candidate is tested to see if its subsets of size k-1 are included in
-                    // level k-1 (they are frequent).
-                    if(allSubsetsOfSizeK_1AreFrequent(candidate,levelK_1)){
-                        // if it pass the test, add it to the set of candidates
-                        candidates.add(candidate);
-                    }
-                }
-            }
-        }
-        // return the set of candidates
-        return candidates;
-    }
-
-    /**
-     * Check if all subsets of size k-1 of a candidate itemset of size k are frequent.
-     * @param candidate  the candidate itemset
-     * @param levelK_1  frequent itemsets of size k-1
-     * @return true if all subsets are frequent, otherwise false
-     */
-    protected boolean allSubsetsOfSizeK_1AreFrequent(ItemsetU<T> candidate, Set<ItemsetU<T>> levelK_1) {
-        // To generate all the set of size K-1, we will proceed
-        // by removing each item, one by one.
-
-        //if only one item, return true because the empty set is always frequent
-        if(candidate.size() == 1){
-            return true;
-        }
-        // for each item
-        for(ItemU<T> item : candidate.getItems()){
-            // copy the itemset without this item to get a suset
-            ItemsetU<T> subset = candidate.cloneItemSetMinusOneItem(item);
-            boolean found = false;
-            // we scan itemsets of size k-1
-            for(ItemsetU<T> itemset : levelK_1){
-                // if we found the subset, then set found to true 
-                // and stop this loop
-                if(itemset.isEqualTo(subset)){
-                    found = true;
-                    break;
-                }
-            }
-            // if the subset was not found, then we return false
-            if(!found){
-                return false;
-            }
+        // store the itemsets of level k-1 in a prefix-tree
+        ItemsetTrie<T> trie = new ItemsetTrie<>(k - 1);
+        for (ItemsetU<T> itemset : levelK_1) {
+            trie.insert(itemset);
         }
-        // all the subsets were found, so we return true
-        return true;
+        // Each pair of itemsets I1 and I2 of level k-1 sharing the same prefix of size k-2
+        // (siblings in the trie) are combined to create a candidate, which is kept only if its
+        // subsets of size k-1 are included in level k-1 (they are frequent).
+        return new HashSet<>(trie.generateCandidates());
     }
 
     /**
@@ -299,9 +434,18 @@ public class AprioriAlgo<T extends Comparable<T>> {
         long temps = endTimestamp - startTimestamp;
 //		System.out.println(" Total time ~ " + temps + " ms");
         System.out.println(" Transactions count from database : "
-                + database.size());
+                + database.getLoadedTransactionCount());
+        if (database.getLoadedTransactionCount() > database.size()) {
+            System.out.println(" Distinct transactions count : " + database.size());
+        }
+        if (useDatabaseReduction) {
+            System.out.println(" Transactions count of the last reduced database : " + lastScannedTransactionCount);
+        }
         System.out.println(" Candidates count : " + totalCandidateCount);
         System.out.println(" Database scan count : " + databaseScanCount);
+        if (useIncrementalMode) {
+            System.out.println(" Candidates kept from the previous execution : " + reusedCandidateCount);
+        }
         System.out.println(" The algorithm stopped at size " + (k - 1)
                 + ", because there is no candidate");
         System.out.println(" Uncertain itemsets count : " + itemsetCount);
@@ -318,4 +462,62 @@ public class AprioriAlgo<T extends Comparable<T>> {
     public void setMaximumPatternLength(int length) {
         this.maxItemsetSize = length;
     }
+
+    /**
+     * Set the number of threads used to count the support of candidates. The transactions
+     * are split into chunks that are counted in parallel. This is only used in horizontal mode.
+     * @param threadCount the number of threads (1 by default)
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Set whether the supports of the counted itemsets (the frequent itemsets and the infrequent
+     * candidates) are kept after an execution. The next execution then only scans the transactions
+     * appended to the database in the meantime (see UTransactionDatabase.append) to update them, and
+     * scans the whole database only for the candidates that were not counted before, for example
+     * when an infrequent candidate became frequent. The result is the same as a full execution, up to
+     * the rounding of the supports. The supports are always counted by scanning, even in vertical mode.
+     * Changing this setting discards the kept supports.
+     * @param useIncrementalMode true to use the incremental mode
+     */
+    public void setIncrementalMode(boolean useIncrementalMode) {
+        this.useIncrementalMode = useIncrementalMode;
+        countedItemsets = new HashMap<>();
+        processedTransactionCount = 0;
+    }
+
+    /**
+     * Set whether the scanned database is reduced after each level. Before counting the candidates
+     * of size k, the items that are not in a frequent itemset of size k-1 are removed from the
+     * transactions, and the transactions with less than k remaining items are removed, so that
+     * the later levels scan a smaller database. The result is the same as without reduction.
+     * This is only used in horizontal mode, and not in incremental mode, where the supports are
+     * always counted on the whole database.
+     * @param useDatabaseReduction true to reduce the database
+     */
+    public void setDatabaseReduction(boolean useDatabaseReduction) {
+        this.useDatabaseReduction = useDatabaseReduction;
+    }
+
+    /**
+     * Set the minimum probability of the item occurrences kept when the database is reduced
+     * (see setDatabaseReduction). The occurrences with a lower probability are removed after the
+     * first level, which makes the later levels faster but underestimates the supports of the
+     * itemsets of size 2 and more, so that some frequent itemsets may be missed.
+     * @param minProbability the minimum probability (0 by default, which keeps every occurrence)
+     */
+    public void setMinimumReductionProbability(double minProbability) {
+        this.minReductionProbability = minProbability;
+    }
+
+    /**
+     * Set whether the support of candidates should be calculated with tid-lists (vertical mode)
+     * rather than by scanning the database at each level.
+     * @param useVerticalMode true to use the vertical mode
+     */
+    public void setVerticalMode(boolean useVerticalMode) {
+        this.useVerticalMode = useVerticalMode;
+    }
 }
@@ -4,12 +4,17 @@ import pattern.itemset.UncertainTransaction;
 
 import java.util.*;
 
+import util.ParallelSupportCounter;
+
 
 class AprioriUncertain<T> {
 	List<UncertainTransaction<T>> uncertainDB;
 	double minSupport;
 	double minProbability;
 
+	/** the number of threads used to count the item supports */
+	int threadCount = 1;
+
 	AprioriUncertain(List<UncertainTransaction<T>> uncertainDB, double minSupport, double minProbability) {
 		this.uncertainDB = uncertainDB;
 		this.minSupport = minSupport;
@@ -55,19 +60,24 @@ class AprioriUncertain<T> {
 		return frequentItemsets;
 	}
 
+	/**
+	 * Set the number of threads used to count the item supports. The transactions are split
+	 * into chunks that are counted in parallel.
+	 *
+	 * @param threadCount the number of threads (1 by default)
+	 */
+	void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
 	/**
 	 * Retrieves the support for each item in the uncertain transaction database.
 	 *
 	 * @return         	the map of items and their corresponding support values
 	 */
 	private Map<T, Double> getItemSupports() {
-		Map<T, Double> supports = new HashMap<>();
-		for (UncertainTransaction<T> transaction : uncertainDB) {
-			for (T item : transaction.items) {
-				supports.put(item, supports.getOrDefault(item, 0.0) + transaction.probability);
-			}
-		}
-		return supports;
+		return new ParallelSupportCounter(threadCount).countItemSupports(uncertainDB,
+				transaction -> transaction.probability);
 	}
 
 	/**
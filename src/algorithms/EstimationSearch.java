@@ -0,0 +1,378 @@
+package algorithms;
+
+import pattern.itemset.BitSetItemset;
+import pattern.itemset.MaximalItemsetIndex;
+import util.MemoryLogger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The depth-first search of the PMFIs in estimation mode, shared by UFTreeMiner and StreamingWAPFI.
+ * <br/><br/>
+ * The candidates are explored in the order of the frequent items given to the search: a candidate is
+ * extended with the frequent items following its last item, as long as the extensions satisfy the expectation bound of CGEB, and
+ * the frequent single items are always candidates. A candidate is confirmed after its extensions if it
+ * is frequent by estimation, unless a confirmed PMFI contains it.
+ * <br/><br/>
+ * By default, only the current path of the search is kept in memory. The explored candidates can rather
+ * be kept in a tree between two searches, with their estimated expectation and variance. Since the tests
+ * of a candidate only depend on the supports of its items, when the supports of some items changed, the
+ * next search (see update) only estimates the candidates containing one of these items, and the extensions
+ * of the other candidates with these items. The other candidates keep the result of their tests, and the
+ * extensions that were rejected with unchanged items are still rejected, so the result is the same as a
+ * search from scratch. The tree is limited to MAX_KEPT_CANDIDATES candidates: beyond, the search only
+ * keeps its current path, and the next update is a search from scratch.
+ */
+final class EstimationSearch {
+
+	/** the maximum number of candidates kept in the tree (about 100 bytes each with short itemsets) */
+	static final int MAX_KEPT_CANDIDATES = 1 << 20;
+
+	/**
+	 * Receive the PMFIs confirmed by a search, in the order of confirmation.
+	 */
+	interface Confirmation {
+		/**
+		 * Called when a candidate is confirmed.
+		 *
+		 * @param itemset the PMFI
+		 * @param expectation the estimated expected support of the PMFI
+		 * @param variance the estimated variance of the support of the PMFI
+		 * @throws IOException if an I/O error occurs while writing the PMFI
+		 */
+		void confirm(BitSetItemset itemset, double expectation, double variance) throws IOException;
+	}
+
+	/**
+	 * A candidate explored by the search, kept in the tree of explored candidates.
+	 */
+	private static final class Node {
+		/** the candidate, or null for the root (the empty itemset) */
+		final BitSetItemset itemset;
+		/** the last item of the candidate */
+		final int code;
+		/** the estimated expectation and variance of the support of the candidate */
+		final double expectation;
+		final double variance;
+		/** true if the candidate is frequent by estimation */
+		final boolean frequent;
+		/** the explored extensions of the candidate in the order of the search, or null if there are none */
+		List<Node> children = null;
+
+		Node(BitSetItemset itemset, int code, double expectation, double variance, boolean frequent) {
+			this.itemset = itemset;
+			this.code = code;
+			this.expectation = expectation;
+			this.variance = variance;
+			this.frequent = frequent;
+		}
+	}
+
+	/** the thresholds and the bounds derived from them */
+	private final MiningThresholds thresholds;
+
+	/** if true, the explored candidates are kept in a tree for the next update */
+	private final boolean keepTree;
+
+	/** the root of the tree of explored candidates, or null if there is no tree to update */
+	private Node root = null;
+
+	/** the number of candidates of the tree, and whether candidates could not be kept by the current search */
+	private int keptCount;
+	private boolean truncated;
+
+	/** the state of the current search */
+	private SupportEstimator<?> estimator;
+	private int itemCount;
+	private int[] frequentCodes;
+	private boolean[] changedCodes;
+	private int[] changedPositions;
+	private int[] positionsOfCodes;
+	private MaximalItemsetIndex confirmedItemsets;
+	private Confirmation confirmation;
+
+	/** the number of candidates explored and estimated by the latest search, and its maximum depth */
+	private int candidateCount;
+	private int estimationCount;
+	private int maxDepth;
+
+	/**
+	 * Constructor
+	 *
+	 * @param thresholds the thresholds of the PMFIs
+	 * @param keepTree true to keep the explored candidates for the next update
+	 */
+	EstimationSearch(MiningThresholds thresholds, boolean keepTree) {
+		this.thresholds = thresholds;
+		this.keepTree = keepTree;
+	}
+
+	/**
+	 * Search the PMFIs from scratch.
+	 *
+	 * @param estimator the estimation of the support of the candidates
+	 * @param itemCount the number of items of the dictionary of the item codes
+	 * @param frequentCodes the codes of the frequent items, in the order of the search
+	 * @param confirmedItemsets the index of the confirmed PMFIs, where the PMFIs are added
+	 * @param confirmation the receiver of the PMFIs
+	 * @throws IOException if an I/O error occurs while writing the PMFIs
+	 */
+	void search(SupportEstimator<?> estimator, int itemCount, int[] frequentCodes,
+			MaximalItemsetIndex confirmedItemsets, Confirmation confirmation) throws IOException {
+		start(estimator, itemCount, frequentCodes, confirmedItemsets, confirmation);
+		root = keepTree ? new Node(null, -1, 0, 0, false) : null;
+		keptCount = 0;
+		explore(root, null, 0, 1);
+		finish();
+	}
+
+	/**
+	 * Search the PMFIs again after the supports of some items changed, reusing the tests of the
+	 * candidates kept by the previous search that do not contain these items. An item that is no
+	 * longer frequent, or that became frequent, must be marked as changed, and the frequent items must
+	 * keep their relative order since the previous search. If no candidates were kept, the search is done
+	 * from scratch.
+	 *
+	 * @param estimator the estimation of the support of the candidates
+	 * @param itemCount the number of items of the dictionary of the item codes
+	 * @param frequentCodes the codes of the frequent items, in the order of the search
+	 * @param changedCodes whether the support of each item changed since the previous search, indexed by code
+	 *                     (the codes beyond its length are changed)
+	 * @param confirmedItemsets the index of the confirmed PMFIs, where the PMFIs are added
+	 * @param confirmation the receiver of the PMFIs
+	 * @throws IOException if an I/O error occurs while writing the PMFIs
+	 */
+	void update(SupportEstimator<?> estimator, int itemCount, int[] frequentCodes, boolean[] changedCodes,
+			MaximalItemsetIndex confirmedItemsets, Confirmation confirmation) throws IOException {
+		if (root == null) {
+			search(estimator, itemCount, frequentCodes, confirmedItemsets, confirmation);
+			return;
+		}
+		start(estimator, itemCount, frequentCodes, confirmedItemsets, confirmation);
+		this.changedCodes = changedCodes;
+		positionsOfCodes = new int[itemCount];
+		Arrays.fill(positionsOfCodes, -1);
+		int[] positions = new int[frequentCodes.length];
+		int changedCount = 0;
+		for (int i = 0; i < frequentCodes.length; i++) {
+			positionsOfCodes[frequentCodes[i]] = i;
+			if (isChanged(frequentCodes[i])) {
+				positions[changedCount++] = i;
+			}
+		}
+		changedPositions = Arrays.copyOf(positions, changedCount);
+		keptCount = 0;
+		update(root, 0, 1);
+		finish();
+	}
+
+	/**
+	 * Initialize the state of a search.
+	 *
+	 * @param estimator the estimation of the support of the candidates
+	 * @param itemCount the number of items of the dictionary of the item codes
+	 * @param frequentCodes the codes of the frequent items, in increasing order
+	 * @param confirmedItemsets the index of the confirmed PMFIs
+	 * @param confirmation the receiver of the PMFIs
+	 */
+	private void start(SupportEstimator<?> estimator, int itemCount, int[] frequentCodes,
+			MaximalItemsetIndex confirmedItemsets, Confirmation confirmation) {
+		this.estimator = estimator;
+		this.itemCount = itemCount;
+		this.frequentCodes = frequentCodes;
+		this.confirmedItemsets = confirmedItemsets;
+		this.confirmation = confirmation;
+		candidateCount = 0;
+		estimationCount = 0;
+		maxDepth = 0;
+		truncated = false;
+	}
+
+	/**
+	 * Release the state of a search. The tree is kept, unless it misses candidates.
+	 */
+	private void finish() {
+		if (truncated) {
+			root = null;
+		}
+		estimator = null;
+		frequentCodes = null;
+		changedCodes = null;
+		changedPositions = null;
+		positionsOfCodes = null;
+		confirmedItemsets = null;
+		confirmation = null;
+	}
+
+	/**
+	 * Explore the extensions of a prefix from scratch.
+	 *
+	 * @param parent the node of the prefix in the tree, or null if the tree is not kept
+	 * @param prefix the prefix, or null for the empty itemset
+	 * @param start the position in frequentCodes of the first item that can extend the prefix
+	 * @param depth the length of the extensions
+	 * @throws IOException if an I/O error occurs while writing the PMFIs
+	 */
+	private void explore(Node parent, BitSetItemset prefix, int start, int depth) throws IOException {
+		maxDepth = Math.max(maxDepth, depth);
+		for (int i = start; i < frequentCodes.length; i++) {
+			exploreExtension(parent, prefix, i, depth);
+		}
+		if (depth % 16 == 0) {
+			MemoryLogger.getInstance().checkMemory();
+		}
+	}
+
+	/**
+	 * Test the extension of a prefix with a frequent item, then explore its extensions from scratch and
+	 * confirm it.
+	 *
+	 * @param parent the node of the prefix in the tree, or null if the tree is not kept
+	 * @param prefix the prefix, or null for the empty itemset
+	 * @param position the position of the item in frequentCodes
+	 * @param depth the length of the extension
+	 * @throws IOException if an I/O error occurs while writing the PMFIs
+	 */
+	private void exploreExtension(Node parent, BitSetItemset prefix, int position, int depth) throws IOException {
+		int code = frequentCodes[position];
+		BitSetItemset candidate = prefix == null ? BitSetItemset.of(itemCount, code) : prefix.with(code);
+		double expectation = estimator.getExpectation(candidate);
+		estimationCount++;
+		// the frequent single items are always candidates, as in CGEB
+		if (prefix != null && !thresholds.mayBeFrequent(expectation)) {
+			return;
+		}
+		candidateCount++;
+		Node node = null;
+		if (parent != null && keptCount >= MAX_KEPT_CANDIDATES) {
+			truncated = true;
+		} else if (parent != null) {
+			double variance = estimator.getVariance(candidate);
+			node = new Node(candidate, code, expectation, variance, estimator.isFrequentByMoments(expectation, variance));
+			if (parent.children == null) {
+				parent.children = new ArrayList<>();
+			}
+			parent.children.add(node);
+			keptCount++;
+		}
+		explore(node, candidate, position + 1, depth + 1);
+		if (node != null) {
+			confirm(node);
+		} else if (!confirmedItemsets.containsSupersetOf(candidate)) {
+			double variance = estimator.getVariance(candidate);
+			if (estimator.isFrequentByMoments(expectation, variance)) {
+				confirmedItemsets.add(candidate);
+				confirmation.confirm(candidate, expectation, variance);
+			}
+		}
+	}
+
+	/**
+	 * Explore again the extensions of a kept candidate whose items did not change. The kept extensions
+	 * with an unchanged last item keep their tests, the kept extensions with a changed last item are
+	 * tested again, and the candidate is extended with the changed frequent items that were not kept.
+	 *
+	 * @param node the node of the candidate (or the root)
+	 * @param start the position in frequentCodes of the first item that can extend the candidate
+	 * @param depth the length of the extensions
+	 * @throws IOException if an I/O error occurs while writing the PMFIs
+	 */
+	private void update(Node node, int start, int depth) throws IOException {
+		maxDepth = Math.max(maxDepth, depth);
+		List<Node> keptChildren = node.children != null ? node.children : List.of();
+		node.children = null;
+		// merge the kept extensions and the changed items, in the order of the search
+		int child = 0;
+		int changed = Arrays.binarySearch(changedPositions, start);
+		changed = changed >= 0 ? changed : -changed - 1;
+		while (child < keptChildren.size() || changed < changedPositions.length) {
+			Node keptChild = child < keptChildren.size() ? keptChildren.get(child) : null;
+			if (keptChild != null && isChanged(keptChild.code) && positionsOfCodes[keptChild.code] < 0) {
+				// the item is no longer frequent
+				child++;
+				continue;
+			}
+			int keptPosition = keptChild != null ? positionsOfCodes[keptChild.code] : Integer.MAX_VALUE;
+			int changedPosition = changed < changedPositions.length ? changedPositions[changed] : Integer.MAX_VALUE;
+			if (keptPosition < changedPosition) {
+				child++;
+				candidateCount++;
+				keptCount++;
+				if (node.children == null) {
+					node.children = new ArrayList<>();
+				}
+				node.children.add(keptChild);
+				update(keptChild, keptPosition + 1, depth + 1);
+				confirm(keptChild);
+			} else {
+				if (keptPosition == changedPosition) {
+					// the extension is tested again and its extensions are explored from scratch
+					child++;
+				}
+				exploreExtension(node, node.itemset, changedPositions[changed], depth);
+				changed++;
+			}
+		}
+	}
+
+	/**
+	 * Confirm a kept candidate after its extensions, if it is frequent and no confirmed PMFI contains it.
+	 *
+	 * @param node the node of the candidate
+	 * @throws IOException if an I/O error occurs while writing the PMFIs
+	 */
+	private void confirm(Node node) throws IOException {
+		if (node.frequent && !confirmedItemsets.containsSupersetOf(node.itemset)) {
+			confirmedItemsets.add(node.itemset);
+			confirmation.confirm(node.itemset, node.expectation, node.variance);
+		}
+	}
+
+	/**
+	 * Check if the support of an item changed since the previous search.
+	 *
+	 * @param code the code of the item
+	 * @return true if yes, otherwise false
+	 */
+	private boolean isChanged(int code) {
+		return code >= changedCodes.length || changedCodes[code];
+	}
+
+	/**
+	 * Discard the kept candidates, so that the next update searches from scratch.
+	 */
+	void clear() {
+		root = null;
+	}
+
+	/**
+	 * Get the number of candidates explored by the latest search.
+	 *
+	 * @return the candidate count
+	 */
+	int getCandidateCount() {
+		return candidateCount;
+	}
+
+	/**
+	 * Get the number of itemsets whose support was estimated by the latest search (the explored
+	 * candidates and the rejected extensions, excluding the candidates kept from the previous search).
+	 *
+	 * @return the estimation count
+	 */
+	int getEstimationCount() {
+		return estimationCount;
+	}
+
+	/**
+	 * Get the maximum depth of the latest search.
+	 *
+	 * @return the depth
+	 */
+	int getMaxDepth() {
+		return maxDepth;
+	}
+}
@@ -0,0 +1,157 @@
+package algorithms;
+
+import util.NormalDistribution;
+
+/**
+ * The thresholds of a probabilistic frequent itemset mining task, and the bounds derived from
+ * them. The bounds only depend on the minimum support and the minimum probability, so they are
+ * computed once per run and shared by all the pruning stages (candidate generation, estimation
+ * and FM test) instead of being recomputed for each candidate.
+ * <br/><br/>
+ * The bounds come from Chernoff-style inequalities on the support of an itemset, whose expected
+ * support is E:
+ * <ul>
+ * <li>if E is below the lower bound, the itemset cannot be probabilistic frequent,</li>
+ * <li>if E is at least the upper bound, the itemset is probabilistic frequent.</li>
+ * </ul>
+ * Between the bounds, the FM test approximates the distribution of the support by a normal distribution.
+ * Other miners can reuse them through {@link #mayBeFrequent(double)}, {@link #isCertainlyFrequent(double)}
+ * and {@link #isFrequentByMoments(double, double, NormalDistribution.Table)}.
+ */
+public class MiningThresholds {
+
+	/** the minimum support */
+	private final double minSupport;
+	/** the minimum probability */
+	private final double minProbability;
+	/** the lower bound of the expected support of a probabilistic frequent itemset */
+	private final double lowerBoundExpectation;
+	/** the expected support from which an itemset is probabilistic frequent */
+	private final double upperBoundExpectation;
+
+	/**
+	 * Constructor
+	 *
+	 * @param minSupport the minimum support
+	 * @param minProbability the minimum probability, in (0, 1]
+	 */
+	public MiningThresholds(double minSupport, double minProbability) {
+		if (!(minSupport >= 0)) {
+			throw new IllegalArgumentException("The minimum support must be non-negative: " + minSupport);
+		}
+		if (!(minProbability > 0 && minProbability <= 1)) {
+			throw new IllegalArgumentException("The minimum probability must be in (0, 1]: " + minProbability);
+		}
+		this.minSupport = minSupport;
+		this.minProbability = minProbability;
+		double logMinProbability = Math.log(minProbability);
+		double logInverse = Math.log(1 / minProbability);
+		this.lowerBoundExpectation = 2 * minSupport - logMinProbability
+				- Math.sqrt(logInverse * (logInverse - 8 * minSupport * logMinProbability)) / 2;
+		// the bound of WAPFI_MAX, which is NaN when the minimum support exceeds 0.5 (no itemset is then
+		// certainly frequent, and the FM test is always run)
+		double logComplement = Math.log(1 - minProbability);
+		this.upperBoundExpectation = minSupport - logComplement
+				+ Math.sqrt(logComplement * (logComplement - 2 * minSupport * logComplement));
+	}
+
+	/**
+	 * Get the minimum support.
+	 *
+	 * @return the minimum support
+	 */
+	public double getMinSupport() {
+		return minSupport;
+	}
+
+	/**
+	 * Get the minimum probability.
+	 *
+	 * @return the minimum probability
+	 */
+	public double getMinProbability() {
+		return minProbability;
+	}
+
+	/**
+	 * Get the minimum support as a number of transactions, that is the minimum support rounded up.
+	 *
+	 * @return the minimum support count
+	 */
+	public int getMinSupportCount() {
+		return (int) Math.ceil(minSupport);
+	}
+
+	/**
+	 * Get the lower bound of the expected support of a probabilistic frequent itemset.
+	 *
+	 * @return the lower bound
+	 */
+	public double getLowerBoundExpectation() {
+		return lowerBoundExpectation;
+	}
+
+	/**
+	 * Get the expected support from which an itemset is probabilistic frequent.
+	 *
+	 * @return the upper bound, or NaN if the minimum support exceeds 0.5
+	 */
+	public double getUpperBoundExpectation() {
+		return upperBoundExpectation;
+	}
+
+	/**
+	 * Check if an itemset may be probabilistic frequent, given its expected support.
+	 *
+	 * @param expectation the expected support of the itemset
+	 * @return false if the itemset is certainly not frequent, otherwise true
+	 */
+	public boolean mayBeFrequent(double expectation) {
+		return expectation >= lowerBoundExpectation;
+	}
+
+	/**
+	 * Check if an itemset is certainly probabilistic frequent, given its expected support.
+	 *
+	 * @param expectation the expected support of the itemset
+	 * @return true if the itemset is certainly frequent, otherwise false
+	 */
+	public boolean isCertainlyFrequent(double expectation) {
+		return expectation >= upperBoundExpectation;
+	}
+
+	/**
+	 * Check if an itemset is probabilistic frequent given the expectation and the variance of its support,
+	 * whether they are estimated from the item supports or computed exactly: the expectation must reach
+	 * the lower bound, and unless it reaches the upper bound, the FM test must pass, that is the probability
+	 * that a normal variable with these moments reaches the minimum support must reach the minimum probability.
+	 *
+	 * @param expectation the expected support of the itemset
+	 * @param variance the variance of the support of the itemset
+	 * @param cdfTable the table used to compute the normal CDF, or null to use the rational approximation
+	 * @return true if the itemset is frequent, otherwise false
+	 */
+	public boolean isFrequentByMoments(double expectation, double variance, NormalDistribution.Table cdfTable) {
+		if (!mayBeFrequent(expectation)) {
+			return false;
+		}
+		if (isCertainlyFrequent(expectation)) {
+			return true;
+		}
+		double standardNormalValue = (minSupport - expectation) / Math.sqrt(variance);
+		double frequency = cdfTable == null ? NormalDistribution.complementaryCdf(standardNormalValue)
+				: 1 - cdfTable.cdf(standardNormalValue);
+		return frequency >= minProbability;
+	}
+
+	/**
+	 * Get a string representation of these thresholds.
+	 *
+	 * @return a string
+	 */
+	@Override
+	public String toString() {
+		return "minSup: " + minSupport + ", minPro: " + minProbability
+				+ ", lower bound: " + lowerBoundExpectation + ", upper bound: " + upperBoundExpectation;
+	}
+}
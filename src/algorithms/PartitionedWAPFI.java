@@ -0,0 +1,544 @@
+package algorithms;
+
+import pattern.itemset.BitSetItemset;
+import pattern.itemset.ItemDictionary;
+import pattern.itemset.MaximalItemsetIndex;
+import pattern.itemset.TransactionParser;
+import pattern.itemset.WeightedTransaction;
+import util.MemoryLogger;
+import util.MemoryResultSink;
+import util.NormalDistribution;
+import util.ResultSink;
+import util.TextResultSink;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An out-of-core version of WAPFI_MAX for databases larger than the memory, in the style of the SON
+ * algorithm. The file is read as a stream several times, and only one partition of the transactions
+ * (lines) is in memory at a time:
+ * <ol>
+ * <li>the lines of the file are counted,</li>
+ * <li>each partition of at most partitionSize lines is mined by WAPFI_MAX, with the minimum support
+ * scaled by the fraction of the lines in the partition,</li>
+ * <li>the exact expected support of the items of the local PMFIs is computed by a pass over the file.
+ * The local PMFIs without the items whose support is below the lower bound of WAPFI_MAX are the first
+ * candidates (the expected support of an itemset is at most the support of each of its items),</li>
+ * <li>the candidates are confirmed top-down, from the longest: the exact expectation and variance of the
+ * support of the candidates of a length are computed by a pass over the file, and a candidate is
+ * probabilistic frequent if it passes the test of WAPFI_MAX (the bounds on the expectation and the FM
+ * test) with these moments. The subsets of a candidate that is not frequent, having one item less, are
+ * candidates of the next length.</li>
+ * </ol>
+ * The maximal itemsets among the frequent candidates are the PMFIs. A candidate contained in a PMFI is
+ * skipped, as are its subsets, so the subsets of the local PMFIs are only generated below the candidates
+ * that are not frequent. Since the expected support is a sum over the transactions, an itemset whose
+ * expected support reaches the minimum support reaches the scaled minimum support in at least one
+ * partition. The local mining is however probabilistic, so the result is an approximation of the PMFIs
+ * of WAPFI_MAX, whose test is applied to moments estimated from the item supports rather than to the
+ * exact moments.
+ * <br/><br/>
+ * The file is read three times, then once per length of the candidates. The memory is bounded by the
+ * size of a partition and by the number of candidates of two consecutive lengths, which only grows
+ * exponentially with the length of the local PMFIs when long local PMFIs are not frequent in the
+ * database, nor most of their subsets.
+ */
+public class PartitionedWAPFI<T> {
+
+	double minSupport;
+	double minProbability;
+
+	/** the thresholds and the bounds derived from them, in the database */
+	private final MiningThresholds thresholds;
+
+	/** the maximum number of transactions (lines) of a partition */
+	private final int partitionSize;
+
+	/** the number of threads used by WAPFI_MAX to count the item supports of a partition */
+	int threadCount = 1;
+
+	/** the table used to compute the normal CDF, or null to use the rational approximation */
+	private NormalDistribution.Table cdfTable = null;
+
+	/** the number of transactions of the database */
+	private int transactionCount;
+
+	/** the number of partitions, local PMFIs, candidates, passes counting moments and PMFIs of the latest execution */
+	private int partitionCount;
+	private int localPMFICount;
+	private int candidateCount;
+	private int momentPassCount;
+	private int PMFICount;
+
+	/** start time of latest execution */
+	protected long startTimestamp;
+
+	/** end time of the local mining of the latest execution */
+	protected long miningTimestamp;
+
+	/** end time of latest execution */
+	protected long endTimestamp;
+
+	/**
+	 * Constructor
+	 *
+	 * @param minSupport the minimum expected support in the database
+	 * @param minProbability the minimum probability
+	 * @param partitionSize the maximum number of transactions (lines) of a partition
+	 */
+	public PartitionedWAPFI(double minSupport, double minProbability, int partitionSize) {
+		if (partitionSize < 1) {
+			throw new IllegalArgumentException("A partition must contain at least one line: " + partitionSize);
+		}
+		this.minSupport = minSupport;
+		this.minProbability = minProbability;
+		this.thresholds = new MiningThresholds(minSupport, minProbability);
+		this.partitionSize = partitionSize;
+	}
+
+	/**
+	 * Run the algorithm and write the PMFIs to a file, in the format of WAPFI_MAX.
+	 *
+	 * @param input the path of the database
+	 * @param output the path of the output file
+	 * @throws IOException If an I/O error occurs while reading the database or writing to the file.
+	 */
+	public void runAlgorithm(String input, String output) throws IOException {
+		try (ResultSink<T> sink = TextResultSink.bracketed(output)) {
+			runAlgorithm(input, sink);
+		}
+	}
+
+	/**
+	 * Run the algorithm, writing each PMFI with its expected support to a sink.
+	 *
+	 * @param input the path of the database
+	 * @param sink the sink receiving the PMFIs and information about the execution (it is not closed)
+	 * @throws IOException If an I/O error occurs while reading the database or writing to the sink.
+	 */
+	public void runAlgorithm(String input, ResultSink<T> sink) throws IOException {
+		startTimestamp = System.currentTimeMillis();
+		MemoryLogger.getInstance().reset();
+		partitionCount = 0;
+		localPMFICount = 0;
+		candidateCount = 0;
+		momentPassCount = 0;
+		PMFICount = 0;
+		transactionCount = countTransactions(input);
+
+		// mine the partitions, and encode the items of their PMFIs
+		ItemDictionary<T> dictionary = new ItemDictionary<>();
+		List<int[]> localPMFIs = mineLocalPMFIs(input, dictionary);
+		miningTimestamp = System.currentTimeMillis();
+
+		// the candidates of each length, starting with the local PMFIs without the items that are not frequent
+		// in the database, since the expected support of an itemset is at most the support of each of its items
+		BitSetItemset infrequentItems = getInfrequentItems(input, dictionary);
+		List<Set<BitSetItemset>> candidatesByLength = new ArrayList<>();
+		for (int[] codes : localPMFIs) {
+			BitSetItemset candidate = BitSetItemset.of(dictionary.size(), codes);
+			for (int code : codes) {
+				if (infrequentItems.contains(code)) {
+					candidate = candidate.without(code);
+				}
+			}
+			if (candidate.cardinality() > 0) {
+				addCandidate(candidate, candidatesByLength);
+			}
+		}
+		localPMFIs = null;
+
+		// Top-down confirmation, as in WAPFI_MAX: a candidate having a frequent superset is not maximal
+		MaximalItemsetIndex confirmedItemsets = new MaximalItemsetIndex(dictionary.size());
+		List<List<T>> PMFIs = new ArrayList<>();
+		List<Double> PMFIExpectations = new ArrayList<>();
+		for (int length = candidatesByLength.size() - 1; length > 0; length--) {
+			List<BitSetItemset> candidates = new ArrayList<>();
+			for (BitSetItemset candidate : candidatesByLength.get(length)) {
+				if (!confirmedItemsets.containsSupersetOf(candidate)) {
+					candidates.add(candidate);
+				}
+			}
+			candidatesByLength.set(length, null);
+			if (candidates.isEmpty()) {
+				continue;
+			}
+			candidateCount += candidates.size();
+			double[] expectations = new double[candidates.size()];
+			double[] variances = new double[candidates.size()];
+			countMoments(input, dictionary, candidates, expectations, variances);
+			for (int i = 0; i < candidates.size(); i++) {
+				BitSetItemset candidate = candidates.get(i);
+				if (thresholds.isFrequentByMoments(expectations[i], variances[i], cdfTable)) {
+					confirmedItemsets.add(candidate);
+					List<T> items = new ArrayList<>();
+					for (int code = candidate.nextItem(0); code >= 0; code = candidate.nextItem(code + 1)) {
+						items.add(dictionary.getItem(code));
+					}
+					PMFIs.add(items);
+					PMFIExpectations.add(expectations[i]);
+				} else if (length > 1) {
+					// the subsets of a frequent candidate are not maximal, so only these ones are candidates
+					for (int code = candidate.nextItem(0); code >= 0; code = candidate.nextItem(code + 1)) {
+						addCandidate(candidate.without(code), candidatesByLength);
+					}
+				}
+			}
+			MemoryLogger.getInstance().checkMemory();
+		}
+
+		sink.writeInfo("Candidate count: " + candidateCount);
+		sink.writeInfo("Transaction count: " + transactionCount);
+		sink.writeInfo("minPro: " + this.minProbability);
+		sink.writeInfo("minSup: " + this.minSupport);
+		sink.writeInfo("PMFIs:");
+		for (int i = 0; i < PMFIs.size(); i++) {
+			sink.writePattern(PMFIs.get(i), PMFIExpectations.get(i));
+		}
+		PMFICount = PMFIs.size();
+		endTimestamp = System.currentTimeMillis();
+		sink.writeInfo("Running time: " + (endTimestamp - startTimestamp) + " ms");
+		sink.writeInfo("Maximum memory usage : " + MemoryLogger.getInstance().getMaxMemory() + " mb");
+	}
+
+	/**
+	 * Count the transactions (lines) of a database.
+	 *
+	 * @param input the path of the database
+	 * @return the number of transactions
+	 * @throws IOException If an I/O error occurs while reading the database.
+	 */
+	private int countTransactions(String input) throws IOException {
+		int[] count = new int[1];
+		try (InputStream stream = new FileInputStream(input)) {
+			new TransactionParser(stream).parse(new TransactionParser.Handler() {
+				@Override
+				public void item(int id, double probability, double weight) {
+				}
+
+				@Override
+				public void item(String id, double probability, double weight) {
+				}
+
+				@Override
+				public void endTransaction() {
+					count[0]++;
+				}
+			});
+		}
+		return count[0];
+	}
+
+	/**
+	 * Read the database partition by partition and mine the PMFIs of each partition with a scaled minimum support.
+	 *
+	 * @param input the path of the database
+	 * @param dictionary the dictionary where the items of the local PMFIs are encoded
+	 * @return the codes of the items of each local PMFI
+	 * @throws IOException If an I/O error occurs while reading the database.
+	 */
+	private List<int[]> mineLocalPMFIs(String input, ItemDictionary<T> dictionary) throws IOException {
+		List<int[]> localPMFIs = new ArrayList<>();
+		List<WeightedTransaction<T>> partition = new ArrayList<>();
+		try (InputStream stream = new FileInputStream(input)) {
+			WeightedTransaction.<T>parse(stream, 0, transaction -> {
+				partition.add(transaction);
+				if (partition.size() == partitionSize) {
+					minePartition(partition, dictionary, localPMFIs);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		if (!partition.isEmpty()) {
+			minePartition(partition, dictionary, localPMFIs);
+		}
+		return localPMFIs;
+	}
+
+	/**
+	 * Mine the PMFIs of a partition, which is then cleared.
+	 *
+	 * @param partition the transactions of the partition
+	 * @param dictionary the dictionary where the items of the local PMFIs are encoded
+	 * @param localPMFIs the list where the codes of the items of each local PMFI are added
+	 */
+	private void minePartition(List<WeightedTransaction<T>> partition, ItemDictionary<T> dictionary,
+			List<int[]> localPMFIs) {
+		double localMinSupport = minSupport * partition.size() / transactionCount;
+		WAPFI_MAX<T> wapfi = WAPFI_MAX.forTransactions(partition, localMinSupport, minProbability);
+		wapfi.setThreadCount(threadCount);
+		wapfi.setOrderedExtensions(true);
+		wapfi.setTabulatedCdf(cdfTable != null);
+		MemoryResultSink<T> sink = new MemoryResultSink<>();
+		try {
+			wapfi.runAPFI_MAX(sink);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		for (List<T> items : sink.getPatterns()) {
+			int[] codes = new int[items.size()];
+			for (int i = 0; i < codes.length; i++) {
+				codes[i] = dictionary.encode(items.get(i));
+			}
+			localPMFIs.add(codes);
+		}
+		localPMFICount += sink.size();
+		partitionCount++;
+		MemoryLogger.getInstance().checkMemory();
+		partition.clear();
+	}
+
+	/**
+	 * Find the items of the local PMFIs whose exact expected support in the database is below the lower
+	 * bound of the expected support of a PMFI.
+	 *
+	 * @param input the path of the database
+	 * @param dictionary the dictionary of the items of the local PMFIs
+	 * @return the codes of the items that are not frequent
+	 * @throws IOException If an I/O error occurs while reading the database.
+	 */
+	private BitSetItemset getInfrequentItems(String input, ItemDictionary<T> dictionary) throws IOException {
+		if (dictionary.size() == 0) {
+			return new BitSetItemset(0);
+		}
+		List<BitSetItemset> items = new ArrayList<>();
+		for (int code = 0; code < dictionary.size(); code++) {
+			items.add(BitSetItemset.of(dictionary.size(), code));
+		}
+		double[] expectations = new double[items.size()];
+		countMoments(input, dictionary, items, expectations, new double[items.size()]);
+		BitSetItemset infrequentItems = new BitSetItemset(dictionary.size());
+		for (int code = 0; code < expectations.length; code++) {
+			if (!thresholds.mayBeFrequent(expectations[code])) {
+				infrequentItems = infrequentItems.with(code);
+			}
+		}
+		return infrequentItems;
+	}
+
+	/**
+	 * Add a candidate to the set of the candidates of its length.
+	 *
+	 * @param candidate the candidate
+	 * @param candidatesByLength the sets of candidates, indexed by length
+	 */
+	private void addCandidate(BitSetItemset candidate, List<Set<BitSetItemset>> candidatesByLength) {
+		int length = candidate.cardinality();
+		while (candidatesByLength.size() <= length) {
+			candidatesByLength.add(new HashSet<>());
+		}
+		candidatesByLength.get(length).add(candidate);
+	}
+
+	/**
+	 * Read the whole database to compute the exact expectation and variance of the support of each
+	 * candidate: the sums over the transactions of the probability P of the candidate and of P * (1 - P),
+	 * where P is the product of the values p * w of its items. If an item appears several times in a
+	 * transaction, only its first occurrence is kept, as in the exact mode of WAPFI_MAX. The candidates
+	 * contained in a transaction are found by walking a prefix tree of the candidates with the items
+	 * of the transaction.
+	 *
+	 * @param input the path of the database
+	 * @param dictionary the dictionary of the items of the candidates
+	 * @param candidates the candidates
+	 * @param expectations the array where the expectation of each candidate is stored
+	 * @param variances the array where the variance of each candidate is stored
+	 * @throws IOException If an I/O error occurs while reading the database.
+	 */
+	private void countMoments(String input, ItemDictionary<T> dictionary, List<BitSetItemset> candidates,
+			double[] expectations, double[] variances) throws IOException {
+		CandidateTrie trie = CandidateTrie.build(candidates);
+		// the value p * w of each item in the current transaction, valid if the item was seen in that transaction
+		double[] values = new double[dictionary.size()];
+		int[] seenInTransaction = new int[dictionary.size()];
+		Arrays.fill(seenInTransaction, -1);
+		// the codes of the items of the current transaction that are in the dictionary
+		int[][] codes = {new int[16]};
+		try (InputStream stream = new FileInputStream(input)) {
+			WeightedTransaction.<T>parse(stream, 0, transaction -> {
+				int length = 0;
+				for (int i = 0; i < transaction.size(); i++) {
+					int code = dictionary.getCode(transaction.getItem(i));
+					if (code >= 0 && seenInTransaction[code] != transaction.getTid()) {
+						seenInTransaction[code] = transaction.getTid();
+						values[code] = transaction.getSupport(i);
+						if (length == codes[0].length) {
+							codes[0] = Arrays.copyOf(codes[0], length * 2);
+						}
+						codes[0][length++] = code;
+					}
+				}
+				Arrays.sort(codes[0], 0, length);
+				trie.addMoments(codes[0], length, 0, values, 1, expectations, variances);
+			});
+		}
+		momentPassCount++;
+	}
+
+	/**
+	 * A prefix tree of candidates, over their item codes in increasing order. The candidates contained
+	 * in a transaction are found by walking the tree with the codes of the transaction, as ItemsetTrie
+	 * does for AprioriAlgo, rather than by testing each candidate.
+	 */
+	private static final class CandidateTrie {
+		/** the codes of the children, in increasing order, and the children (null for a leaf) */
+		int[] childCodes;
+		CandidateTrie[] children;
+		/** the index of the candidate ending at this node, or -1 */
+		int candidate = -1;
+
+		/**
+		 * Build the prefix tree of candidates.
+		 *
+		 * @param candidates the candidates
+		 * @return the root of the tree
+		 */
+		static CandidateTrie build(List<BitSetItemset> candidates) {
+			int[][] candidateCodes = new int[candidates.size()][];
+			Integer[] order = new Integer[candidates.size()];
+			for (int i = 0; i < candidateCodes.length; i++) {
+				candidateCodes[i] = candidates.get(i).toArray();
+				order[i] = i;
+			}
+			Arrays.sort(order, (first, second) -> Arrays.compare(candidateCodes[first], candidateCodes[second]));
+			CandidateTrie root = new CandidateTrie();
+			root.build(candidateCodes, order, 0, order.length, 0);
+			return root;
+		}
+
+		/**
+		 * Build the subtree of a range of candidates sharing a prefix.
+		 *
+		 * @param candidateCodes the codes of the items of each candidate
+		 * @param order the indexes of the candidates, in lexical order of their codes
+		 * @param from the start of the range in order
+		 * @param to the end of the range in order (exclusive)
+		 * @param depth the length of the prefix, which is the depth of this node
+		 */
+		private void build(int[][] candidateCodes, Integer[] order, int from, int to, int depth) {
+			// a candidate equal to the prefix comes first in lexical order
+			if (from < to && candidateCodes[order[from]].length == depth) {
+				candidate = order[from++];
+			}
+			int childCount = 0;
+			for (int i = from; i < to; i++) {
+				if (i == from || candidateCodes[order[i]][depth] != candidateCodes[order[i - 1]][depth]) {
+					childCount++;
+				}
+			}
+			if (childCount == 0) {
+				return;
+			}
+			childCodes = new int[childCount];
+			children = new CandidateTrie[childCount];
+			int child = 0;
+			for (int start = from; start < to; child++) {
+				int code = candidateCodes[order[start]][depth];
+				int end = start + 1;
+				while (end < to && candidateCodes[order[end]][depth] == code) {
+					end++;
+				}
+				childCodes[child] = code;
+				children[child] = new CandidateTrie();
+				children[child].build(candidateCodes, order, start, end, depth + 1);
+				start = end;
+			}
+		}
+
+		/**
+		 * Add the probability of the candidates below this node that are contained in a transaction to
+		 * their moments.
+		 *
+		 * @param codes the codes of the items of the transaction, in increasing order
+		 * @param length the number of codes
+		 * @param start the position of the first code that can extend the prefix of this node
+		 * @param values the value p * w of each item in the transaction, indexed by code
+		 * @param probability the probability of the prefix of this node in the transaction
+		 * @param expectations the expectation of each candidate
+		 * @param variances the variance of each candidate
+		 */
+		void addMoments(int[] codes, int length, int start, double[] values, double probability,
+				double[] expectations, double[] variances) {
+			for (int i = start; i < length; i++) {
+				int child = Arrays.binarySearch(childCodes, codes[i]);
+				if (child < 0) {
+					continue;
+				}
+				CandidateTrie node = children[child];
+				double nodeProbability = probability * values[codes[i]];
+				if (node.candidate >= 0) {
+					expectations[node.candidate] += nodeProbability;
+					variances[node.candidate] += nodeProbability * (1 - nodeProbability);
+				}
+				if (node.children != null) {
+					node.addMoments(codes, length, i + 1, values, nodeProbability, expectations, variances);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the thresholds of this miner and the bounds derived from them.
+	 *
+	 * @return the thresholds
+	 */
+	public MiningThresholds getThresholds() {
+		return thresholds;
+	}
+
+	/**
+	 * Set the number of threads used by WAPFI_MAX to count the item supports of a partition.
+	 *
+	 * @param threadCount the number of threads (1 by default)
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Set whether the normal CDF used by the FM test is interpolated from a precomputed table
+	 * rather than computed by a rational approximation (see WAPFI_MAX.setTabulatedCdf).
+	 *
+	 * @param useTable true to use a table (false by default)
+	 */
+	public void setTabulatedCdf(boolean useTable) {
+		this.cdfTable = useTable ? new NormalDistribution.Table() : null;
+	}
+
+	/**
+	 * Get the number of PMFIs found by the latest execution.
+	 *
+	 * @return the number of PMFIs
+	 */
+	public int getPMFICount() {
+		return PMFICount;
+	}
+
+	/**
+	 * Print statistics about the latest execution.
+	 */
+	public void printStats() {
+		System.out
+				.println("=============  PARTITIONED APFI-MAX - STATS =============");
+		System.out.println(" Transactions count from database : " + transactionCount);
+		System.out.println(" Partitions count : " + partitionCount);
+		System.out.println(" Local PMFIs count : " + localPMFICount);
+		System.out.println(" Candidates count : " + candidateCount);
+		System.out.println(" Database passes counting moments : " + momentPassCount);
+		System.out.println(" PMFIs count : " + PMFICount);
+		System.out.println(" Local mining time ~ " + (miningTimestamp - startTimestamp) + " ms");
+		System.out.println(" Total time ~ " + (endTimestamp - startTimestamp) + " ms");
+		System.out.println(" Maximum memory usage : " + MemoryLogger.getInstance().getMaxMemory() + " mb");
+		System.out
+				.println("===================================================");
+	}
+}
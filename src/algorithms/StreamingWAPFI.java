@@ -0,0 +1,605 @@
+package algorithms;
+
+import pattern.itemset.ItemDictionary;
+import pattern.itemset.MaximalItemsetIndex;
+import pattern.itemset.TransactionParser;
+import util.NormalDistribution;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A miner of the probabilistic maximal frequent itemsets (PMFIs) of a sliding window over an
+ * unbounded stream of uncertain transactions, with the estimation model of WAPFI_MAX.
+ * <br/><br/>
+ * The window keeps either the latest transactions (count-based window) or the transactions that
+ * arrived during the latest period of time (time-based window). The expected support of each item
+ * in the window is updated when a transaction arrives and when it expires, and the estimated
+ * expectation and variance of an itemset are derived from the supports of its items, as by
+ * SupportEstimator. The PMFIs are then mined from the item statistics only, without scanning the
+ * window, and the changes of the set of PMFIs are sent to listeners as events.
+ * <br/><br/>
+ * The candidates explored by the search of the PMFIs are kept between two evaluations, with their
+ * estimated expectation and variance (see EstimationSearch). An evaluation only estimates again the
+ * candidates containing an item whose support changed since the previous evaluation, that is an item
+ * of the transactions that arrived or expired in the meantime, and the extensions of the other
+ * candidates with these items. The other candidates are only visited to confirm the PMFIs. The items
+ * are explored in their natural order (when they are comparable), so that the PMFIs do not depend on
+ * the order of arrival of the items.
+ * <br/><br/>
+ * The memory only depends on the size of the window and on the number of explored candidates,
+ * whatever the length of the stream: the codes of the items that left the window are reclaimed
+ * when they outnumber the items of the window. In a time-based window, a transaction arriving
+ * before the previous one is rejected.
+ *
+ * @param <T> the type of items
+ */
+public class StreamingWAPFI<T> {
+
+	/**
+	 * Receive the changes of the set of PMFIs of the window.
+	 *
+	 * @param <T> the type of items
+	 */
+	public interface PMFIListener<T> {
+		/**
+		 * Called when an itemset becomes a PMFI of the window.
+		 *
+		 * @param itemset the itemset
+		 * @param expectation the estimated expected support of the itemset in the window
+		 * @param variance the estimated variance of the support of the itemset in the window
+		 * @param timestamp the time of the evaluation
+		 */
+		void pmfiAdded(Set<T> itemset, double expectation, double variance, long timestamp);
+
+		/**
+		 * Called when an itemset is no longer a PMFI of the window.
+		 *
+		 * @param itemset the itemset
+		 * @param timestamp the time of the evaluation
+		 */
+		void pmfiRemoved(Set<T> itemset, long timestamp);
+	}
+
+	/**
+	 * A transaction of the window.
+	 */
+	private static class WindowTransaction {
+		/** the codes of the items, and the support p * w of each item */
+		final int[] codes;
+		final double[] supports;
+		/** the arrival time */
+		final long timestamp;
+
+		WindowTransaction(int[] codes, double[] supports, long timestamp) {
+			this.codes = codes;
+			this.supports = supports;
+			this.timestamp = timestamp;
+		}
+	}
+
+	/** the thresholds and the bounds derived from them */
+	private final MiningThresholds thresholds;
+
+	/** the maximum number of transactions of the window (count-based window) */
+	private final int maxTransactionCount;
+
+	/** the duration of the window (time-based window) */
+	private final long windowDuration;
+
+	/** the transactions of the window, from the oldest to the latest */
+	private final ArrayDeque<WindowTransaction> window = new ArrayDeque<>();
+
+	/** the dictionary of the items of the window, and of the items that left it until the codes are compacted */
+	private ItemDictionary<T> dictionary = new ItemDictionary<>();
+
+	/** the expected support, the variance and the number of occurrences in the window of each item, by code */
+	private double[] supports = new double[64];
+	private double[] variances = new double[64];
+	private int[] occurrenceCounts = new int[64];
+
+	/** the codes of the items, in the order of the search */
+	private int[] codesInItemOrder = new int[64];
+
+	/** whether the support of each item changed since the latest evaluation, by code */
+	private boolean[] changedCodes = new boolean[64];
+
+	/** the number of items of the window */
+	private int itemCount = 0;
+
+	/** the search of the PMFIs, keeping the explored candidates between two evaluations */
+	private final EstimationSearch search;
+
+	/** if true, the next evaluation searches the PMFIs from scratch (all the supports changed) */
+	private boolean searchFromScratch = true;
+
+	/** the number of expired transactions since the supports were recomputed from the window */
+	private int expiredSinceRecount = 0;
+
+	/** the number of arrivals between two evaluations of the PMFIs, and since the latest evaluation */
+	private int evaluationInterval = 1;
+	private int arrivalsSinceEvaluation = 0;
+
+	/** the time of the latest transaction */
+	private long currentTimestamp = Long.MIN_VALUE;
+
+	/** the table used to compute the normal CDF, or null to use the rational approximation */
+	private NormalDistribution.Table cdfTable = null;
+
+	/** the PMFIs of the window at the latest evaluation */
+	private Set<Set<T>> PMFIs = new HashSet<>();
+
+	/** the listeners receiving the changes of the PMFIs */
+	private final List<PMFIListener<T>> listeners = new ArrayList<>();
+
+	/** the number of transactions, of evaluations and of estimated itemsets since the beginning of the stream */
+	private long transactionCount = 0;
+	private long evaluationCount = 0;
+	private long estimationCount = 0;
+
+	/**
+	 * Constructor
+	 *
+	 * @param maxTransactionCount the maximum number of transactions of the window
+	 * @param windowDuration the duration of the window
+	 * @param thresholds the thresholds of the PMFIs
+	 */
+	private StreamingWAPFI(int maxTransactionCount, long windowDuration, MiningThresholds thresholds) {
+		this.maxTransactionCount = maxTransactionCount;
+		this.windowDuration = windowDuration;
+		this.thresholds = thresholds;
+		this.search = new EstimationSearch(thresholds, true);
+	}
+
+	/**
+	 * Create a miner over a window containing the latest transactions.
+	 *
+	 * @param size the number of transactions of the window
+	 * @param minSupport the minimum support (expected support in the window)
+	 * @param minProbability the minimum probability
+	 * @return the miner
+	 */
+	public static <T> StreamingWAPFI<T> countWindow(int size, double minSupport, double minProbability) {
+		if (size < 1) {
+			throw new IllegalArgumentException("The window must contain at least one transaction: " + size);
+		}
+		return new StreamingWAPFI<>(size, Long.MAX_VALUE, new MiningThresholds(minSupport, minProbability));
+	}
+
+	/**
+	 * Create a miner over a window containing the transactions of the latest period of time: a
+	 * transaction expires when a transaction arrives at least duration after it.
+	 *
+	 * @param duration the duration of the window, in the unit of the timestamps
+	 * @param minSupport the minimum support (expected support in the window)
+	 * @param minProbability the minimum probability
+	 * @return the miner
+	 */
+	public static <T> StreamingWAPFI<T> timeWindow(long duration, double minSupport, double minProbability) {
+		if (duration < 1) {
+			throw new IllegalArgumentException("The duration of the window must be positive: " + duration);
+		}
+		return new StreamingWAPFI<>(Integer.MAX_VALUE, duration, new MiningThresholds(minSupport, minProbability));
+	}
+
+	/**
+	 * Add a listener receiving the changes of the PMFIs.
+	 *
+	 * @param listener the listener
+	 */
+	public void addListener(PMFIListener<T> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Add a transaction to the window, after removing the transactions that expire, and evaluate the
+	 * PMFIs if the evaluation interval is reached.
+	 *
+	 * @param items the items of the transaction
+	 * @param probabilities the existential probability of each item
+	 * @param weights the weight of each item
+	 * @param timestamp the arrival time of the transaction, which cannot be before the arrival time of the
+	 *                  previous transaction in a time-based window (a count-based window only uses it as
+	 *                  the time of the events)
+	 */
+	public void addTransaction(List<T> items, double[] probabilities, double[] weights, long timestamp) {
+		if (probabilities.length != items.size() || weights.length != items.size()) {
+			throw new IllegalArgumentException("There must be one probability and one weight per item");
+		}
+		if (isTimeWindow()) {
+			if (timestamp < currentTimestamp) {
+				throw new IllegalArgumentException("The transaction arrived before the previous one: "
+						+ timestamp + " < " + currentTimestamp);
+			}
+			expire(timestamp);
+		}
+		currentTimestamp = timestamp;
+		int[] codes = new int[items.size()];
+		double[] itemSupports = new double[items.size()];
+		for (int i = 0; i < codes.length; i++) {
+			int codeCount = dictionary.size();
+			codes[i] = dictionary.encode(items.get(i));
+			if (codes[i] == codeCount) {
+				ensureCapacity(codeCount + 1);
+				insertInItemOrder(codes[i]);
+			}
+			itemSupports[i] = probabilities[i] * weights[i];
+		}
+		window.addLast(new WindowTransaction(codes, itemSupports, timestamp));
+		for (int i = 0; i < codes.length; i++) {
+			if (occurrenceCounts[codes[i]]++ == 0) {
+				itemCount++;
+			}
+			addSupport(codes[i], itemSupports[i]);
+		}
+		if (window.size() > maxTransactionCount) {
+			removeOldest();
+		}
+		transactionCount++;
+		if (++arrivalsSinceEvaluation >= evaluationInterval) {
+			evaluate();
+		}
+	}
+
+	/**
+	 * Read transactions from a stream in the format "item(probability)[weight]", with one transaction
+	 * per line, and add them to the window as they are parsed. The arrival time of a transaction is the
+	 * time when it is parsed. Items without a weight are ignored, as by UncertainTransaction.load.
+	 *
+	 * @param input the stream
+	 * @throws IOException if an error occurs while reading the stream or if it is malformed
+	 */
+	public void process(InputStream input) throws IOException {
+		new TransactionParser(input).parse(new TransactionParser.WeightedItemHandler<T>() {
+			// the items of the current line
+			final List<T> items = new ArrayList<>();
+			double[] probabilities = new double[16];
+			double[] weights = new double[16];
+
+			@Override
+			public void endTransaction() {
+				addTransaction(items, Arrays.copyOf(probabilities, items.size()), Arrays.copyOf(weights, items.size()),
+						Math.max(System.currentTimeMillis(), currentTimestamp));
+				items.clear();
+			}
+
+			@Override
+			protected void weightedItem(T item, double probability, double weight) {
+				if (items.size() == probabilities.length) {
+					probabilities = Arrays.copyOf(probabilities, items.size() * 2);
+					weights = Arrays.copyOf(weights, items.size() * 2);
+				}
+				probabilities[items.size()] = probability;
+				weights[items.size()] = weight;
+				items.add(item);
+			}
+		});
+	}
+
+	/**
+	 * Advance the time of a time-based window without adding a transaction: the transactions that
+	 * expire are removed and the PMFIs are evaluated if the window changed.
+	 *
+	 * @param timestamp the current time
+	 */
+	public void advanceTime(long timestamp) {
+		if (timestamp < currentTimestamp) {
+			throw new IllegalArgumentException("The time cannot go back: " + timestamp + " < " + currentTimestamp);
+		}
+		currentTimestamp = timestamp;
+		if (expire(timestamp)) {
+			evaluate();
+		}
+	}
+
+	/**
+	 * Remove the transactions of a time-based window that expire at a given time.
+	 *
+	 * @param timestamp the time
+	 * @return true if transactions were removed, otherwise false
+	 */
+	private boolean expire(long timestamp) {
+		boolean removed = false;
+		while (!window.isEmpty() && timestamp - window.peekFirst().timestamp >= windowDuration) {
+			removeOldest();
+			removed = true;
+		}
+		return removed;
+	}
+
+	/**
+	 * Check if this miner has a time-based window.
+	 *
+	 * @return true for a time-based window, false for a count-based window
+	 */
+	private boolean isTimeWindow() {
+		return windowDuration != Long.MAX_VALUE;
+	}
+
+	/**
+	 * Remove the oldest transaction of the window and subtract its supports. Since the subtractions
+	 * accumulate rounding errors, the supports are recomputed from the window once as many transactions
+	 * as the window contains have expired (which keeps the amortized cost of an expiration constant).
+	 */
+	private void removeOldest() {
+		WindowTransaction transaction = window.removeFirst();
+		for (int i = 0; i < transaction.codes.length; i++) {
+			int code = transaction.codes[i];
+			addSupport(code, -transaction.supports[i]);
+			if (--occurrenceCounts[code] == 0) {
+				// the item left the window
+				itemCount--;
+				supports[code] = 0;
+				variances[code] = 0;
+			}
+		}
+		if (++expiredSinceRecount >= Math.max(window.size(), 1024)) {
+			recountSupports();
+		}
+		if (dictionary.size() > 2 * itemCount + 1024) {
+			compactCodes();
+		}
+	}
+
+	/**
+	 * Add a value to the support of an item, and mark the item as changed.
+	 *
+	 * @param code the code of the item
+	 * @param support the value
+	 */
+	private void addSupport(int code, double support) {
+		supports[code] += support;
+		variances[code] = supports[code] * (1 - supports[code]);
+		changedCodes[code] = true;
+	}
+
+	/**
+	 * Make sure that the arrays of the item statistics can hold a given number of items.
+	 *
+	 * @param capacity the number of items
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity > supports.length) {
+			int newCapacity = Math.max(capacity, supports.length * 2);
+			supports = Arrays.copyOf(supports, newCapacity);
+			variances = Arrays.copyOf(variances, newCapacity);
+			occurrenceCounts = Arrays.copyOf(occurrenceCounts, newCapacity);
+			changedCodes = Arrays.copyOf(changedCodes, newCapacity);
+			codesInItemOrder = Arrays.copyOf(codesInItemOrder, newCapacity);
+		}
+	}
+
+	/**
+	 * Insert the code of a new item in the order of the search, after the items that are equal to it.
+	 *
+	 * @param code the code, which is the last code of the dictionary
+	 */
+	private void insertInItemOrder(int code) {
+		T item = dictionary.getItem(code);
+		int low = 0;
+		int high = code;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compareItems(dictionary.getItem(codesInItemOrder[middle]), item) <= 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		System.arraycopy(codesInItemOrder, low, codesInItemOrder, low + 1, code - low);
+		codesInItemOrder[low] = code;
+	}
+
+	/**
+	 * Compare two items by their natural order. The items of different classes are ordered by the names
+	 * of their classes, and the items that are not comparable are equal (they keep their order of arrival).
+	 *
+	 * @param item an item
+	 * @param other another item
+	 * @return a negative number, zero or a positive number if the first item is before, equal to or after the other
+	 */
+	@SuppressWarnings("unchecked")
+	private static int compareItems(Object item, Object other) {
+		if (item.getClass() != other.getClass()) {
+			return item.getClass().getName().compareTo(other.getClass().getName());
+		}
+		return item instanceof Comparable ? ((Comparable<Object>) item).compareTo(other) : 0;
+	}
+
+	/**
+	 * Recompute the supports of the items from the transactions of the window.
+	 */
+	private void recountSupports() {
+		Arrays.fill(supports, 0);
+		for (WindowTransaction transaction : window) {
+			for (int i = 0; i < transaction.codes.length; i++) {
+				supports[transaction.codes[i]] += transaction.supports[i];
+			}
+		}
+		for (int code = 0; code < dictionary.size(); code++) {
+			variances[code] = supports[code] * (1 - supports[code]);
+		}
+		expiredSinceRecount = 0;
+		searchFromScratch = true;
+	}
+
+	/**
+	 * Encode the items of the window with a new dictionary, in the order of the search, so that the
+	 * codes of the items that left the window are reclaimed.
+	 */
+	private void compactCodes() {
+		ItemDictionary<T> newDictionary = new ItemDictionary<>();
+		int[] newCodes = new int[dictionary.size()];
+		double[] newSupports = new double[supports.length];
+		double[] newVariances = new double[variances.length];
+		int[] newOccurrenceCounts = new int[occurrenceCounts.length];
+		for (int i = 0; i < dictionary.size(); i++) {
+			int code = codesInItemOrder[i];
+			if (occurrenceCounts[code] > 0) {
+				int newCode = newDictionary.encode(dictionary.getItem(code));
+				newCodes[code] = newCode;
+				newSupports[newCode] = supports[code];
+				newVariances[newCode] = variances[code];
+				newOccurrenceCounts[newCode] = occurrenceCounts[code];
+				codesInItemOrder[newCode] = newCode;
+			}
+		}
+		for (WindowTransaction transaction : window) {
+			for (int i = 0; i < transaction.codes.length; i++) {
+				transaction.codes[i] = newCodes[transaction.codes[i]];
+			}
+		}
+		dictionary = newDictionary;
+		supports = newSupports;
+		variances = newVariances;
+		occurrenceCounts = newOccurrenceCounts;
+		searchFromScratch = true;
+	}
+
+	/**
+	 * Mine the PMFIs of the window from the item statistics, and send the changes since the previous
+	 * evaluation to the listeners. Only the candidates containing an item whose support changed since
+	 * the previous evaluation are estimated again.
+	 */
+	public void evaluate() {
+		arrivalsSinceEvaluation = 0;
+		evaluationCount++;
+		int[] frequentCodes = new int[itemCount];
+		int frequentCount = 0;
+		for (int i = 0; i < dictionary.size(); i++) {
+			int code = codesInItemOrder[i];
+			if (occurrenceCounts[code] > 0 && supports[code] >= thresholds.getMinSupport()) {
+				frequentCodes[frequentCount++] = code;
+			}
+		}
+		frequentCodes = Arrays.copyOf(frequentCodes, frequentCount);
+
+		SupportEstimator<T> estimator = new SupportEstimator<>(supports, variances, thresholds, cdfTable);
+		MaximalItemsetIndex confirmedItemsets = new MaximalItemsetIndex(dictionary.size());
+		Set<Set<T>> newPMFIs = new HashSet<>();
+		List<Set<T>> addedPMFIs = new ArrayList<>();
+		List<double[]> addedMoments = new ArrayList<>();
+		EstimationSearch.Confirmation confirmation = (itemset, expectation, variance) -> {
+			Set<T> pmfi = itemset.toSet(dictionary);
+			newPMFIs.add(pmfi);
+			if (!PMFIs.contains(pmfi)) {
+				addedPMFIs.add(pmfi);
+				addedMoments.add(new double[]{expectation, variance});
+			}
+		};
+		try {
+			if (searchFromScratch) {
+				search.search(estimator, dictionary.size(), frequentCodes, confirmedItemsets, confirmation);
+			} else {
+				search.update(estimator, dictionary.size(), frequentCodes, changedCodes, confirmedItemsets, confirmation);
+			}
+		} catch (IOException e) {
+			// the confirmation does not write anything
+			throw new UncheckedIOException(e);
+		}
+		Arrays.fill(changedCodes, false);
+		searchFromScratch = false;
+		estimationCount += search.getEstimationCount();
+
+		for (int i = 0; i < addedPMFIs.size(); i++) {
+			for (PMFIListener<T> listener : listeners) {
+				listener.pmfiAdded(Collections.unmodifiableSet(addedPMFIs.get(i)), addedMoments.get(i)[0],
+						addedMoments.get(i)[1], currentTimestamp);
+			}
+		}
+		for (Set<T> pmfi : PMFIs) {
+			if (!newPMFIs.contains(pmfi)) {
+				for (PMFIListener<T> listener : listeners) {
+					listener.pmfiRemoved(Collections.unmodifiableSet(pmfi), currentTimestamp);
+				}
+			}
+		}
+		PMFIs = newPMFIs;
+	}
+
+	/**
+	 * Get the PMFIs of the window at the latest evaluation.
+	 *
+	 * @return an unmodifiable set of PMFIs
+	 */
+	public Set<Set<T>> getPMFIs() {
+		return Collections.unmodifiableSet(PMFIs);
+	}
+
+	/**
+	 * Get the number of transactions in the window.
+	 *
+	 * @return the transaction count
+	 */
+	public int getWindowSize() {
+		return window.size();
+	}
+
+	/**
+	 * Get the number of items in the window.
+	 *
+	 * @return the item count
+	 */
+	public int getItemCount() {
+		return itemCount;
+	}
+
+	/**
+	 * Get the thresholds of this miner and the bounds derived from them.
+	 *
+	 * @return the thresholds
+	 */
+	public MiningThresholds getThresholds() {
+		return thresholds;
+	}
+
+	/**
+	 * Set the number of arrivals between two evaluations of the PMFIs. With an interval larger than 1,
+	 * the events are sent for groups of transactions (evaluate() can also be called at any time).
+	 * An evaluation visits all the candidates kept from the previous evaluation, and estimates the
+	 * candidates containing the items of the transactions that arrived or expired in the meantime, so
+	 * a larger interval reduces the cost per transaction when the transactions share many items.
+	 *
+	 * @param evaluationInterval the number of arrivals (1 by default)
+	 */
+	public void setEvaluationInterval(int evaluationInterval) {
+		if (evaluationInterval < 1) {
+			throw new IllegalArgumentException("The evaluation interval must be at least 1: " + evaluationInterval);
+		}
+		this.evaluationInterval = evaluationInterval;
+	}
+
+	/**
+	 * Set whether the normal CDF used by the FM test is interpolated from a precomputed table.
+	 *
+	 * @param useTable true to use a table (false by default)
+	 */
+	public void setTabulatedCdf(boolean useTable) {
+		this.cdfTable = useTable ? new NormalDistribution.Table() : null;
+		searchFromScratch = true;
+	}
+
+	/**
+	 * Print statistics about the stream.
+	 */
+	public void printStats() {
+		System.out
+				.println("=============  STREAMING APFI-MAX - STATS =============");
+		System.out.println(" Transactions count from stream : " + transactionCount);
+		System.out.println(" Transactions count in window : " + window.size());
+		System.out.println(" Items count in window : " + itemCount);
+		System.out.println(" Evaluations count : " + evaluationCount);
+		System.out.println(" Estimated itemsets count : " + estimationCount);
+		System.out.println(" PMFIs count : " + PMFIs.size());
+		System.out
+				.println("===================================================");
+	}
+}
@@ -0,0 +1,144 @@
+package algorithms;
+
+import pattern.itemset.BitSetItemset;
+import pattern.itemset.ItemStatistics;
+import util.NormalDistribution;
+
+/**
+ * Estimation of the support of itemsets from the statistics of their items, used to decide if an
+ * itemset is probabilistic frequent without scanning the database: the expectation and the variance
+ * of the support of an itemset are derived from the supports of its items, and the FM test compares
+ * them with the thresholds using the normal approximation.
+ * It is shared by the miners confirming candidates (WAPFI_MAX, UFTreeMiner and StreamingWAPFI).
+ *
+ * @param <T> the type of items
+ */
+public class SupportEstimator<T> {
+
+	/** the expected support and the variance of each item, indexed by item code */
+	private final double[] supports;
+	private final double[] variances;
+
+	/** the thresholds and the bounds derived from them */
+	private final MiningThresholds thresholds;
+
+	/** the table used to compute the normal CDF, or null to use the rational approximation */
+	private final NormalDistribution.Table cdfTable;
+
+	/**
+	 * Constructor
+	 *
+	 * @param itemStatistics the statistics of each item
+	 * @param thresholds the thresholds
+	 * @param cdfTable the table used to compute the normal CDF, or null to use the rational approximation
+	 */
+	public SupportEstimator(ItemStatistics<T> itemStatistics, MiningThresholds thresholds, NormalDistribution.Table cdfTable) {
+		this.supports = new double[itemStatistics.size()];
+		this.variances = new double[itemStatistics.size()];
+		for (int code = 0; code < supports.length; code++) {
+			supports[code] = itemStatistics.getSupportOfCode(code);
+			variances[code] = itemStatistics.getVarianceOfCode(code);
+		}
+		this.thresholds = thresholds;
+		this.cdfTable = cdfTable;
+	}
+
+	/**
+	 * Constructor from the statistics of the items indexed by code. The arrays are not copied, so that
+	 * the estimations follow the updates of the statistics (see StreamingWAPFI).
+	 *
+	 * @param supports the expected support of each item
+	 * @param variances the variance support * (1 - support) of each item
+	 * @param thresholds the thresholds
+	 * @param cdfTable the table used to compute the normal CDF, or null to use the rational approximation
+	 */
+	SupportEstimator(double[] supports, double[] variances, MiningThresholds thresholds, NormalDistribution.Table cdfTable) {
+		this.supports = supports;
+		this.variances = variances;
+		this.thresholds = thresholds;
+		this.cdfTable = cdfTable;
+	}
+
+	/**
+	 * Checks if a given itemset is frequent based on estimation using its expected support and variance.
+	 * This method calculates the expectation and variance of the itemset's support and applies the FM test
+	 * to compare them against the minimum support and minimum probability thresholds.
+	 *
+	 * @param itemset the itemset to check for frequency
+	 * @return true if the itemset is estimated to be frequent, false otherwise
+	 */
+	public boolean isFrequentByEstimation(BitSetItemset itemset) {
+		return isFrequentByMoments(getExpectation(itemset), getVariance(itemset));
+	}
+
+	/**
+	 * Checks if an itemset is frequent given the expectation and the variance of its support, with the
+	 * bounds and the FM test of the thresholds (see MiningThresholds.isFrequentByMoments) and the CDF
+	 * of this estimator.
+	 *
+	 * @param expectation the expected support of the itemset
+	 * @param variance the variance of the itemset's support
+	 * @return true if the itemset is estimated to be frequent, false otherwise
+	 */
+	public boolean isFrequentByMoments(double expectation, double variance) {
+		return thresholds.isFrequentByMoments(expectation, variance, cdfTable);
+	}
+
+	/**
+	 * Checks if the expected support of an itemset reaches the lower bound of the expectation of a
+	 * probabilistic frequent itemset (the test used by CGEB to generate candidates).
+	 *
+	 * @param itemset the itemset
+	 * @return true if the itemset may be frequent, false otherwise
+	 */
+	public boolean mayBeFrequent(BitSetItemset itemset) {
+		return thresholds.mayBeFrequent(getExpectation(itemset));
+	}
+
+	/**
+	 * Calculates the expected support of a given itemset based on the item supports in the database.
+	 * This method sums the individual item supports in the itemset, then subtracts the expected support
+	 * of the union of all items (adjusted for itemset size).
+	 *
+	 * @param itemset the itemset for which to calculate expectation
+	 * @return the expected support of the itemset
+	 */
+	public double getExpectation(BitSetItemset itemset) {
+		double expectation = 0.0;
+		for (int code = itemset.nextItem(0); code >= 0; code = itemset.nextItem(code + 1)) {
+			expectation += supports[code];
+		}
+		expectation -= (itemset.cardinality() - 1) * getUnionExpectation(itemset);
+		return expectation;
+	}
+
+	/**
+	 * Calculates the variance of the support for a given itemset based on the item supports in the database.
+	 * This method iterates through each item in the itemset and sums the precomputed product of its
+	 * support and (1 - support) to represent the variance.
+	 *
+	 * @param itemset the itemset for which to calculate variance
+	 * @return the variance of the itemset's support
+	 */
+	public double getVariance(BitSetItemset itemset) {
+		double variance = 0.0;
+		for (int code = itemset.nextItem(0); code >= 0; code = itemset.nextItem(code + 1)) {
+			variance += variances[code];
+		}
+		return variance;
+	}
+
+	/**
+	 * Calculate the union expectation for a given itemset based on the item supports.
+	 *
+	 * @param  itemset the set of items to calculate the union expectation for
+	 * @return the calculated union expectation value
+	 */
+	private double getUnionExpectation(BitSetItemset itemset) {
+		double unionExpectation = 1.0;
+		for (int code = itemset.nextItem(0); code >= 0; code = itemset.nextItem(code + 1)) {
+			unionExpectation *= supports[code];
+		}
+		return unionExpectation;
+	}
+}
@@ -0,0 +1,496 @@
+package algorithms;
+
+import pattern.itemset.BitSetItemset;
+import pattern.itemset.ConcurrentMaximalCollector;
+import pattern.itemset.ItemStatistics;
+import pattern.itemset.MaximalItemsetIndex;
+import pattern.itemset.UFTree;
+import pattern.itemset.UncertainTransaction;
+import util.MemoryLogger;
+import util.NormalDistribution;
+import util.ParallelSupportCounter;
+import util.PoissonBinomial;
+import util.ResultSink;
+import util.TextResultSink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A depth-first miner of probabilistic maximal frequent itemsets (PMFIs), producing the same
+ * PMFIs as WAPFI_MAX with ordered extensions (see {@link WAPFI_MAX#setOrderedExtensions(boolean)}),
+ * without keeping whole levels of candidates in memory.
+ * <br/><br/>
+ * The candidates are explored depth-first in the order of the item codes: a candidate is extended
+ * with the frequent items following its last item, as long as the extensions satisfy the expectation
+ * bound of CGEB. A candidate is confirmed after its extensions, so that all its supersets have been
+ * confirmed before it and a candidate having a confirmed superset is skipped. Only the current path
+ * of the search is kept in memory, in addition to the confirmed PMFIs.
+ * <br/><br/>
+ * In exact mode, the transactions are compressed in a UF-tree, and the probability of a candidate in
+ * each transaction is read from the conditional UF-tree of its prefix. Since the exact frequent
+ * probability is anti-monotone, the extensions of a candidate that is not frequent are not explored.
+ * <br/><br/>
+ * In parallel mode, the branch of each frequent item is explored by a fork-join task, and the branches
+ * of short prefixes are split into subtasks. Since a task cannot know the PMFIs of the other branches,
+ * the PMFIs are merged by a ConcurrentMaximalCollector and written at the end of the search.
+ */
+public class UFTreeMiner<T> {
+
+	List<UncertainTransaction<T>> uncertainDB;
+
+	/** the thresholds and the bounds derived from them */
+	private final MiningThresholds thresholds;
+
+	/** the number of threads used to count the item supports and by the parallel search */
+	int threadCount = 1;
+
+	/** if true, the branches of the search are explored by fork-join tasks */
+	boolean useParallelSearch = false;
+
+	/** the length of the prefixes up to which a branch of the parallel search is split into subtasks */
+	private static final int PARALLEL_DEPTH = 3;
+
+	/** if true, candidates are confirmed with their exact frequent probability instead of the normal approximation */
+	boolean useExactMode = false;
+
+	/** the table used to compute the normal CDF, or null to use the rational approximation */
+	private NormalDistribution.Table cdfTable = null;
+
+	/** the statistics of each item */
+	private ItemStatistics<T> itemStatistics;
+
+	/** the estimation of the support of candidates from the item statistics */
+	private SupportEstimator<T> estimator;
+
+	/** the codes of the frequent items, in increasing order */
+	private int[] frequentCodes;
+
+	/** the PMFIs confirmed during the latest execution */
+	private MaximalItemsetIndex confirmedItemsets;
+
+	/** the PMFIs confirmed by the tasks of the parallel search */
+	private ConcurrentMaximalCollector collector;
+
+	/** the sink receiving the PMFIs, and the list used to decode their items */
+	private ResultSink<T> sink;
+	private final List<T> items = new ArrayList<>();
+
+	/** the number of candidates explored and of PMFIs found */
+	private final AtomicInteger candidateCount = new AtomicInteger();
+	private int pmfiCount;
+
+	/** the maximum depth of the search */
+	private final AtomicInteger maxDepth = new AtomicInteger();
+
+	/** start time of latest execution */
+	protected long startTimestamp;
+
+	/** end time of latest execution */
+	protected long endTimestamp;
+
+	/**
+	 * Constructor
+	 *
+	 * @param uncertainDB the uncertain database
+	 * @param minSupport the minimum support
+	 * @param minProbability the minimum probability
+	 */
+	public UFTreeMiner(List<UncertainTransaction<T>> uncertainDB, double minSupport, double minProbability) {
+		this.uncertainDB = uncertainDB;
+		this.thresholds = new MiningThresholds(minSupport, minProbability);
+	}
+
+	/**
+	 * Run the algorithm and write the PMFIs to a file, in the format of WAPFI_MAX.
+	 *
+	 * @param output the path of the output file
+	 * @throws IOException If an I/O error occurs while writing to the file.
+	 */
+	public void runAlgorithm(String output) throws IOException {
+		try (ResultSink<T> fileSink = TextResultSink.bracketed(output)) {
+			runAlgorithm(fileSink);
+		}
+	}
+
+	/**
+	 * Run the algorithm, writing each PMFI to a sink as soon as it is confirmed.
+	 *
+	 * @param sink the sink receiving the PMFIs and information about the execution (it is not closed)
+	 * @throws IOException If an I/O error occurs while writing to the sink.
+	 */
+	public void runAlgorithm(ResultSink<T> sink) throws IOException {
+		MemoryLogger.getInstance().reset();
+		startTimestamp = System.currentTimeMillis();
+		candidateCount.set(0);
+		pmfiCount = 0;
+		maxDepth.set(0);
+		this.sink = sink;
+
+		// the item statistics are computed as by CGEB, so that the items have the same codes
+		WCGEB<T> wcgeb = new WCGEB<>(uncertainDB, thresholds);
+		wcgeb.setThreadCount(threadCount);
+		itemStatistics = wcgeb.computeItemStatistics();
+		estimator = new SupportEstimator<>(itemStatistics, thresholds, cdfTable);
+		frequentCodes = new int[itemStatistics.size()];
+		int frequentCount = 0;
+		for (int code = 0; code < itemStatistics.size(); code++) {
+			if (itemStatistics.getSupportOfCode(code) >= thresholds.getMinSupport()) {
+				frequentCodes[frequentCount++] = code;
+			}
+		}
+		frequentCodes = Arrays.copyOf(frequentCodes, frequentCount);
+		confirmedItemsets = new MaximalItemsetIndex(itemStatistics.size());
+
+		sink.writeInfo("Transaction count: " + wcgeb.getTransactionCount());
+		sink.writeInfo("minPro: " + thresholds.getMinProbability());
+		sink.writeInfo("minSup: " + thresholds.getMinSupport());
+		sink.writeInfo("PMFIs:");
+
+		UFTree tree = useExactMode ? buildTree() : null;
+		if (useParallelSearch) {
+			searchInParallel(tree);
+		} else if (useExactMode) {
+			search(null, 0, tree, 1);
+		} else {
+			// the same search without UF-tree, shared with StreamingWAPFI
+			EstimationSearch search = new EstimationSearch(thresholds, false);
+			search.search(estimator, itemStatistics.size(), frequentCodes, confirmedItemsets,
+					(itemset, expectation, variance) -> write(itemset));
+			candidateCount.addAndGet(search.getCandidateCount());
+			maxDepth.accumulateAndGet(search.getMaxDepth(), Math::max);
+		}
+
+		MemoryLogger.getInstance().checkMemory();
+		endTimestamp = System.currentTimeMillis();
+		sink.writeInfo("Running time: " + (endTimestamp - startTimestamp) + " ms");
+		sink.writeInfo("Maximum memory usage : " + MemoryLogger.getInstance().getMaxMemory() + " mb");
+		this.sink = null;
+		confirmedItemsets = null;
+		collector = null;
+	}
+
+	/**
+	 * Build the UF-tree of the database, where the probability of an item in a transaction is p * w.
+	 * Only the frequent items are kept, and if an item appears several times in a transaction,
+	 * only its first occurrence is kept.
+	 *
+	 * @return the tree
+	 */
+	private UFTree buildTree() {
+		UFTree tree = new UFTree(itemStatistics.size());
+		int[] codes = new int[16];
+		double[] probabilities = new double[16];
+		int length = 0;
+		for (int i = 0; i < uncertainDB.size(); i++) {
+			UncertainTransaction<T> transaction = uncertainDB.get(i);
+			for (T item : transaction.items) {
+				int code = itemStatistics.getDictionary().getCode(item);
+				if (itemStatistics.getSupportOfCode(code) < thresholds.getMinSupport() || contains(codes, length, code)) {
+					continue;
+				}
+				if (length == codes.length) {
+					codes = Arrays.copyOf(codes, length * 2);
+					probabilities = Arrays.copyOf(probabilities, length * 2);
+				}
+				codes[length] = code;
+				probabilities[length] = transaction.probability * transaction.weight;
+				length++;
+			}
+			// insert the transaction at the end of its line
+			if (i + 1 == uncertainDB.size() || uncertainDB.get(i + 1).tid != transaction.tid) {
+				sortByDecreasingCode(codes, probabilities, length);
+				tree.insert(codes, probabilities, length, 1, 1);
+				length = 0;
+			}
+		}
+		return tree;
+	}
+
+	/**
+	 * Check if an array contains a code.
+	 *
+	 * @param codes the array
+	 * @param length the number of codes in the array
+	 * @param code the code
+	 * @return true if yes, otherwise false
+	 */
+	private static boolean contains(int[] codes, int length, int code) {
+		for (int i = 0; i < length; i++) {
+			if (codes[i] == code) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sort the items of a transaction by decreasing code (insertion sort, since transactions are short).
+	 *
+	 * @param codes the item codes
+	 * @param probabilities the probability of each item
+	 * @param length the number of items
+	 */
+	private static void sortByDecreasingCode(int[] codes, double[] probabilities, int length) {
+		for (int i = 1; i < length; i++) {
+			int code = codes[i];
+			double probability = probabilities[i];
+			int j = i - 1;
+			while (j >= 0 && codes[j] < code) {
+				codes[j + 1] = codes[j];
+				probabilities[j + 1] = probabilities[j];
+				j--;
+			}
+			codes[j + 1] = code;
+			probabilities[j + 1] = probability;
+		}
+	}
+
+	/**
+	 * Explore the extensions of a prefix, depth-first, in exact mode (the estimation mode uses EstimationSearch).
+	 *
+	 * @param prefix the prefix, or null for the empty itemset
+	 * @param start the position in frequentCodes of the first item that can extend the prefix
+	 * @param tree the conditional UF-tree of the prefix (exact mode only)
+	 * @param depth the length of the extensions
+	 * @throws IOException If an I/O error occurs while writing to the sink.
+	 */
+	private void search(BitSetItemset prefix, int start, UFTree tree, int depth) throws IOException {
+		maxDepth.accumulateAndGet(depth, Math::max);
+		for (int i = start; i < frequentCodes.length; i++) {
+			int code = frequentCodes[i];
+			BitSetItemset candidate = prefix == null ? BitSetItemset.of(itemStatistics.size(), code) : prefix.with(code);
+			if (!isPromising(prefix, candidate, code, tree)) {
+				continue;
+			}
+			search(candidate, i + 1, useExactMode ? tree.conditionalTree(code) : null, depth + 1);
+			if (!confirmedItemsets.containsSupersetOf(candidate) && isFrequent(candidate)) {
+				confirm(candidate);
+			}
+		}
+		if (depth % 16 == 0) {
+			MemoryLogger.getInstance().checkMemory();
+		}
+	}
+
+	/**
+	 * Check if a candidate has to be explored: its expected support reaches the bound of CGEB and,
+	 * in exact mode, it is frequent (otherwise, no superset of the candidate can be frequent).
+	 *
+	 * @param prefix the prefix extended by the candidate, or null for the empty itemset
+	 * @param candidate the candidate
+	 * @param code the item extending the prefix
+	 * @param tree the conditional UF-tree of the prefix (exact mode only)
+	 * @return true if the candidate has to be explored, otherwise false
+	 */
+	private boolean isPromising(BitSetItemset prefix, BitSetItemset candidate, int code, UFTree tree) {
+		// the frequent single items are always candidates, as in CGEB
+		if (prefix != null && !estimator.mayBeFrequent(candidate)) {
+			return false;
+		}
+		candidateCount.incrementAndGet();
+		if (useExactMode) {
+			double[] probabilities = tree.getProbabilities(code);
+			return PoissonBinomial.isFrequent(probabilities, probabilities.length,
+					thresholds.getMinSupportCount(), thresholds.getMinProbability());
+		}
+		return true;
+	}
+
+	/**
+	 * Check if an explored candidate is a PMFI, knowing that in exact mode only frequent candidates
+	 * are explored.
+	 *
+	 * @param candidate the candidate
+	 * @return true if the candidate is frequent, otherwise false
+	 */
+	private boolean isFrequent(BitSetItemset candidate) {
+		return useExactMode || estimator.isFrequentByEstimation(candidate);
+	}
+
+	/**
+	 * Explore the branches of the frequent items in parallel, then write the PMFIs to the sink.
+	 *
+	 * @param tree the UF-tree of the database (exact mode only)
+	 * @throws IOException If an I/O error occurs while writing to the sink.
+	 */
+	private void searchInParallel(UFTree tree) throws IOException {
+		collector = new ConcurrentMaximalCollector(itemStatistics.size());
+		ForkJoinPool pool = ParallelSupportCounter.getPool(threadCount);
+		List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+		for (int i = 0; i < frequentCodes.length; i++) {
+			int code = frequentCodes[i];
+			BitSetItemset candidate = BitSetItemset.of(itemStatistics.size(), code);
+			if (isPromising(null, candidate, code, tree)) {
+				tasks.add(pool.submit(new SearchTask(candidate, i, tree, 1)));
+			}
+		}
+		for (ForkJoinTask<Void> task : tasks) {
+			task.join();
+		}
+		// the order in which the tasks collect the itemsets varies from run to run, so the PMFIs are
+		// sorted by length, then by codes, to always be written in the same order
+		List<BitSetItemset> itemsets = collector.getItemsets();
+		itemsets.sort(Comparator.comparingInt(BitSetItemset::cardinality)
+				.thenComparing(BitSetItemset::toArray, Arrays::compare));
+		for (BitSetItemset itemset : itemsets) {
+			confirm(itemset);
+		}
+	}
+
+	/**
+	 * A task exploring the extensions of a candidate, then confirming the candidate. The branches of
+	 * short candidates are split into subtasks, which idle threads can steal; the other subtasks are
+	 * run in the current thread.
+	 */
+	@SuppressWarnings("serial")
+	private class SearchTask extends RecursiveAction {
+		private final BitSetItemset candidate;
+		private final int position;
+		private final UFTree parentTree;
+		private final int depth;
+
+		/**
+		 * Constructor
+		 *
+		 * @param candidate the candidate
+		 * @param position the position in frequentCodes of the last item of the candidate
+		 * @param parentTree the conditional UF-tree of the prefix of the candidate (exact mode only)
+		 * @param depth the length of the candidate
+		 */
+		SearchTask(BitSetItemset candidate, int position, UFTree parentTree, int depth) {
+			this.candidate = candidate;
+			this.position = position;
+			this.parentTree = parentTree;
+			this.depth = depth;
+		}
+
+		@Override
+		protected void compute() {
+			maxDepth.accumulateAndGet(depth + 1, Math::max);
+			// the conditional tree is only built when the task runs, to bound the memory
+			UFTree tree = useExactMode ? parentTree.conditionalTree(frequentCodes[position]) : null;
+			List<SearchTask> subtasks = new ArrayList<>();
+			for (int i = position + 1; i < frequentCodes.length; i++) {
+				int code = frequentCodes[i];
+				BitSetItemset extension = candidate.with(code);
+				if (isPromising(candidate, extension, code, tree)) {
+					subtasks.add(new SearchTask(extension, i, tree, depth + 1));
+				}
+			}
+			if (depth < PARALLEL_DEPTH) {
+				invokeAll(subtasks);
+			} else {
+				for (SearchTask subtask : subtasks) {
+					subtask.invoke();
+				}
+			}
+			if (!collector.containsSupersetOf(candidate) && isFrequent(candidate)) {
+				collector.add(candidate);
+			}
+		}
+	}
+
+	/**
+	 * Record a PMFI and write it to the sink.
+	 *
+	 * @param itemset the PMFI
+	 * @throws IOException If an I/O error occurs while writing to the sink.
+	 */
+	private void confirm(BitSetItemset itemset) throws IOException {
+		confirmedItemsets.add(itemset);
+		write(itemset);
+	}
+
+	/**
+	 * Write a PMFI to the sink.
+	 *
+	 * @param itemset the PMFI
+	 * @throws IOException If an I/O error occurs while writing to the sink.
+	 */
+	private void write(BitSetItemset itemset) throws IOException {
+		pmfiCount++;
+		items.clear();
+		for (int code = itemset.nextItem(0); code >= 0; code = itemset.nextItem(code + 1)) {
+			items.add(itemStatistics.getDictionary().getItem(code));
+		}
+		sink.writePattern(items, Double.NaN);
+	}
+
+	/**
+	 * Get the thresholds of this miner and the bounds derived from them.
+	 *
+	 * @return the thresholds
+	 */
+	public MiningThresholds getThresholds() {
+		return thresholds;
+	}
+
+	/**
+	 * Get the number of PMFIs found by the latest execution.
+	 *
+	 * @return the PMFI count
+	 */
+	public int getPMFICount() {
+		return pmfiCount;
+	}
+
+	/**
+	 * Set the number of threads used to count the item supports and by the parallel search.
+	 *
+	 * @param threadCount the number of threads (1 by default)
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Set whether the branches of the search are explored in parallel by fork-join tasks, on
+	 * threadCount threads. The PMFIs are then written at the end of the search.
+	 *
+	 * @param useParallelSearch true to use the parallel search (false by default)
+	 */
+	public void setParallelSearch(boolean useParallelSearch) {
+		this.useParallelSearch = useParallelSearch;
+	}
+
+	/**
+	 * Set whether candidates are confirmed with their exact frequent probability, computed from a
+	 * UF-tree, rather than with the normal approximation (FM).
+	 *
+	 * @param useExactMode true to use the exact mode (false by default)
+	 */
+	public void setExactMode(boolean useExactMode) {
+		this.useExactMode = useExactMode;
+	}
+
+	/**
+	 * Set whether the normal CDF used by the FM test is interpolated from a precomputed table.
+	 *
+	 * @param useTable true to use a table (false by default)
+	 */
+	public void setTabulatedCdf(boolean useTable) {
+		this.cdfTable = useTable ? new NormalDistribution.Table() : null;
+	}
+
+	/**
+	 * Print statistics about the latest execution.
+	 */
+	public void printStats() {
+		System.out
+				.println("=============  UF-TREE MAX - STATS =============");
+		System.out.println(" Candidates count : " + candidateCount.get());
+		System.out.println(" Maximum search depth : " + maxDepth.get());
+		System.out.println(" PMFIs count : " + pmfiCount);
+		System.out.println(" Total time ~ " + (endTimestamp - startTimestamp) + " ms");
+		System.out
+				.println("===================================================");
+	}
+}
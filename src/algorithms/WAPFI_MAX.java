@@ -1,20 +1,72 @@
 package algorithms;
 
+import pattern.itemset.BitSetItemset;
+import pattern.itemset.ColumnarDatabase;
+import pattern.itemset.ItemStatistics;
+import pattern.itemset.MaximalItemsetIndex;
+import pattern.itemset.TidList;
+import pattern.itemset.TransactionCursor;
 import pattern.itemset.UncertainTransaction;
+import pattern.itemset.WeightedTransaction;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.*;
 import util.MemoryLogger;
+import util.NormalDistribution;
+import util.PoissonBinomial;
+import util.ResultSink;
+import util.TextResultSink;
 
 public class WAPFI_MAX<T> {
 
+	/** the uncertain transactions given to the constructor, or null if the database has weighted transactions */
 	List<UncertainTransaction<T>> uncertainDB;
+
+	/** the transactions of the database, one per line, or null if the database is columnar */
+	List<WeightedTransaction<T>> database;
+
+	/** the columnar database, read with cursors, or null if the database is a list of transactions */
+	ColumnarDatabase columns;
+
+	/** the number of uncertain transactions already grouped into weighted transactions */
+	private int groupedTransactionCount = 0;
 	double minSupport;
 	double minProbability;
+
+	/** the thresholds and the bounds derived from them, shared with CGEB */
+	private final MiningThresholds thresholds;
+
+	/** the number of threads used by CGEB to count the item supports */
+	int threadCount = 1;
+
+	/** if true, CGEB generates each candidate once, from its prefix (see WCGEB.setOrderedExtensions) */
+	boolean useOrderedExtensions = false;
+
+	/** if true, CGEB explores the branch of each frequent item in parallel (see WCGEB.setParallelSearch) */
+	boolean useParallelSearch = false;
 	public Set<Set<T>> PMFIs;
 
+	/** the statistics of each item, shared by the candidate generation phase */
+	private ItemStatistics<T> itemStatistics;
+
+	/** if true, candidates are confirmed with their exact frequent probability instead of the normal approximation */
+	boolean useExactMode = false;
+
+	/** the table used to compute the normal CDF, or null to use the rational approximation */
+	private NormalDistribution.Table cdfTable = null;
+
+	/** the estimation of the support of candidates from the item statistics */
+	private SupportEstimator<T> estimator;
+
+	/** if true, the item statistics are kept to only scan the appended transactions at the next execution */
+	boolean useIncrementalMode = false;
+
+	/** the number of transactions the item statistics were computed from (incremental mode) */
+	private int processedTransactionCount = 0;
+
+	/** the tid-list of each item code, where the probability of an item in a transaction is p * w (exact mode) */
+	private TidList[] tidLists;
+
 
 	/** start time of latest execution */
 	protected long startTimestamp;
@@ -25,10 +77,56 @@ public class WAPFI_MAX<T> {
 	/**  the number of itemsets found */
 	private int itemsetCount;
 
+	/**
+	 * Constructor for a database of uncertain transactions, which are grouped by tid into weighted
+	 * transactions at each execution. Uncertain transactions appended to the list between two
+	 * executions are grouped at the next one.
+	 *
+	 * @param uncertainDB the uncertain transactions
+	 * @param minSupport the minimum expected support
+	 * @param minProbability the minimum probability
+	 */
 	public WAPFI_MAX(List<UncertainTransaction<T>> uncertainDB, double minSupport, double minProbability) {
+		this(new MiningThresholds(minSupport, minProbability));
 		this.uncertainDB = uncertainDB;
-		this.minSupport = minSupport;
-		this.minProbability = minProbability;
+		this.database = new ArrayList<>();
+	}
+
+	/**
+	 * Create a miner for a database of weighted transactions, where each transaction keeps the items of a line.
+	 *
+	 * @param database the transactions
+	 * @param minSupport the minimum expected support
+	 * @param minProbability the minimum probability
+	 * @return the miner
+	 */
+	public static <T> WAPFI_MAX<T> forTransactions(List<WeightedTransaction<T>> database, double minSupport,
+			double minProbability) {
+		WAPFI_MAX<T> wapfi = new WAPFI_MAX<>(new MiningThresholds(minSupport, minProbability));
+		wapfi.database = database;
+		return wapfi;
+	}
+
+	/**
+	 * Create a miner for a columnar database, whose transactions are read with cursors rather than
+	 * stored as objects, for example an OffHeapUncertainDatabase or a mapped BinaryUncertainDatabase.
+	 * The items of the database must be of type T.
+	 *
+	 * @param columns the database
+	 * @param minSupport the minimum expected support
+	 * @param minProbability the minimum probability
+	 * @return the miner
+	 */
+	public static <T> WAPFI_MAX<T> forColumns(ColumnarDatabase columns, double minSupport, double minProbability) {
+		WAPFI_MAX<T> wapfi = new WAPFI_MAX<>(new MiningThresholds(minSupport, minProbability));
+		wapfi.columns = columns;
+		return wapfi;
+	}
+
+	private WAPFI_MAX(MiningThresholds thresholds) {
+		this.minSupport = thresholds.getMinSupport();
+		this.minProbability = thresholds.getMinProbability();
+		this.thresholds = thresholds;
 		this.PMFIs = new HashSet<>();
 	}
 
@@ -36,185 +134,297 @@ public class WAPFI_MAX<T> {
 	 * Runs the APFI-MAX algorithm to mine frequent multiple-itemsets from the provided uncertain database.
 	 * This method performs candidate generation, estimation, and confirmation steps to identify frequent itemsets
 	 * satisfying the minimum support and minimum probability thresholds.
+	 * The parameters are written at the beginning of the output file, followed by the PMFIs as they are
+	 * confirmed, and by the running time and memory usage.
+	 *
+	 * @param output the path of the output file
+	 * @throws IOException If an I/O error occurs while writing to the file.
 	 */
 	public void runAPFI_MAX(String output) throws IOException {
-		WCGEB<T> wcgeb = new WCGEB<>(uncertainDB, minSupport, minProbability);
-		Set<Set<T>> candidates = wcgeb.generateCandidates();
+		try (ResultSink<T> sink = TextResultSink.bracketed(output)) {
+			runAPFI_MAX(sink);
+		}
+	}
+
+	/**
+	 * Runs the APFI-MAX algorithm, writing each PMFI to a sink as soon as it is confirmed.
+	 *
+	 * @param sink the sink receiving the PMFIs and information about the execution (it is not closed)
+	 * @throws IOException If an I/O error occurs while writing to the sink.
+	 */
+	public void runAPFI_MAX(ResultSink<T> sink) throws IOException {
+		if (uncertainDB != null) {
+			groupUncertainTransactions();
+		}
+		WCGEB<T> wcgeb = columns != null ? WCGEB.forColumns(columns, thresholds) : WCGEB.forTransactions(database, thresholds);
+		wcgeb.setThreadCount(threadCount);
+		wcgeb.setOrderedExtensions(useOrderedExtensions);
+		wcgeb.setParallelSearch(useParallelSearch);
+		if (useIncrementalMode && itemStatistics != null) {
+			wcgeb.setPreviousItemStatistics(itemStatistics, processedTransactionCount);
+		}
+		// the PMFIs of a previous execution may no longer be maximal
+		PMFIs = new HashSet<>();
+		Set<BitSetItemset> candidates = wcgeb.generateCandidateItemsets();
+		// the item statistics are computed once by CGEB and reused for every candidate
+		itemStatistics = wcgeb.getItemStatistics();
+		processedTransactionCount = wcgeb.getTransactionCount();
+		estimator = new SupportEstimator<>(itemStatistics, thresholds, cdfTable);
+		if (useExactMode) {
+			tidLists = buildTidLists();
+		}
 		int itemsetCount = wcgeb.getItemsetCount(); // Lấy số lượng itemset từ CGEB
 		int transactionCount = wcgeb.getTransactionCount(); // Lấy số lượng giao dịch từ CGEB
 		wcgeb.printStats();
 		MemoryLogger.getInstance().reset();
 		startTimestamp = System.currentTimeMillis();
 
-		List<Set<T>> frequentItemsets = new ArrayList<>();
-		List<Set<T>> candidatesOfLength = new ArrayList<>();
-
-		// Top-down confirmation
-		for (int length = candidates.size(); length > 0; length--) {
-			for (Set<T> candidate : candidates) {
-				if (candidate.size() == length) {
-					candidatesOfLength.add(candidate);
-				}
-			}
-
-			for (Set<T> candidate : candidatesOfLength) {
-				if (isFrequentByEstimation(candidate)) {
-					frequentItemsets.add(candidate);
-					PMFIs.add(candidate);
-					for (Set<T> subset : frequentItemsets) {
-						if (subset.size() == length - 1 && candidate.containsAll(subset)) {
-							frequentItemsets.remove(subset);
-						}
+		sink.writeInfo("Itemset count: " + itemsetCount);
+		sink.writeInfo("Transaction count: " + transactionCount);
+		sink.writeInfo("minPro: " + this.minProbability);
+		sink.writeInfo("minSup: " + this.minSupport);
+		sink.writeInfo("PMFIs:");
+
+		// the items of the PMFI written to the sink (reused for each PMFI)
+		List<T> items = new ArrayList<>();
+
+		// Top-down confirmation: the candidates are grouped by length once, and the longest ones
+		// are checked first. A candidate having a confirmed superset is not maximal, so it is
+		// skipped without the probabilistic test.
+		List<List<BitSetItemset>> candidatesByLength = groupByLength(candidates);
+		MaximalItemsetIndex confirmedItemsets = new MaximalItemsetIndex(itemStatistics.size());
+		for (int length = candidatesByLength.size() - 1; length > 0; length--) {
+			for (BitSetItemset candidate : candidatesByLength.get(length)) {
+				if (!confirmedItemsets.containsSupersetOf(candidate) && isFrequent(candidate)) {
+					// candidates of the same length are not supersets of each other, so the
+					// candidate can be indexed before the other candidates of this length are checked
+					confirmedItemsets.add(candidate);
+					if (PMFIs.add(candidate.toSet(itemStatistics.getDictionary()))) {
+						writePMFI(sink, candidate, items);
 					}
 				}
 			}
-
-			candidatesOfLength.clear();
 		}
 		endTimestamp = System.currentTimeMillis();
 		MemoryLogger.getInstance().checkMemory();
-		writePMFIsToFile(output, itemsetCount, transactionCount);
+		tidLists = null;
+		sink.writeInfo("Running time: " + (endTimestamp - startTimestamp)  + " ms");
+		sink.writeInfo("Maximum memory usage : " + MemoryLogger.getInstance().getMaxMemory() + " mb");
 	}
 
 	/**
-	 * Write PMFIs and timestamp to a file.
+	 * Group the uncertain transactions appended since the previous execution into weighted transactions.
+	 * If the list of uncertain transactions has been shortened, all of them are grouped again.
+	 */
+	private void groupUncertainTransactions() {
+		if (uncertainDB.size() < groupedTransactionCount) {
+			database.clear();
+			groupedTransactionCount = 0;
+			itemStatistics = null;
+			processedTransactionCount = 0;
+		}
+		WeightedTransaction.addUncertainTransactions(uncertainDB, groupedTransactionCount, database);
+		groupedTransactionCount = uncertainDB.size();
+	}
+
+	/**
+	 * Group candidates by length.
 	 *
-	 * @param outputFilename The name of the file to write to.
-	 * @throws IOException If an I/O error occurs while writing to the file.
+	 * @param candidates the candidates
+	 * @return a list where the element at index k is the list of candidates of length k
 	 */
-	private void writePMFIsToFile(String outputFilename, int itemsetCount, int transactionCount) throws IOException {
-		BufferedWriter writer = new BufferedWriter(new FileWriter(outputFilename));
-		writer.write("Running time: " + (endTimestamp - startTimestamp)  + " ms\n");
-		writer.write("Maximum memory usage : " + MemoryLogger.getInstance().getMaxMemory() + " mb\n");
-		writer.write("Itemset count: " + itemsetCount + "\n");
-		writer.write("Transaction count: " + transactionCount + "\n");
-		writer.write("minPro: " + this.minProbability + "\n");
-		writer.write("minSup: " + this.minSupport + "\n");
-		writer.write("PMFIs:\n");
-		for (Set<T> itemset : PMFIs) {
-			writer.write(itemset.toString() + "\n");
+	private List<List<BitSetItemset>> groupByLength(Set<BitSetItemset> candidates) {
+		List<List<BitSetItemset>> candidatesByLength = new ArrayList<>();
+		for (BitSetItemset candidate : candidates) {
+			while (candidatesByLength.size() <= candidate.cardinality()) {
+				candidatesByLength.add(new ArrayList<>());
+			}
+			candidatesByLength.get(candidate.cardinality()).add(candidate);
 		}
-		writer.close();
+		return candidatesByLength;
 	}
 
 	/**
-	 * Checks if a given itemset is frequent based on estimation using its expected support and variance.
-	 * This method calculates the expectation and variance of the itemset's support and applies the FM test
-	 * to compare them against the minimum support and minimum probability thresholds.
+	 * Write a PMFI to a sink.
 	 *
-	 * @param itemset the itemset to check for frequency
-	 * @return true if the itemset is estimated to be frequent, false otherwise
+	 * @param sink the sink
+	 * @param itemset the PMFI
+	 * @param items a list used to decode the items of the PMFI
+	 * @throws IOException If an I/O error occurs while writing to the sink.
 	 */
-	boolean isFrequentByEstimation(Set<T> itemset) {
-		Map<T, Double> itemSupports = getItemSupports();
-		double expectation = getExpectation(itemset, itemSupports);
-		double variance = getVariance(itemset, itemSupports);
-		double lowerBound = getLowerBoundExpectation(minSupport, minProbability);
+	private void writePMFI(ResultSink<T> sink, BitSetItemset itemset, List<T> items) throws IOException {
+		items.clear();
+		for (int code = itemset.nextItem(0); code >= 0; code = itemset.nextItem(code + 1)) {
+			items.add(itemStatistics.getDictionary().getItem(code));
+		}
+		sink.writePattern(items, Double.NaN);
+	}
 
-		return expectation >= lowerBound && FM(itemset, minSupport, minProbability, expectation, variance);
+	/**
+	 * Checks if a candidate is a probabilistic frequent itemset, using the exact frequent probability
+	 * in exact mode and the estimation by the normal approximation otherwise.
+	 *
+	 * @param itemset the itemset to check for frequency
+	 * @return true if the itemset is frequent, false otherwise
+	 */
+	private boolean isFrequent(BitSetItemset itemset) {
+		return useExactMode ? isFrequentByExactProbability(itemset) : estimator.isFrequentByEstimation(itemset);
 	}
 
 	/**
-	 * Calculates the support for each item in the uncertain database.
-	 * This method iterates through all transactions and sums the probabilities of each item across transactions.
+	 * Checks if a given itemset is frequent using its exact frequent probability P(sup >= minSupport),
+	 * where sup is the number of transactions containing the itemset and the probability of the itemset
+	 * in a transaction is the product of the values p * w of its items. The minimum support is rounded up
+	 * to a number of transactions.
 	 *
-	 * @return a map where keys are items and values are their corresponding total support (sum of probabilities)
+	 * @param itemset the itemset to check for frequency
+	 * @return true if the frequent probability of the itemset is at least the minimum probability
 	 */
-	private Map<T, Double> getItemSupports() {
-		Map<T, Double> supports = new HashMap<>();
-		for (UncertainTransaction<T> transaction : uncertainDB) {
-			for (T item : transaction.items) {
-				supports.put(item, supports.getOrDefault(item, 0.0) + transaction.probability * transaction.weight);
-			}
+	boolean isFrequentByExactProbability(BitSetItemset itemset) {
+		TidList tidList = null;
+		for (int code = itemset.nextItem(0); code >= 0; code = itemset.nextItem(code + 1)) {
+			tidList = tidList == null ? tidLists[code] : tidList.intersect(tidLists[code]);
+		}
+		if (tidList == null) {
+			return true;
 		}
-		return supports;
+		double[] probabilities = new double[tidList.size()];
+		for (int i = 0; i < probabilities.length; i++) {
+			probabilities[i] = tidList.getProbability(i);
+		}
+		return PoissonBinomial.isFrequent(probabilities, probabilities.length, thresholds.getMinSupportCount(), minProbability);
 	}
 
 	/**
-	 * Calculates the expected support of a given itemset based on the item supports in the database.
-	 * This method sums the individual item supports in the itemset, then subtracts the expected support
-	 * of the union of all items (adjusted for itemset size).
+	 * Build the tid-list of each item, indexed by the item codes of the item statistics.
+	 * If an item appears several times in a transaction, only its first occurrence is kept.
 	 *
-	 * @param itemset the itemset for which to calculate expectation
-	 * @param itemSupports a map containing the support for each item
-	 * @return the expected support of the itemset
+	 * @return the tid-lists
 	 */
-	private double getExpectation(Set<T> itemset, Map<T, Double> itemSupports) {
-		double expectation = 0.0;
-		for (T item : itemset) {
-			expectation += itemSupports.get(item);
+	private TidList[] buildTidLists() {
+		TidList[] tidLists = new TidList[itemStatistics.size()];
+		for (int code = 0; code < tidLists.length; code++) {
+			tidLists[code] = new TidList();
+		}
+		if (columns != null) {
+			addColumnsToTidLists(tidLists);
+		} else {
+			for (WeightedTransaction<T> transaction : database) {
+				for (int i = 0; i < transaction.size(); i++) {
+					TidList tidList = tidLists[itemStatistics.getDictionary().getCode(transaction.getItem(i))];
+					if (tidList.getLastTid() != transaction.getTid()) {
+						tidList.add(transaction.getTid(), transaction.getSupport(i));
+					}
+				}
+			}
 		}
-		expectation -= (itemset.size() - 1) * getUnionExpectation(itemset, itemSupports);
-		return expectation;
+		for (TidList tidList : tidLists) {
+			tidList.trimToSize();
+		}
+		return tidLists;
 	}
 
 	/**
-	 * Calculates the variance of the support for a given itemset based on the item supports in the database.
-	 * This method iterates through each item in the itemset, calculates the product of its support and
-	 * (1 - support), and sums these values to represent the variance.
+	 * Add the item occurrences of the columnar database to the tid-lists of the items, reading the
+	 * transactions with a cursor. Occurrences without a weight are ignored.
 	 *
-	 * @param itemset the itemset for which to calculate variance
-	 * @param itemSupports a map containing the support for each item
-	 * @return the variance of the itemset's support
+	 * @param tidLists the tid-lists, indexed by the item codes of the item statistics
 	 */
-	private double getVariance(Set<T> itemset, Map<T, Double> itemSupports) {
-		double variance = 0.0;
-		for (T item : itemset) {
-			variance += itemSupports.get(item) * (1 - itemSupports.get(item));
+	@SuppressWarnings("unchecked")
+	private void addColumnsToTidLists(TidList[] tidLists) {
+		// the code of each item of the database in the item statistics
+		int[] codes = new int[columns.getItemCount()];
+		for (int code = 0; code < codes.length; code++) {
+			codes[code] = itemStatistics.getDictionary().getCode((T) columns.getItem(code));
+		}
+		TransactionCursor cursor = columns.cursor(0, columns.getTransactionCount());
+		while (cursor.next()) {
+			for (int i = 0; i < cursor.size(); i++) {
+				double weight = cursor.getWeight(i);
+				if (!Double.isNaN(weight)) {
+					TidList tidList = tidLists[codes[cursor.getItemCode(i)]];
+					if (tidList.getLastTid() != cursor.getTid()) {
+						tidList.add(cursor.getTid(), cursor.getProbability(i) * weight);
+					}
+				}
+			}
 		}
-		return variance;
 	}
 
 	/**
-	 * Calculate the union expectation for a given itemset based on the item supports.
+	 * Get the thresholds of this miner and the bounds derived from them.
 	 *
-	 * @param  itemset      the set of items to calculate the union expectation for
-	 * @param  itemSupports a map containing items as keys and their supports as values
-	 * @return the calculated union expectation value
+	 * @return the thresholds
 	 */
-	private double getUnionExpectation(Set<T> itemset, Map<T, Double> itemSupports) {
-		double unionExpectation = 1.0;
-		for (T item : itemset) {
-			unionExpectation *= itemSupports.get(item);
-		}
-		return unionExpectation;
+	public MiningThresholds getThresholds() {
+		return thresholds;
 	}
 
-	private double getLowerBoundExpectation(double minSupport, double minProbability) {
-		return 2 * minSupport - Math.log(minProbability) - Math.sqrt(Math.log(1 / minProbability) * (Math.log(1 / minProbability) - 8 * minSupport * Math.log(minProbability))) / 2;
+	/**
+	 * Set the number of threads used to count the item supports. The transactions are split
+	 * into chunks that are counted in parallel.
+	 *
+	 * @param threadCount the number of threads (1 by default)
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
 	}
 
 	/**
-	 * Applies the FM test to determine if a given itemset is likely frequent based on its estimated support and variance.
+	 * Set whether CGEB only extends candidates with the frequent items following their last item,
+	 * so that each candidate is generated exactly once.
 	 *
-	 * This method calculates the upper bound for expected support and compares it to the actual expectation.
-	 * If the expectation is greater than or equal to the upper bound, the itemset is considered frequent without further evaluation.
-	 * Otherwise, the FM test is performed using the standard normal distribution. It calculates the standard normal value
-	 * based on the difference between the minimum support and the itemset's expectation, then uses the cumulative distribution function (CDF)
-	 * of the standard normal distribution to get the frequency. The itemset is considered frequent if this frequency is greater than or equal to the minimum probability threshold.
+	 * @param useOrderedExtensions true to use ordered extensions (false by default)
+	 */
+	public void setOrderedExtensions(boolean useOrderedExtensions) {
+		this.useOrderedExtensions = useOrderedExtensions;
+	}
+
+	/**
+	 * Set whether CGEB generates the candidates by a parallel search over the branches of the
+	 * frequent items, using ordered extensions and threadCount threads.
 	 *
-	 * @param itemset the itemset to evaluate
-	 * @param minSupport the minimum support threshold
-	 * @param minProbability the minimum probability threshold
-	 * @param expectation the expected support of the itemset
-	 * @param variance the variance of the itemset's support
-	 * @return true if the itemset is estimated to be frequent based on the FM test, false otherwise
+	 * @param useParallelSearch true to use the parallel search (false by default)
 	 */
-	private boolean FM(Set<T> itemset, double minSupport, double minProbability, double expectation, double variance) {
-		double upperBound = getUpperBoundExpectation(minSupport, minProbability);
-		if (expectation >= upperBound) {
-			return true;
-		}
+	public void setParallelSearch(boolean useParallelSearch) {
+		this.useParallelSearch = useParallelSearch;
+	}
 
-		double standardNormalValue = (minSupport - expectation) / Math.sqrt(variance);
-		double frequency = 1 - NormalDistribution.cdf(standardNormalValue);
-		return frequency >= minProbability;
+	/**
+	 * Set whether the item statistics are kept after an execution, so that the next execution only
+	 * scans the transactions appended to the database in the meantime. The candidate generation and
+	 * the estimation only depend on the item statistics, so they are then computed without scanning
+	 * the database again (the exact mode still builds the tid-lists from the whole database).
+	 * Changing this setting discards the kept statistics.
+	 *
+	 * @param useIncrementalMode true to use the incremental mode (false by default)
+	 */
+	public void setIncrementalMode(boolean useIncrementalMode) {
+		this.useIncrementalMode = useIncrementalMode;
+		this.itemStatistics = null;
+		this.processedTransactionCount = 0;
 	}
 
-	private double getUpperBoundExpectation(double minSupport, double minProbability) {
-		return minSupport - Math.log(1 - minProbability) + Math.sqrt(Math.log(1 - minProbability) * (Math.log(1 - minProbability) - 2 * minSupport * Math.log(1 - minProbability)));
+	/**
+	 * Set whether candidates are confirmed with their exact frequent probability, computed from the
+	 * Poisson-binomial distribution of their support, rather than with the normal approximation (FM).
+	 * The exact mode is slower but is not an approximation, for example for audit runs.
+	 *
+	 * @param useExactMode true to use the exact mode (false by default)
+	 */
+	public void setExactMode(boolean useExactMode) {
+		this.useExactMode = useExactMode;
 	}
 
+	/**
+	 * Set whether the normal CDF used by the FM test is interpolated from a precomputed table
+	 * rather than computed by a rational approximation. Both have an absolute error below 1e-12.
+	 *
+	 * @param useTable true to use a table (false by default)
+	 */
+	public void setTabulatedCdf(boolean useTable) {
+		this.cdfTable = useTable ? new NormalDistribution.Table() : null;
+	}
 
 	/**
 	 * Print statistics about the latest execution.
@@ -229,30 +439,4 @@ public class WAPFI_MAX<T> {
 		System.out
 				.println("===================================================");
 	}
-
-	/**
-	 * This class provides utility methods for calculations involving the standard normal distribution.
-	 * It is used internally by the APFI-MAX algorithm.
-	 */
-	private static class NormalDistribution {
-		private static final double SQRT_2PI = Math.sqrt(2 * Math.PI);
-
-		public static double cdf(double x) {
-			return 0.5 * (1 + erf(x / SQRT_2PI));
-		}
-
-		private static double erf(double x) {
-			double sum = x;
-			double term = x;
-			int n = 1;
-
-			while (Math.abs(term) > 1e-15) {
-				term *= -x * x / (n + 0.5);
-				sum += term;
-				n++;
-			}
-
-			return 2 * sum / Math.sqrt(Math.PI);
-		}
-	}
 }
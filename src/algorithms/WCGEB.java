@@ -1,19 +1,55 @@
 package algorithms;
 
+import pattern.itemset.BitSetItemset;
+import pattern.itemset.ColumnarDatabase;
+import pattern.itemset.ItemStatistics;
+import pattern.itemset.TransactionCursor;
 import pattern.itemset.UncertainTransaction;
+import pattern.itemset.WeightedTransaction;
 
 import java.io.BufferedWriter;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import util.ParallelSupportCounter;
 
 public class WCGEB<T> {
-	List<UncertainTransaction<T>> uncertainDB;
+	/** the transactions of the database, one per line, or null if the database is columnar */
+	List<WeightedTransaction<T>> database;
+
+	/** the columnar database, read with cursors, or null if the database is a list of transactions */
+	ColumnarDatabase columns;
 
 	double minSupport;
 	double minProbability;
 
+	/** the thresholds and the bounds derived from them */
+	private final MiningThresholds thresholds;
+
+	/** the number of threads used to count the item supports */
+	int threadCount = 1;
+
+	/** if true, a candidate is only extended with frequent items following its last item (in code order) */
+	boolean useOrderedExtensions = false;
+
+	/** if true, the branches of the ordered candidate generation are explored by fork-join tasks */
+	boolean useParallelSearch = false;
+
+	/** the length of the prefixes up to which a branch of the parallel search is split into subtasks */
+	private static final int PARALLEL_DEPTH = 3;
+
 	/**  the number of itemsets found */
 	private int itemsetCount;
 
+	/** the statistics of each item, computed by the latest execution */
+	private ItemStatistics<T> itemStatistics;
+
+	/** the statistics of each item in the first transactions of the database, which are not scanned again */
+	private ItemStatistics<T> previousItemStatistics = null;
+	private int previousTransactionCount = 0;
+
 	/** start time of latest execution */
 	protected long startTimestamp;
 
@@ -24,48 +60,140 @@ public class WCGEB<T> {
 	BufferedWriter writer = null;
 
 	public WCGEB(List<UncertainTransaction<T>> uncertainDB, double minSupport, double minProbability) {
-		this.uncertainDB = uncertainDB;
-		this.minSupport = minSupport;
-		this.minProbability = minProbability;
+		this(uncertainDB, new MiningThresholds(minSupport, minProbability));
+	}
+
+	/**
+	 * Constructor sharing thresholds (and their bounds) computed by the caller. The uncertain
+	 * transactions are grouped by tid into weighted transactions (see forTransactions).
+	 *
+	 * @param uncertainDB the uncertain database
+	 * @param thresholds the thresholds
+	 */
+	public WCGEB(List<UncertainTransaction<T>> uncertainDB, MiningThresholds thresholds) {
+		this(thresholds);
+		this.database = new ArrayList<>();
+		WeightedTransaction.addUncertainTransactions(uncertainDB, 0, database);
+	}
+
+	/**
+	 * Create a miner for a database of weighted transactions, where each transaction keeps the items of a line.
+	 *
+	 * @param database the transactions
+	 * @param thresholds the thresholds
+	 * @return the miner
+	 */
+	public static <T> WCGEB<T> forTransactions(List<WeightedTransaction<T>> database, MiningThresholds thresholds) {
+		WCGEB<T> wcgeb = new WCGEB<>(thresholds);
+		wcgeb.database = database;
+		return wcgeb;
+	}
+
+	/**
+	 * Create a miner for a columnar database, whose transactions are read with cursors rather than
+	 * stored as objects (for example a database stored outside of the heap). The items of the
+	 * database must be of type T.
+	 *
+	 * @param columns the database
+	 * @param thresholds the thresholds
+	 * @return the miner
+	 */
+	public static <T> WCGEB<T> forColumns(ColumnarDatabase columns, MiningThresholds thresholds) {
+		WCGEB<T> wcgeb = new WCGEB<>(thresholds);
+		wcgeb.columns = columns;
+		return wcgeb;
+	}
+
+	private WCGEB(MiningThresholds thresholds) {
+		this.minSupport = thresholds.getMinSupport();
+		this.minProbability = thresholds.getMinProbability();
+		this.thresholds = thresholds;
+	}
+
+	/**
+	 * Get the thresholds of this miner.
+	 *
+	 * @return the thresholds
+	 */
+	public MiningThresholds getThresholds() {
+		return thresholds;
 	}
 
 	public int getTransactionCount() {
-		return uncertainDB.size();
+		return columns != null ? columns.getTransactionCount() : database.size();
 	}
 
 	public int getItemsetCount() {
 		return itemsetCount;
 	}
 
+	/**
+	 * Get the statistics of each item computed by the latest execution of generateCandidates,
+	 * so that they can be shared with the confirmation phase.
+	 *
+	 * @return the item statistics, or null if generateCandidates was not called
+	 */
+	public ItemStatistics<T> getItemStatistics() {
+		return itemStatistics;
+	}
+
 	/**
 	 * A method to generate candidates for frequent itemsets.
 	 *
 	 * @return         	a set of sets representing the generated candidates
 	 */
 	public Set<Set<T>> generateCandidates() {
+		Set<BitSetItemset> candidates = generateCandidateItemsets();
+		Set<Set<T>> result = new HashSet<>();
+		for (BitSetItemset candidate : candidates) {
+			result.add(candidate.toSet(itemStatistics.getDictionary()));
+		}
+		return result;
+	}
+
+	/**
+	 * A method to generate candidates for frequent itemsets, represented as bitsets over
+	 * the item codes of the dictionary of getItemStatistics().
+	 *
+	 * @return         	a set of bitset itemsets representing the generated candidates
+	 */
+	public Set<BitSetItemset> generateCandidateItemsets() {
 		itemsetCount = 0;
 		startTimestamp = System.currentTimeMillis();
-		Set<Set<T>> candidates = new HashSet<>();
+		Set<BitSetItemset> candidates = new HashSet<>();
 
 		// Generate frequent 1-itemsets
-		Map<T, Double> itemSupports = getItemSupports();
-		Set<Set<T>> frequentSingletons = new HashSet<>();
-		for (Map.Entry<T, Double> entry : itemSupports.entrySet()) {
-			if (entry.getValue() >= minSupport) {
-				Set<T> singleton = new HashSet<>();
-				singleton.add(entry.getKey());
-				frequentSingletons.add(singleton);
+		computeItemStatistics();
+		int itemCount = itemStatistics.size();
+		Set<BitSetItemset> frequentSingletons = new HashSet<>();
+		int[] frequentCodes = new int[itemCount];
+		int frequentCount = 0;
+		for (int code = 0; code < itemCount; code++) {
+			if (itemStatistics.getSupportOfCode(code) >= minSupport) {
+				frequentSingletons.add(BitSetItemset.of(itemCount, code));
+				frequentCodes[frequentCount++] = code;
 			}
 		}
+		frequentCodes = Arrays.copyOf(frequentCodes, frequentCount);
 		candidates.addAll(frequentSingletons);
 
+		if (useParallelSearch) {
+			List<BitSetItemset> extensions = generateBranchesInParallel(itemCount, frequentCodes);
+			candidates.addAll(extensions);
+			itemsetCount = extensions.size();
+			endTimestamp = System.currentTimeMillis();
+			return candidates;
+		}
+
 		// Generate frequent k-itemsets (k >= 2) using expectation bound
-		Set<Set<T>> prevCandidates = frequentSingletons;
+		Collection<BitSetItemset> prevCandidates = frequentSingletons;
 		int k = 2;
 		while (!prevCandidates.isEmpty()) {
-			Set<Set<T>> nextCandidates = new HashSet<>();
-			for (Set<T> candidate : prevCandidates) {
-				Set<Set<T>> extensions = generateExtensions(candidate, k, itemSupports);
+			// in ordered mode, each itemset is generated once, from its prefix, so no set is needed
+			Collection<BitSetItemset> nextCandidates = useOrderedExtensions ? new ArrayList<>() : new HashSet<>();
+			for (BitSetItemset candidate : prevCandidates) {
+				Collection<BitSetItemset> extensions = useOrderedExtensions
+						? generateOrderedExtensions(candidate, frequentCodes) : generateExtensions(candidate, k);
 				nextCandidates.addAll(extensions);
 				itemsetCount += extensions.size();
 			}
@@ -77,19 +205,83 @@ public class WCGEB<T> {
 		return candidates;
 	}
 
+	/**
+	 * Scan the database to compute the statistics of each item, without generating candidates.
+	 * This is the first step of generateCandidates, also used by miners exploring the candidates
+	 * in another order, which then use the same item codes.
+	 *
+	 * @return the item statistics
+	 */
+	public ItemStatistics<T> computeItemStatistics() {
+		if (previousItemStatistics == null) {
+			itemStatistics = new ItemStatistics<>(getItemSupports(0, getTransactionCount()));
+			return itemStatistics;
+		}
+		// only the transactions following the previous ones are scanned
+		Map<T, Double> supports = new HashMap<>(previousItemStatistics.getSupports());
+		Map<T, Double> newSupports = getItemSupports(previousTransactionCount, getTransactionCount());
+		for (Map.Entry<T, Double> entry : newSupports.entrySet()) {
+			supports.merge(entry.getKey(), entry.getValue(), Double::sum);
+		}
+		itemStatistics = new ItemStatistics<>(supports);
+		return itemStatistics;
+	}
+
+	/**
+	 * Generate a map of the items of a range of transactions with their corresponding support values.
+	 *
+	 * @param  first  the position of the first transaction to scan
+	 * @param  end    the position after the last transaction to scan
+	 * @return        the map of items and their support values
+	 */
+	private Map<T, Double> getItemSupports(int first, int end) {
+		return columns != null ? getColumnItemSupports(first, end) : getItemSupports(database.subList(first, end));
+	}
+
 	/**
 	 * Generate a map of items with their corresponding support values.
 	 *
+	 * @param  transactions  the transactions to scan
 	 * @return         the map of items and their support values
 	 */
-	private Map<T, Double> getItemSupports() {
-		Map<T, Double> supports = new HashMap<>();
-		for (UncertainTransaction<T> transaction : uncertainDB) {
-			for (T item : transaction.items) {
-				supports.put(item, supports.getOrDefault(item, 0.0) + transaction.probability * transaction.weight);
+	private Map<T, Double> getItemSupports(List<WeightedTransaction<T>> transactions) {
+		return new ParallelSupportCounter(threadCount).countWeightedItemSupports(transactions);
+	}
+
+	/**
+	 * Generate a map of the items of a range of transactions of the columnar database with their
+	 * corresponding support values. The supports are summed by item code, with one cursor per chunk
+	 * of transactions. Item occurrences without a weight are ignored.
+	 *
+	 * @param  first  the position of the first transaction to scan
+	 * @param  end    the position after the last transaction to scan
+	 * @return        the map of items and their support values
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<T, Double> getColumnItemSupports(int first, int end) {
+		int itemCount = columns.getItemCount();
+		// the supports of the items, followed by 1 for each item appearing in the range
+		double[] supports = new ParallelSupportCounter(threadCount).count(end - first, itemCount * 2,
+				(from, to, partialSupports) -> {
+					TransactionCursor cursor = columns.cursor(first + from, first + to);
+					while (cursor.next()) {
+						for (int i = 0; i < cursor.size(); i++) {
+							double weight = cursor.getWeight(i);
+							if (!Double.isNaN(weight)) {
+								int code = cursor.getItemCode(i);
+								partialSupports[code] += cursor.getProbability(i) * weight;
+								partialSupports[itemCount + code] = 1;
+							}
+						}
+					}
+				});
+		Map<T, Double> result = new HashMap<>();
+		for (int code = 0; code < itemCount; code++) {
+			if (supports[itemCount + code] > 0) {
+				result.put((T) columns.getItem(code), supports[code]);
 			}
 		}
-		return supports;
+		return result;
 	}
 
 	/**
@@ -97,17 +289,14 @@ public class WCGEB<T> {
 	 *
 	 * @param  candidate     the current candidate set of elements
 	 * @param  k            the size of the desired extension sets
-	 * @param  itemSupports a map of items to their support values
 	 * @return              a set of sets representing the generated extensions
 	 */
-	private Set<Set<T>> generateExtensions(Set<T> candidate, int k, Map<T, Double> itemSupports) {
-		Set<Set<T>> extensions = new HashSet<>();
-		List<T> items = new ArrayList<>(itemSupports.keySet());
-		for (T item : items) {
-			if (!candidate.contains(item)) {
-				Set<T> extension = new HashSet<>(candidate);
-				extension.add(item);
-				if (extension.size() == k && isFrequentByExpectation(extension, itemSupports)) {
+	private Set<BitSetItemset> generateExtensions(BitSetItemset candidate, int k) {
+		Set<BitSetItemset> extensions = new HashSet<>();
+		for (int code = 0; code < itemStatistics.size(); code++) {
+			if (!candidate.contains(code)) {
+				BitSetItemset extension = candidate.with(code);
+				if (extension.cardinality() == k && isFrequentByExpectation(extension)) {
 					extensions.add(extension);
 				}
 			}
@@ -116,39 +305,115 @@ public class WCGEB<T> {
 	}
 
 	/**
-	 * A description of the entire Java function.
+	 * Generate the extensions of a candidate with the frequent items following its last item.
+	 * Since an itemset is only generated from its prefix, each itemset is generated exactly once.
 	 *
-	 * @param  itemset     description of parameter
-	 * @param  itemSupports    description of parameter
-	 * @return         	description of return value
+	 * @param  candidate      the current candidate set of elements
+	 * @param  frequentCodes  the codes of the frequent items, in increasing order
+	 * @return                a list of the extensions satisfying the expectation bound
 	 */
-	private boolean isFrequentByExpectation(Set<T> itemset, Map<T, Double> itemSupports) {
-		double expectation = 0.0;
-		for (T item : itemset) {
-			expectation += itemSupports.get(item);
+	private List<BitSetItemset> generateOrderedExtensions(BitSetItemset candidate, int[] frequentCodes) {
+		List<BitSetItemset> extensions = new ArrayList<>();
+		int start = Arrays.binarySearch(frequentCodes, candidate.lastItem() + 1);
+		if (start < 0) {
+			start = -start - 1;
+		}
+		for (int i = start; i < frequentCodes.length; i++) {
+			BitSetItemset extension = candidate.with(frequentCodes[i]);
+			if (isFrequentByExpectation(extension)) {
+				extensions.add(extension);
+			}
 		}
-		expectation -= (itemset.size() - 1) * getUnionExpectation(itemset, itemSupports);
-		double lowerBound = getLowerBoundExpectation(minSupport, minProbability);
-		return expectation >= lowerBound;
+		return extensions;
 	}
 
 	/**
-	 * Calculate the union expectation of the given itemset based on the provided item supports.
+	 * Generate the candidates of length at least 2 by exploring the branch of each frequent item
+	 * in parallel. The branches are independent since, with ordered extensions, a candidate is only
+	 * generated from its prefix.
 	 *
-	 * @param  itemset       the set of items for which to calculate the union expectation
-	 * @param  itemSupports  a map containing the support values for each item in the itemset
-	 * @return               the calculated union expectation
+	 * @param  itemCount      the number of items
+	 * @param  frequentCodes  the codes of the frequent items, in increasing order
+	 * @return                the candidates of all the branches
 	 */
-	private double getUnionExpectation(Set<T> itemset, Map<T, Double> itemSupports) {
-		double unionExpectation = 1.0;
-		for (T item : itemset) {
-			unionExpectation *= itemSupports.get(item);
+	private List<BitSetItemset> generateBranchesInParallel(int itemCount, int[] frequentCodes) {
+		ForkJoinPool pool = ParallelSupportCounter.getPool(threadCount);
+		List<ForkJoinTask<List<BitSetItemset>>> tasks = new ArrayList<>();
+		for (int code : frequentCodes) {
+			tasks.add(pool.submit(new BranchTask(BitSetItemset.of(itemCount, code), frequentCodes)));
+		}
+		List<BitSetItemset> candidates = new ArrayList<>();
+		for (ForkJoinTask<List<BitSetItemset>> task : tasks) {
+			candidates.addAll(task.join());
 		}
-		return unionExpectation;
+		return candidates;
 	}
 
-	private double getLowerBoundExpectation(double minSupport, double minProbability) {
-		return 2 * minSupport - Math.log(minProbability) - Math.sqrt(Math.log(1 / minProbability) * (Math.log(1 / minProbability) - 8 * minSupport * Math.log(minProbability))) / 2;
+	/**
+	 * Generate all the candidates of a branch depth-first, in the current thread.
+	 *
+	 * @param  prefix         the prefix of the branch
+	 * @param  frequentCodes  the codes of the frequent items, in increasing order
+	 * @param  candidates     the list where the candidates extending the prefix are added
+	 */
+	private void generateBranch(BitSetItemset prefix, int[] frequentCodes, List<BitSetItemset> candidates) {
+		for (BitSetItemset extension : generateOrderedExtensions(prefix, frequentCodes)) {
+			candidates.add(extension);
+			generateBranch(extension, frequentCodes, candidates);
+		}
+	}
+
+	/**
+	 * A task generating the candidates extending a prefix, into its own list. The branches of
+	 * short prefixes are split into subtasks, which idle threads can steal.
+	 */
+	@SuppressWarnings("serial")
+	private class BranchTask extends RecursiveTask<List<BitSetItemset>> {
+		private final BitSetItemset prefix;
+		private final int[] frequentCodes;
+
+		BranchTask(BitSetItemset prefix, int[] frequentCodes) {
+			this.prefix = prefix;
+			this.frequentCodes = frequentCodes;
+		}
+
+		@Override
+		protected List<BitSetItemset> compute() {
+			List<BitSetItemset> candidates = new ArrayList<>();
+			if (prefix.cardinality() >= PARALLEL_DEPTH) {
+				generateBranch(prefix, frequentCodes, candidates);
+				return candidates;
+			}
+			List<BranchTask> subtasks = new ArrayList<>();
+			for (BitSetItemset extension : generateOrderedExtensions(prefix, frequentCodes)) {
+				candidates.add(extension);
+				subtasks.add(new BranchTask(extension, frequentCodes));
+			}
+			invokeAll(subtasks);
+			for (BranchTask subtask : subtasks) {
+				candidates.addAll(subtask.join());
+			}
+			return candidates;
+		}
+	}
+
+	/**
+	 * Check if the expected support of an itemset, estimated from the supports of its items,
+	 * reaches the lower bound of the expectation of a probabilistic frequent itemset.
+	 *
+	 * @param  itemset     the itemset
+	 * @return         	true if the itemset may be frequent, false otherwise
+	 */
+	private boolean isFrequentByExpectation(BitSetItemset itemset) {
+		double expectation = 0.0;
+		double unionExpectation = 1.0;
+		for (int code = itemset.nextItem(0); code >= 0; code = itemset.nextItem(code + 1)) {
+			double support = itemStatistics.getSupportOfCode(code);
+			expectation += support;
+			unionExpectation *= support;
+		}
+		expectation -= (itemset.cardinality() - 1) * unionExpectation;
+		return thresholds.mayBeFrequent(expectation);
 	}
 
 	private double calculateSupport(Set<T> itemset, Map<T, Double> itemSupports) {
@@ -159,6 +424,53 @@ public class WCGEB<T> {
 		return support;
 	}
 
+	/**
+	 * Set the number of threads used to count the item supports. The transactions are split
+	 * into chunks that are counted in parallel.
+	 *
+	 * @param threadCount the number of threads (1 by default)
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Set whether candidates are only extended with the frequent items following their last item
+	 * (in the order of the item codes), so that each candidate is generated exactly once, instead of
+	 * with every item of the database.
+	 *
+	 * @param useOrderedExtensions true to use ordered extensions (false by default)
+	 */
+	public void setOrderedExtensions(boolean useOrderedExtensions) {
+		this.useOrderedExtensions = useOrderedExtensions;
+	}
+
+	/**
+	 * Set the statistics of the items in the first transactions of the database, computed by a
+	 * previous execution, so that only the transactions appended since then are scanned.
+	 *
+	 * @param itemStatistics the statistics of the first transactions, or null to scan the whole database
+	 * @param transactionCount the number of transactions they were computed from
+	 */
+	public void setPreviousItemStatistics(ItemStatistics<T> itemStatistics, int transactionCount) {
+		if (transactionCount < 0 || transactionCount > getTransactionCount()) {
+			throw new IllegalArgumentException("Invalid transaction count: " + transactionCount);
+		}
+		this.previousItemStatistics = itemStatistics;
+		this.previousTransactionCount = itemStatistics == null ? 0 : transactionCount;
+	}
+
+	/**
+	 * Set whether the candidates are generated by a parallel search, where the branch of each
+	 * frequent item is explored by a fork-join task using ordered extensions (whatever the value
+	 * of setOrderedExtensions). The tasks run on threadCount threads, see setThreadCount.
+	 *
+	 * @param useParallelSearch true to use the parallel search (false by default)
+	 */
+	public void setParallelSearch(boolean useParallelSearch) {
+		this.useParallelSearch = useParallelSearch;
+	}
+
 	/**
 	 * Print statistics about the latest execution.
 	 */
@@ -167,7 +479,7 @@ public class WCGEB<T> {
 				.println("=============  CGEB - STATS =============");
 		long temps = endTimestamp - startTimestamp;
 //		System.out.println(" Total time ~ " + temps + " ms");
-		System.out.println(" Transactions count from database : " + UncertainTransaction.transaction);
+		System.out.println(" Transactions count from database : " + getTransactionCount());
 		System.out.println(" Uncertain itemsets count : " + itemsetCount);
 		System.out.println(" Total time ~ " + temps + " ms");
 		System.out
@@ -0,0 +1,336 @@
+package pattern.itemset;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A compact binary file format for uncertain databases, which is memory-mapped when loaded
+ * so that repeated experiments on the same dataset do not parse text again.
+ * <br/><br/>
+ * The file contains (all numbers are big-endian):
+ * <ul>
+ * <li>a header: the magic number "UDB1", the flags (bit 0 set if the items have weights),
+ * the number of transactions, the number of item occurrences and the number of distinct items,</li>
+ * <li>the item dictionary: for each item code, a tag (0 for an integer id followed by the int,
+ * 1 for a string id followed by its length and its UTF-8 bytes),</li>
+ * <li>the transaction offsets (transactionCount + 1 ints): the item occurrences of transaction i
+ * are at positions offsets[i] (inclusive) to offsets[i+1] (exclusive),</li>
+ * <li>the columns of the item occurrences: the item codes (ints), the probabilities (doubles)
+ * and, if the items have weights, the weights (doubles).</li>
+ * </ul>
+ * Items are stored in the order of the text file. A file cannot be larger than 2 GB since it is mapped at once.
+ * The mapped file is outside of the Java heap, and its transactions can be read in place with cursors.
+ */
+public class BinaryUncertainDatabase implements ColumnarDatabase {
+
+    // the magic number at the beginning of a file ("UDB1")
+    private static final int MAGIC = 0x55444231;
+    // the flag indicating that the items have weights
+    private static final int FLAG_WEIGHTS = 1;
+    // the tags of the item ids in the dictionary
+    private static final byte TAG_INT = 0;
+    private static final byte TAG_STRING = 1;
+
+    // the number of transactions
+    private final int transactionCount;
+    // the number of item occurrences
+    private final int occurrenceCount;
+    // the item id of each item code (Integer or String)
+    private final Object[] items;
+    // the columns, which are views of the mapped file
+    private final IntBuffer offsets;
+    private final IntBuffer itemCodes;
+    private final DoubleBuffer probabilities;
+    private final DoubleBuffer weights;
+
+    /**
+     * Constructor that reads the header and the dictionary of a mapped file.
+     * @param buffer the mapped file
+     * @throws IOException if the file is not in this format
+     */
+    private BinaryUncertainDatabase(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a binary uncertain database");
+        }
+        int flags = buffer.getInt();
+        transactionCount = buffer.getInt();
+        occurrenceCount = buffer.getInt();
+        items = new Object[buffer.getInt()];
+        // read the dictionary
+        for (int code = 0; code < items.length; code++) {
+            byte tag = buffer.get();
+            if (tag == TAG_INT) {
+                items[code] = buffer.getInt();
+            } else {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                items[code] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+        // create views of the columns
+        offsets = slice(buffer, (transactionCount + 1) * 4).asIntBuffer();
+        itemCodes = slice(buffer, occurrenceCount * 4).asIntBuffer();
+        probabilities = slice(buffer, occurrenceCount * 8).asDoubleBuffer();
+        weights = (flags & FLAG_WEIGHTS) != 0 ? slice(buffer, occurrenceCount * 8).asDoubleBuffer() : null;
+    }
+
+    /**
+     * Get a slice of a buffer starting at its position, and move the position after it.
+     * @param buffer the buffer
+     * @param length the length of the slice in bytes
+     * @return the slice
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+
+    /**
+     * Map a binary uncertain database.
+     * @param path the path of the file
+     * @return the database
+     * @throws IOException if an error occurs while reading the file or if it is not in this format
+     */
+    public static BinaryUncertainDatabase open(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            // the mapping remains valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new BinaryUncertainDatabase(buffer);
+        }
+    }
+
+    /**
+     * Convert a database in a text format ("item(probability)" or "item(probability)[weight]")
+     * to the binary format.
+     * @param textPath the path of the text file
+     * @param binaryPath the path of the binary file to create
+     * @throws IOException if an error occurs while reading or writing the files
+     */
+    public static void convert(String textPath, String binaryPath) throws IOException {
+        ColumnBuilder columns = new ColumnBuilder();
+        try (InputStream input = new FileInputStream(textPath)) {
+            new TransactionParser(input).parse(columns);
+        }
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binaryPath), 1 << 16))) {
+            // write the header
+            output.writeInt(MAGIC);
+            output.writeInt(columns.hasWeights ? FLAG_WEIGHTS : 0);
+            output.writeInt(columns.transactionCount);
+            output.writeInt(columns.occurrenceCount);
+            output.writeInt(columns.dictionary.size());
+            // write the dictionary
+            for (int code = 0; code < columns.dictionary.size(); code++) {
+                Object item = columns.dictionary.getItem(code);
+                if (item instanceof Integer) {
+                    output.writeByte(TAG_INT);
+                    output.writeInt((Integer) item);
+                } else {
+                    byte[] bytes = ((String) item).getBytes(StandardCharsets.UTF_8);
+                    output.writeByte(TAG_STRING);
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                }
+            }
+            // write the columns
+            for (int i = 0; i <= columns.transactionCount; i++) {
+                output.writeInt(columns.offsets[i]);
+            }
+            for (int i = 0; i < columns.occurrenceCount; i++) {
+                output.writeInt(columns.itemCodes[i]);
+            }
+            for (int i = 0; i < columns.occurrenceCount; i++) {
+                output.writeDouble(columns.probabilities[i]);
+            }
+            if (columns.hasWeights) {
+                for (int i = 0; i < columns.occurrenceCount; i++) {
+                    output.writeDouble(columns.weights[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of transactions.
+     * @return the transaction count
+     */
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    /**
+     * Get the number of item occurrences in all transactions.
+     * @return the occurrence count
+     */
+    public int getOccurrenceCount() {
+        return occurrenceCount;
+    }
+
+    /**
+     * Get the number of distinct items.
+     * @return the item count
+     */
+    public int getItemCount() {
+        return items.length;
+    }
+
+    /**
+     * Get the id of the item having a given code.
+     * @param code the code
+     * @return the item id (an Integer or a String)
+     */
+    public Object getItem(int code) {
+        return items[code];
+    }
+
+    /**
+     * Get the position of the first item occurrence of a transaction.
+     * @param transaction the position of the transaction
+     * @return the position of its first item occurrence
+     */
+    public int getTransactionStart(int transaction) {
+        return offsets.get(transaction);
+    }
+
+    /**
+     * Get the position after the last item occurrence of a transaction.
+     * @param transaction the position of the transaction
+     * @return the position after its last item occurrence
+     */
+    public int getTransactionEnd(int transaction) {
+        return offsets.get(transaction + 1);
+    }
+
+    /**
+     * Get the item code of an item occurrence.
+     * @param position the position of the occurrence
+     * @return the item code
+     */
+    public int getItemCode(int position) {
+        return itemCodes.get(position);
+    }
+
+    /**
+     * Get the probability of an item occurrence.
+     * @param position the position of the occurrence
+     * @return the probability
+     */
+    public double getProbability(int position) {
+        return probabilities.get(position);
+    }
+
+    /**
+     * Check if the items have weights.
+     * @return true if yes, otherwise false
+     */
+    public boolean hasWeights() {
+        return weights != null;
+    }
+
+    /**
+     * Get the weight of an item occurrence.
+     * @param position the position of the occurrence
+     * @return the weight, or NaN if the item has no weight
+     */
+    public double getWeight(int position) {
+        return weights == null ? Double.NaN : weights.get(position);
+    }
+
+    /**
+     * Create a cursor reading a range of transactions in place in the mapped file.
+     * @param first the position of the first transaction
+     * @param end the position after the last transaction
+     * @return the cursor
+     */
+    @Override
+    public TransactionCursor cursor(int first, int end) {
+        // each column is a single segment, since its positions are ints
+        return new ColumnCursor(offsets::get, transactionCount, 31, new IntBuffer[]{itemCodes},
+                new DoubleBuffer[]{probabilities}, weights == null ? null : new DoubleBuffer[]{weights}, first, end);
+    }
+
+    /**
+     * Copy the transaction offsets to an array.
+     * @param destination an array of length at least transactionCount + 1
+     */
+    public void copyOffsets(int[] destination) {
+        offsets.duplicate().get(destination, 0, transactionCount + 1);
+    }
+
+    /**
+     * Copy the item codes of all occurrences to an array.
+     * @param destination an array of length at least occurrenceCount
+     */
+    public void copyItemCodes(int[] destination) {
+        itemCodes.duplicate().get(destination, 0, occurrenceCount);
+    }
+
+    /**
+     * Copy the probabilities of all occurrences to an array.
+     * @param destination an array of length at least occurrenceCount
+     */
+    public void copyProbabilities(double[] destination) {
+        probabilities.duplicate().get(destination, 0, occurrenceCount);
+    }
+
+    /**
+     * A handler of the text parser storing the items in columns.
+     */
+    private static class ColumnBuilder implements TransactionParser.Handler {
+        final ItemDictionary<Object> dictionary = new ItemDictionary<>();
+        int[] offsets = new int[1024];
+        int[] itemCodes = new int[1024];
+        double[] probabilities = new double[1024];
+        double[] weights = new double[1024];
+        int transactionCount = 0;
+        int occurrenceCount = 0;
+        boolean hasWeights = false;
+
+        @Override
+        public void item(int id, double probability, double weight) {
+            add(dictionary.encodeInt(id), probability, weight);
+        }
+
+        @Override
+        public void item(String id, double probability, double weight) {
+            add(dictionary.encode(id), probability, weight);
+        }
+
+        private void add(int code, double probability, double weight) {
+            if (occurrenceCount == itemCodes.length) {
+                int newCapacity = itemCodes.length * 2;
+                itemCodes = Arrays.copyOf(itemCodes, newCapacity);
+                probabilities = Arrays.copyOf(probabilities, newCapacity);
+                weights = Arrays.copyOf(weights, newCapacity);
+            }
+            itemCodes[occurrenceCount] = code;
+            probabilities[occurrenceCount] = probability;
+            weights[occurrenceCount] = weight;
+            hasWeights |= !Double.isNaN(weight);
+            occurrenceCount++;
+        }
+
+        @Override
+        public void endTransaction() {
+            if (transactionCount + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            transactionCount++;
+            offsets[transactionCount] = occurrenceCount;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package pattern.itemset;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An immutable itemset represented as a bitset over the dense item codes of an
+ * {@link ItemDictionary}: bit i is set if the item having code i is in the itemset.
+ * Compared to a HashSet of items, it is much smaller, its hash code is computed once,
+ * and subset tests and unions are done one word (64 items) at a time.
+ */
+public class BitSetItemset {
+
+    // the words of the bitset
+    private final long[] words;
+    // the number of items in this itemset
+    private final int cardinality;
+    // the hash code of this itemset
+    private final int hash;
+
+    /**
+     * Constructor of an empty itemset.
+     * @param itemCount the number of items in the dictionary
+     */
+    public BitSetItemset(int itemCount) {
+        this(new long[(itemCount + 63) >>> 6]);
+    }
+
+    /**
+     * Constructor from the words of a bitset (which are not copied).
+     * @param words the words
+     */
+    private BitSetItemset(long[] words) {
+        this.words = words;
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        this.cardinality = cardinality;
+        this.hash = Arrays.hashCode(words);
+    }
+
+    /**
+     * Create an itemset containing some items.
+     * @param itemCount the number of items in the dictionary
+     * @param codes the codes of the items
+     * @return the itemset
+     */
+    public static BitSetItemset of(int itemCount, int... codes) {
+        long[] words = new long[(itemCount + 63) >>> 6];
+        for (int code : codes) {
+            words[code >>> 6] |= 1L << code;
+        }
+        return new BitSetItemset(words);
+    }
+
+    /**
+     * Create a copy of this itemset with an additional item.
+     * @param code the code of the item to add
+     * @return the new itemset (or this itemset if it already contains the item)
+     */
+    public BitSetItemset with(int code) {
+        if (contains(code)) {
+            return this;
+        }
+        long[] newWords = Arrays.copyOf(words, Math.max(words.length, (code >>> 6) + 1));
+        newWords[code >>> 6] |= 1L << code;
+        return new BitSetItemset(newWords);
+    }
+
+    /**
+     * Create a copy of this itemset without an item.
+     * @param code the code of the item to remove
+     * @return the new itemset (or this itemset if it does not contain the item)
+     */
+    public BitSetItemset without(int code) {
+        if (!contains(code)) {
+            return this;
+        }
+        long[] newWords = words.clone();
+        newWords[code >>> 6] &= ~(1L << code);
+        return new BitSetItemset(newWords);
+    }
+
+    /**
+     * Create the union of this itemset and another itemset.
+     * @param other the other itemset
+     * @return the union
+     */
+    public BitSetItemset union(BitSetItemset other) {
+        long[] newWords = Arrays.copyOf(words, Math.max(words.length, other.words.length));
+        for (int i = 0; i < other.words.length; i++) {
+            newWords[i] |= other.words[i];
+        }
+        return new BitSetItemset(newWords);
+    }
+
+    /**
+     * Check if this itemset contains an item.
+     * @param code the code of the item
+     * @return true if yes, otherwise false
+     */
+    public boolean contains(int code) {
+        int index = code >>> 6;
+        return index < words.length && (words[index] & (1L << code)) != 0;
+    }
+
+    /**
+     * Check if this itemset contains all the items of another itemset.
+     * @param other the other itemset
+     * @return true if the other itemset is a subset of this itemset, otherwise false
+     */
+    public boolean containsAll(BitSetItemset other) {
+        if (other.cardinality > cardinality) {
+            return false;
+        }
+        for (int i = 0; i < other.words.length; i++) {
+            long word = i < words.length ? words[i] : 0L;
+            if ((other.words[i] & ~word) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of items in this itemset.
+     * @return the item count
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Get the smallest code of an item of this itemset that is greater than or equal to a given code.
+     * This is used to iterate over the items:
+     * for (int code = itemset.nextItem(0); code >= 0; code = itemset.nextItem(code + 1))
+     * @param from the code to start from
+     * @return the code of the item, or -1 if there is none
+     */
+    public int nextItem(int from) {
+        int index = from >>> 6;
+        if (index >= words.length) {
+            return -1;
+        }
+        long word = words[index] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (index << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == words.length) {
+                return -1;
+            }
+            word = words[index];
+        }
+    }
+
+    /**
+     * Get the largest code of an item of this itemset.
+     * @return the code of the item, or -1 if this itemset is empty
+     */
+    public int lastItem() {
+        for (int index = words.length - 1; index >= 0; index--) {
+            if (words[index] != 0) {
+                return (index << 6) + 63 - Long.numberOfLeadingZeros(words[index]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the codes of the items of this itemset, in increasing order.
+     * @return an array of codes
+     */
+    public int[] toArray() {
+        int[] codes = new int[cardinality];
+        int i = 0;
+        for (int code = nextItem(0); code >= 0; code = nextItem(code + 1)) {
+            codes[i++] = code;
+        }
+        return codes;
+    }
+
+    /**
+     * Convert this itemset to a set of item ids.
+     * @param dictionary the dictionary used to encode the items
+     * @return a set of item ids
+     */
+    public <T> Set<T> toSet(ItemDictionary<T> dictionary) {
+        Set<T> set = new HashSet<>();
+        for (int code = nextItem(0); code >= 0; code = nextItem(code + 1)) {
+            set.add(dictionary.getItem(code));
+        }
+        return set;
+    }
+
+    /**
+     * Check if this itemset is equal to another.
+     * @param object another itemset
+     * @return true if equal, otherwise false.
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof BitSetItemset)) {
+            return false;
+        }
+        BitSetItemset itemset = (BitSetItemset) object;
+        return hash == itemset.hash && cardinality == itemset.cardinality && Arrays.equals(words, itemset.words);
+    }
+
+    /**
+     * Get the hash code of this itemset (computed once).
+     * @return an hash code as a int.
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Get a string representation of the codes of the items in this itemset.
+     * @return a string
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,101 @@
+package pattern.itemset;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.function.IntToLongFunction;
+
+/**
+ * A cursor over columns stored in buffers, in the layout of {@link BinaryUncertainDatabase}:
+ * the item occurrences of transaction i are at positions offsets[i] (inclusive) to offsets[i+1]
+ * (exclusive) of the other columns. The columns of the item occurrences are split into segments
+ * of 2^segmentShift elements (the last one may be shorter), so that the positions of the item
+ * occurrences are longs, and a column may be larger than a buffer. The buffers are only read with
+ * absolute positions, so they can be shared by the cursors of several threads.
+ */
+class ColumnCursor implements TransactionCursor {
+
+    // the function giving the offset of a transaction
+    private final IntToLongFunction offsets;
+    // the segments of the columns
+    private final IntBuffer[] itemCodes;
+    private final DoubleBuffer[] probabilities;
+    // the segments of the weights, or null if the items have no weight
+    private final DoubleBuffer[] weights;
+    // the number of bits of a position within a segment, and the mask of these bits
+    private final int segmentShift;
+    private final long segmentMask;
+    // the current transaction and the position after the last transaction of the range
+    private int tid;
+    private final int end;
+    // the position of the first item occurrence of the current transaction, and its size
+    private long start;
+    private int size;
+
+    /**
+     * Constructor
+     * @param offsets the function giving the offset of a transaction, for the positions 0 to transactionCount
+     * @param transactionCount the number of transactions
+     * @param segmentShift the number of bits of a position within a segment (at most 31)
+     * @param itemCodes the segments of the item codes
+     * @param probabilities the segments of the probabilities
+     * @param weights the segments of the weights, or null if the items have no weight
+     * @param first the position of the first transaction of the range
+     * @param end the position after the last transaction of the range
+     */
+    ColumnCursor(IntToLongFunction offsets, int transactionCount, int segmentShift, IntBuffer[] itemCodes,
+                 DoubleBuffer[] probabilities, DoubleBuffer[] weights, int first, int end) {
+        if (first < 0 || first > end || end > transactionCount) {
+            throw new IllegalArgumentException("Invalid range of transactions: " + first + " to " + end);
+        }
+        this.offsets = offsets;
+        this.itemCodes = itemCodes;
+        this.probabilities = probabilities;
+        this.weights = weights;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+        this.tid = first - 1;
+        this.end = end;
+    }
+
+    @Override
+    public boolean next() {
+        if (tid + 1 >= end) {
+            return false;
+        }
+        tid++;
+        start = offsets.applyAsLong(tid);
+        size = (int) (offsets.applyAsLong(tid + 1) - start);
+        return true;
+    }
+
+    @Override
+    public int getTid() {
+        return tid;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getItemCode(int position) {
+        long occurrence = start + position;
+        return itemCodes[(int) (occurrence >>> segmentShift)].get((int) (occurrence & segmentMask));
+    }
+
+    @Override
+    public double getProbability(int position) {
+        long occurrence = start + position;
+        return probabilities[(int) (occurrence >>> segmentShift)].get((int) (occurrence & segmentMask));
+    }
+
+    @Override
+    public double getWeight(int position) {
+        if (weights == null) {
+            return Double.NaN;
+        }
+        long occurrence = start + position;
+        return weights[(int) (occurrence >>> segmentShift)].get((int) (occurrence & segmentMask));
+    }
+}
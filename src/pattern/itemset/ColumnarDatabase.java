@@ -0,0 +1,37 @@
+package pattern.itemset;
+
+/**
+ * An uncertain database stored in columns outside of the Java heap (item codes, probabilities and
+ * weights of the item occurrences, and the offsets of the transactions), which is only read through
+ * transaction cursors. Since the transactions are not Java objects, a large database does not put
+ * pressure on the garbage collector.
+ */
+public interface ColumnarDatabase {
+
+    /**
+     * Get the number of transactions.
+     * @return the transaction count
+     */
+    int getTransactionCount();
+
+    /**
+     * Get the number of distinct items.
+     * @return the item count
+     */
+    int getItemCount();
+
+    /**
+     * Get the id of the item having a given code.
+     * @param code the code
+     * @return the item id (an Integer or a String)
+     */
+    Object getItem(int code);
+
+    /**
+     * Create a cursor over a range of transactions.
+     * @param first the position of the first transaction
+     * @param end the position after the last transaction
+     * @return the cursor, positioned before the first transaction
+     */
+    TransactionCursor cursor(int first, int end);
+}
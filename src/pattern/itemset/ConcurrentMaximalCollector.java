@@ -0,0 +1,92 @@
+package pattern.itemset;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A thread-safe collector of maximal itemsets, used to merge the itemsets found by parallel tasks.
+ * Since the tasks run in any order, an itemset may be added before one of its supersets: it is then
+ * removed when the superset is added, so that the collector only contains maximal itemsets.
+ * <br/><br/>
+ * The superset queries use a MaximalItemsetIndex. The index keeps the removed itemsets, which does
+ * not change its answers: a removed itemset has a superset in the index.
+ */
+public class ConcurrentMaximalCollector {
+
+    // the index of the added itemsets
+    private final MaximalItemsetIndex index;
+    // the maximal itemsets
+    private final List<BitSetItemset> itemsets = new ArrayList<>();
+    // the lock protecting the index and the itemsets (superset queries can run concurrently)
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Constructor
+     * @param itemCount the number of items in the dictionary used to encode the itemsets
+     */
+    public ConcurrentMaximalCollector(int itemCount) {
+        index = new MaximalItemsetIndex(itemCount);
+    }
+
+    /**
+     * Check if the collector contains an itemset that is a superset of (or equal to) a given itemset.
+     * @param itemset the itemset
+     * @return true if yes, otherwise false
+     */
+    public boolean containsSupersetOf(BitSetItemset itemset) {
+        lock.readLock().lock();
+        try {
+            return index.containsSupersetOf(itemset);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add an itemset if the collector does not contain a superset of it, and remove its subsets.
+     * @param itemset the itemset
+     * @return true if the itemset was added, otherwise false
+     */
+    public boolean add(BitSetItemset itemset) {
+        lock.writeLock().lock();
+        try {
+            if (index.containsSupersetOf(itemset)) {
+                return false;
+            }
+            itemsets.removeIf(itemset::containsAll);
+            index.add(itemset);
+            itemsets.add(itemset);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the maximal itemsets collected so far.
+     * @return a copy of the list of maximal itemsets
+     */
+    public List<BitSetItemset> getItemsets() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(itemsets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of maximal itemsets collected so far.
+     * @return the itemset count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return itemsets.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
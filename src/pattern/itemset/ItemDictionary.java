@@ -0,0 +1,90 @@
+package pattern.itemset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dictionary mapping item ids of any type to dense int codes (0, 1, 2...),
+ * in the order in which the items are first seen. It lets the databases store
+ * transactions as primitive arrays instead of lists of objects.
+ */
+public class ItemDictionary<T> {
+
+    // the code of each item
+    private final Map<T, Integer> codes = new HashMap<>();
+    // the item of each code
+    private final List<T> items = new ArrayList<>();
+
+    // the largest integer id whose code is stored in the intCodes array
+    private static final int MAX_DIRECT_ID = 1 << 24;
+    // the code + 1 of each small non-negative integer id (0 if the id was never seen),
+    // so that integer ids can be encoded without boxing
+    private int[] intCodes = new int[0];
+
+    /**
+     * Get the code of an item, assigning a new code if the item was never seen.
+     * @param item the item id
+     * @return the code
+     */
+    public int encode(T item) {
+        Integer code = codes.get(item);
+        if (code == null) {
+            code = items.size();
+            codes.put(item, code);
+            items.add(item);
+        }
+        return code;
+    }
+
+    /**
+     * Get the code of an item having an integer id, assigning a new code if the item was never seen.
+     * The items of this dictionary must be Integers.
+     * @param id the item id
+     * @return the code
+     */
+    @SuppressWarnings("unchecked")
+    public int encodeInt(int id) {
+        boolean direct = id >= 0 && id < MAX_DIRECT_ID;
+        if (direct && id < intCodes.length && intCodes[id] != 0) {
+            return intCodes[id] - 1;
+        }
+        int code = encode((T) Integer.valueOf(id));
+        if (direct) {
+            if (id >= intCodes.length) {
+                intCodes = Arrays.copyOf(intCodes, Math.min(MAX_DIRECT_ID, Math.max(id + 1, intCodes.length * 2)));
+            }
+            intCodes[id] = code + 1;
+        }
+        return code;
+    }
+
+    /**
+     * Get the code of an item.
+     * @param item the item id
+     * @return the code, or -1 if the item is not in this dictionary
+     */
+    public int getCode(T item) {
+        Integer code = codes.get(item);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Get the item having a given code.
+     * @param code the code
+     * @return the item id
+     */
+    public T getItem(int code) {
+        return items.get(code);
+    }
+
+    /**
+     * Get the number of items in this dictionary.
+     * @return the item count
+     */
+    public int size() {
+        return items.size();
+    }
+}
@@ -0,0 +1,115 @@
+package pattern.itemset;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of the statistics of each item of an uncertain database:
+ * its expected support and the variance term support * (1 - support).
+ * It is built once per run by the candidate generation phase and shared with
+ * the confirmation phase, so that the database is not scanned again for each candidate.
+ */
+public class ItemStatistics<T> {
+
+    // the expected support of each item
+    private final Map<T, Double> supports;
+    // the variance of each item
+    private final Map<T, Double> variances;
+
+    // the dictionary giving a dense code to each item
+    private final ItemDictionary<T> dictionary = new ItemDictionary<>();
+    // the expected support and variance of each item, indexed by item code
+    private final double[] supportsByCode;
+    private final double[] variancesByCode;
+
+    /**
+     * Constructor
+     * @param supports a map where keys are items and values are their expected support
+     */
+    public ItemStatistics(Map<T, Double> supports) {
+        Map<T, Double> variances = new HashMap<>();
+        supportsByCode = new double[supports.size()];
+        variancesByCode = new double[supports.size()];
+        for (Map.Entry<T, Double> entry : supports.entrySet()) {
+            double support = entry.getValue();
+            double variance = support * (1 - support);
+            variances.put(entry.getKey(), variance);
+            int code = dictionary.encode(entry.getKey());
+            supportsByCode[code] = support;
+            variancesByCode[code] = variance;
+        }
+        this.supports = Collections.unmodifiableMap(new HashMap<>(supports));
+        this.variances = Collections.unmodifiableMap(variances);
+    }
+
+    /**
+     * Get the expected support of an item.
+     * @param code the code of the item in the dictionary
+     * @return the expected support
+     */
+    public double getSupportOfCode(int code) {
+        return supportsByCode[code];
+    }
+
+    /**
+     * Get the variance of an item.
+     * @param code the code of the item in the dictionary
+     * @return the variance
+     */
+    public double getVarianceOfCode(int code) {
+        return variancesByCode[code];
+    }
+
+    /**
+     * Get the dictionary giving a dense code to each item, used by bitset itemsets.
+     * The codes are assigned in the iteration order of the support map.
+     * @return the dictionary
+     */
+    public ItemDictionary<T> getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Get the expected support of an item.
+     * @param item the item
+     * @return the expected support
+     */
+    public double getSupport(T item) {
+        return supports.get(item);
+    }
+
+    /**
+     * Get the variance of an item.
+     * @param item the item
+     * @return the variance
+     */
+    public double getVariance(T item) {
+        return variances.get(item);
+    }
+
+    /**
+     * Get the expected support of each item.
+     * @return an unmodifiable map where keys are items and values are their expected support
+     */
+    public Map<T, Double> getSupports() {
+        return supports;
+    }
+
+    /**
+     * Get the items of the database.
+     * @return an unmodifiable set of items
+     */
+    public Set<T> getItems() {
+        return supports.keySet();
+    }
+
+    /**
+     * Get the number of items.
+     * @return the item count
+     */
+    public int size() {
+        return supports.size();
+    }
+}
@@ -60,7 +60,6 @@ public class ItemU<T>{
      * @return an hash code as a int.
      */
     public int hashCode() {
-        String string = "" + getId();
-        return string.hashCode();
+        return getId().hashCode();
     }
 }
@@ -0,0 +1,329 @@
+package pattern.itemset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * A prefix-tree storing itemsets of the same size k, where each itemset is a path
+ * from the root to a leaf. Items of an itemset are assumed to be sorted by increasing id.
+ * It is used by the Apriori-based algorithms to generate candidates by joining itemsets
+ * sharing the same prefix, to check if all subsets of a candidate are frequent in O(k),
+ * and to count the support of all candidates contained in a transaction with a single walk.
+ */
+public class ItemsetTrie<T extends Comparable<T>> {
+
+    /**
+     * A node of the trie. The children are kept sorted by item id so that
+     * siblings can be joined in lexical order.
+     */
+    private static class Node<T extends Comparable<T>> {
+        // the children of this node
+        final TreeMap<T, Node<T>> children = new TreeMap<>();
+        // the children indexed by item code, used to walk the trie with the item codes of a transaction
+        // (see indexCodes); it is replaced as a whole, so that a walk never mixes two indexes
+        ChildIndex<T> childIndex;
+        // the itemset ending at this node (only for leaves)
+        ItemsetU<T> itemset;
+        // the position of that itemset in the order of insertion
+        int index;
+    }
+
+    /**
+     * The item codes of the children of a node sorted by increasing code, and the child of each code.
+     */
+    private static class ChildIndex<T extends Comparable<T>> {
+        final int[] codes;
+        final Node<T>[] nodes;
+
+        ChildIndex(int[] codes, Node<T>[] nodes) {
+            this.codes = codes;
+            this.nodes = nodes;
+        }
+    }
+
+    // the root of the trie (the empty itemset)
+    private final Node<T> root = new Node<>();
+
+    // the size of the itemsets stored in this trie
+    private final int k;
+
+    // the number of itemsets stored in this trie
+    private int itemsetCount = 0;
+
+    // the dictionary of the item codes of the children of the nodes, or null if they must be indexed again,
+    // and its size when they were indexed (items added to the dictionary later are not indexed)
+    private volatile ItemDictionary<T> indexedDictionary = null;
+    private volatile int indexedItemCount = 0;
+
+    /**
+     * Constructor
+     * @param k the size of the itemsets stored in this trie
+     */
+    public ItemsetTrie(int k) {
+        this.k = k;
+    }
+
+    /**
+     * Insert an itemset of size k in this trie. The itemset is given an index
+     * which is the number of distinct itemsets inserted before it.
+     * @param itemset the itemset
+     */
+    public void insert(ItemsetU<T> itemset) {
+        indexedDictionary = null;
+        Node<T> node = root;
+        for (ItemU<T> item : itemset.getItems()) {
+            Node<T> child = node.children.get(item.getId());
+            if (child == null) {
+                child = new Node<>();
+                node.children.put(item.getId(), child);
+            }
+            node = child;
+        }
+        if (node.itemset == null) {
+            node.index = itemsetCount;
+            itemsetCount++;
+        }
+        node.itemset = itemset;
+    }
+
+    /**
+     * Find the itemset of this trie having the given items.
+     * @param items the items, sorted by increasing id
+     * @return the itemset, or null if it is not in this trie
+     */
+    public ItemsetU<T> get(List<ItemU<T>> items) {
+        Node<T> node = root;
+        for (ItemU<T> item : items) {
+            node = node.children.get(item.getId());
+            if (node == null) {
+                return null;
+            }
+        }
+        return node.itemset;
+    }
+
+    /**
+     * Check if the subset obtained by removing the item at a given position from
+     * an itemset of size k+1 is stored in this trie. No subset is created.
+     * @param items the items of the itemset of size k+1, sorted by increasing id
+     * @param excludedPosition the position of the item to remove
+     * @return true if the subset is in this trie, otherwise false
+     */
+    public boolean containsSubsetWithout(List<ItemU<T>> items, int excludedPosition) {
+        Node<T> node = root;
+        for (int i = 0; i < items.size(); i++) {
+            if (i == excludedPosition) {
+                continue;
+            }
+            node = node.children.get(items.get(i).getId());
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.itemset != null;
+    }
+
+    /**
+     * Generate the candidates of size k+1 by joining each pair of itemsets of this trie
+     * sharing the same prefix of size k-1 (siblings). A candidate is kept only if all its
+     * subsets of size k are stored in this trie.
+     * @return the list of candidates of size k+1
+     */
+    public List<ItemsetU<T>> generateCandidates() {
+        List<ItemsetU<T>> candidates = new ArrayList<>();
+        if (k == 0) {
+            return candidates;
+        }
+        generateCandidates(root, 1, candidates);
+        return candidates;
+    }
+
+    /**
+     * Recursive method to find the parents of leaves and join their children.
+     * @param node the current node
+     * @param depth the depth of the children of the current node
+     * @param candidates the list where candidates are added
+     */
+    private void generateCandidates(Node<T> node, int depth, List<ItemsetU<T>> candidates) {
+        if (depth < k) {
+            for (Node<T> child : node.children.values()) {
+                generateCandidates(child, depth + 1, candidates);
+            }
+            return;
+        }
+        // the children are leaves that share the same prefix: join each pair in lexical order
+        List<Node<T>> leaves = new ArrayList<>(node.children.values());
+        for (int i = 0; i < leaves.size(); i++) {
+            ItemsetU<T> itemset1 = leaves.get(i).itemset;
+            for (int j = i + 1; j < leaves.size(); j++) {
+                ItemsetU<T> itemset2 = leaves.get(j).itemset;
+                ItemsetU<T> candidate = new ItemsetU<>();
+                for (ItemU<T> item : itemset1.getItems()) {
+                    candidate.addItem(item);
+                }
+                candidate.addItem(itemset2.get(k - 1));
+                // The subsets obtained by removing one of the two last items are itemset1 and itemset2,
+                // so only the other subsets need to be checked.
+                if (allSubsetsAreStored(candidate)) {
+                    candidates.add(candidate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check if all subsets of size k of a candidate of size k+1 are stored in this trie,
+     * except the two subsets used to create the candidate.
+     * @param candidate the candidate
+     * @return true if all subsets are stored, otherwise false
+     */
+    private boolean allSubsetsAreStored(ItemsetU<T> candidate) {
+        List<ItemU<T>> items = candidate.getItems();
+        for (int i = 0; i < items.size() - 2; i++) {
+            if (!containsSubsetWithout(items, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Increase the expected support of every itemset of this trie contained in a transaction
+     * by the probability that the itemset appears in that transaction, multiplied by the
+     * multiplicity of the transaction if identical transactions were merged. The supports are added
+     * to an array indexed by the order of insertion of the itemsets, so that several
+     * transactions can be counted concurrently into different arrays.
+     * @param database the database
+     * @param transaction the position of the transaction in the database
+     * @param supports the array of supports, of length size()
+     */
+    public void countSupport(UTransactionDatabase<T> database, int transaction, double[] supports) {
+        int start = database.getTransactionStart(transaction);
+        int end = database.getTransactionEnd(transaction);
+        if (k == 0 || end - start < k) {
+            return;
+        }
+        if (indexedDictionary != database.getDictionary() || indexedItemCount != database.getDictionary().size()) {
+            indexCodes(database.getDictionary());
+        }
+        countSupport(root, database.getItemCodes(), database.getProbabilities(),
+                start, end, 0, database.getMultiplicity(transaction), supports);
+    }
+
+    /**
+     * Index the children of every node by item code, so that a transaction stored as item codes
+     * can be matched without converting the codes back to item ids. This is done once, before
+     * the first transaction of a database is counted, and again if itemsets are inserted later.
+     * @param dictionary the dictionary of the item codes
+     */
+    private synchronized void indexCodes(ItemDictionary<T> dictionary) {
+        if (indexedDictionary == dictionary && indexedItemCount == dictionary.size()) {
+            return;
+        }
+        int itemCount = dictionary.size();
+        indexCodes(root, dictionary);
+        // the index is complete before it is published
+        indexedItemCount = itemCount;
+        indexedDictionary = dictionary;
+    }
+
+    /**
+     * Recursive method to index the children of a node and of its descendants by item code.
+     * The items that are not in the dictionary are not indexed, since no transaction contains them.
+     * @param node the node
+     * @param dictionary the dictionary of the item codes
+     */
+    @SuppressWarnings("unchecked")
+    private void indexCodes(Node<T> node, ItemDictionary<T> dictionary) {
+        long[] codedChildren = new long[node.children.size()];
+        List<Node<T>> children = new ArrayList<>(node.children.values());
+        int count = 0;
+        int position = 0;
+        for (T item : node.children.keySet()) {
+            int code = dictionary.getCode(item);
+            if (code != -1) {
+                // sort the children by code, remembering their position
+                codedChildren[count++] = ((long) code << 32) | position;
+            }
+            position++;
+        }
+        Arrays.sort(codedChildren, 0, count);
+        int[] childCodes = new int[count];
+        Node<T>[] childNodes = (Node<T>[]) new Node<?>[count];
+        for (int i = 0; i < count; i++) {
+            childCodes[i] = (int) (codedChildren[i] >>> 32);
+            childNodes[i] = children.get((int) codedChildren[i]);
+            indexCodes(childNodes[i], dictionary);
+        }
+        node.childIndex = new ChildIndex<>(childCodes, childNodes);
+    }
+
+    /**
+     * Recursive method to walk the trie with the items of a transaction.
+     * @param node the current node
+     * @param itemCodes the item codes of the database
+     * @param probabilities the probabilities of the database
+     * @param start the position of the first item of the transaction that can be matched
+     * @param end the position after the last item of the transaction
+     * @param depth the depth of the current node
+     * @param probability the product of the probabilities of the items matched so far
+     * @param supports the array of supports
+     */
+    private void countSupport(Node<T> node, int[] itemCodes, double[] probabilities,
+                              int start, int end, int depth, double probability, double[] supports) {
+        if (depth == k) {
+            supports[node.index] += probability;
+            return;
+        }
+        // stop when there is not enough items left to reach a leaf
+        int last = end - (k - depth);
+        ChildIndex<T> childIndex = node.childIndex;
+        int[] childCodes = childIndex.codes;
+        for (int i = start; i <= last; i++) {
+            // only the first occurrence of an item in a transaction is kept
+            // (the items are sorted, so repeated items are next to each other)
+            if (i > start && itemCodes[i] == itemCodes[i - 1]) {
+                continue;
+            }
+            int child = Arrays.binarySearch(childCodes, itemCodes[i]);
+            if (child >= 0) {
+                countSupport(childIndex.nodes[child], itemCodes, probabilities, i + 1, end, depth + 1,
+                        probability * probabilities[i], supports);
+            }
+        }
+    }
+
+    /**
+     * Get the itemsets stored in this trie, in lexical order.
+     * @return a list of itemsets
+     */
+    public List<ItemsetU<T>> getItemsets() {
+        List<ItemsetU<T>> itemsets = new ArrayList<>(itemsetCount);
+        collectItemsets(root, itemsets);
+        return itemsets;
+    }
+
+    /**
+     * Recursive method to collect the itemsets stored below a node.
+     * @param node the node
+     * @param itemsets the list where itemsets are added
+     */
+    private void collectItemsets(Node<T> node, List<ItemsetU<T>> itemsets) {
+        if (node.itemset != null) {
+            itemsets.add(node.itemset);
+        }
+        for (Node<T> child : node.children.values()) {
+            collectItemsets(child, itemsets);
+        }
+    }
+
+    /**
+     * Get the number of itemsets stored in this trie.
+     * @return the itemset count
+     */
+    public int size() {
+        return itemsetCount;
+    }
+}
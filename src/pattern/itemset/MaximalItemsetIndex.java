@@ -0,0 +1,96 @@
+package pattern.itemset;
+
+import java.util.Arrays;
+
+/**
+ * An index of confirmed (maximal) itemsets answering the question "does the index contain
+ * a superset of a given itemset?" without comparing the itemset with each indexed itemset.
+ * <br/><br/>
+ * Each indexed itemset receives a number, and each item code keeps a bitset of the numbers
+ * of the indexed itemsets containing that item. The indexed supersets of an itemset are then
+ * the intersection of the bitsets of its items, which is computed 64 itemsets at a time and
+ * stops as soon as a non-empty word is found.
+ */
+public class MaximalItemsetIndex {
+
+    // for each item code, the bitset of the indexed itemsets containing that item
+    private long[][] itemsetsOfItem;
+    // the number of indexed itemsets
+    private int size = 0;
+
+    /**
+     * Constructor
+     * @param itemCount the number of items in the dictionary used to encode the itemsets
+     */
+    public MaximalItemsetIndex(int itemCount) {
+        itemsetsOfItem = new long[itemCount][];
+        for (int code = 0; code < itemCount; code++) {
+            itemsetsOfItem[code] = new long[1];
+        }
+    }
+
+    /**
+     * Add an itemset to the index.
+     * @param itemset the itemset
+     */
+    public void add(BitSetItemset itemset) {
+        int word = size >>> 6;
+        for (int code = itemset.nextItem(0); code >= 0; code = itemset.nextItem(code + 1)) {
+            if (code >= itemsetsOfItem.length) {
+                int oldLength = itemsetsOfItem.length;
+                itemsetsOfItem = Arrays.copyOf(itemsetsOfItem, code + 1);
+                for (int i = oldLength; i <= code; i++) {
+                    itemsetsOfItem[i] = new long[1];
+                }
+            }
+            long[] bits = itemsetsOfItem[code];
+            if (word >= bits.length) {
+                bits = Arrays.copyOf(bits, Math.max(word + 1, bits.length * 2));
+                itemsetsOfItem[code] = bits;
+            }
+            bits[word] |= 1L << size;
+        }
+        size++;
+    }
+
+    /**
+     * Check if the index contains an itemset that is a superset of (or equal to) a given itemset.
+     * @param itemset the itemset
+     * @return true if yes, otherwise false
+     */
+    public boolean containsSupersetOf(BitSetItemset itemset) {
+        if (size == 0) {
+            return false;
+        }
+        int[] codes = itemset.toArray();
+        if (codes.length == 0) {
+            return true;
+        }
+        // the number of words to intersect is bounded by the shortest bitset
+        int wordCount = (size + 63) >>> 6;
+        for (int code : codes) {
+            if (code >= itemsetsOfItem.length) {
+                return false;
+            }
+            wordCount = Math.min(wordCount, itemsetsOfItem[code].length);
+        }
+        for (int word = 0; word < wordCount; word++) {
+            long intersection = -1L;
+            for (int i = 0; i < codes.length && intersection != 0; i++) {
+                intersection &= itemsetsOfItem[codes[i]][word];
+            }
+            if (intersection != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of indexed itemsets.
+     * @return the itemset count
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,245 @@
+package pattern.itemset;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An uncertain database loaded from a text file ("item(probability)" or "item(probability)[weight]")
+ * into columns stored in direct buffers, outside of the Java heap. Only the item dictionary is on the
+ * heap, so a database much larger than the heap can be mined with the algorithms reading
+ * {@link ColumnarDatabase}s. The direct memory is limited by the option -XX:MaxDirectMemorySize, which
+ * is the maximum heap size by default. To avoid parsing the text at each execution, a file can rather be
+ * converted once to a {@link BinaryUncertainDatabase}, which is mapped in place.
+ * <br/><br/>
+ * The columns have the layout of BinaryUncertainDatabase, and items are stored in the order of the text file.
+ * Each column is a list of segments of 2^20 elements, which are allocated while the file is read and never
+ * copied, so the direct memory used is the size of the columns plus at most one segment per column. The
+ * positions of the item occurrences are longs, so their number is only limited by the direct memory.
+ */
+public class OffHeapUncertainDatabase implements ColumnarDatabase {
+
+    // the number of bits of a position within a segment, and the number of elements of a segment
+    private static final int SEGMENT_SHIFT = 20;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    // the item id of each item code (Integer or String)
+    private final ItemDictionary<Object> dictionary;
+    // the number of transactions and item occurrences
+    private final int transactionCount;
+    private final long occurrenceCount;
+    // the segments of the columns, which are views of direct buffers
+    private final LongBuffer[] offsets;
+    private final IntBuffer[] itemCodes;
+    private final DoubleBuffer[] probabilities;
+    // the segments of the weights, or null if the items have no weight
+    private final DoubleBuffer[] weights;
+
+    /**
+     * Constructor from the columns filled by a loader.
+     * @param loader the loader
+     */
+    private OffHeapUncertainDatabase(Loader loader) {
+        dictionary = loader.dictionary;
+        transactionCount = loader.transactionCount;
+        occurrenceCount = loader.occurrenceCount;
+        offsets = loader.offsets.asLongBuffers();
+        itemCodes = loader.itemCodes.asIntBuffers();
+        probabilities = loader.probabilities.asDoubleBuffers();
+        weights = loader.weights == null ? null : loader.weights.asDoubleBuffers();
+    }
+
+    /**
+     * Load a database from a text file.
+     * @param path the path of the file
+     * @return the database
+     * @throws IOException if an error occurs while reading the file or if it is malformed
+     */
+    public static OffHeapUncertainDatabase loadFile(String path) throws IOException {
+        try (InputStream input = new FileInputStream(path)) {
+            return load(input);
+        }
+    }
+
+    /**
+     * Load a database from a stream in a text format, with one transaction per line.
+     * @param input the stream
+     * @return the database
+     * @throws IOException if an error occurs while reading the stream or if it is malformed
+     */
+    public static OffHeapUncertainDatabase load(InputStream input) throws IOException {
+        Loader loader = new Loader();
+        new TransactionParser(input).parse(loader);
+        return new OffHeapUncertainDatabase(loader);
+    }
+
+    @Override
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    /**
+     * Get the number of item occurrences in all transactions.
+     * @return the occurrence count
+     */
+    public long getOccurrenceCount() {
+        return occurrenceCount;
+    }
+
+    @Override
+    public int getItemCount() {
+        return dictionary.size();
+    }
+
+    @Override
+    public Object getItem(int code) {
+        return dictionary.getItem(code);
+    }
+
+    /**
+     * Check if the items have weights.
+     * @return true if at least one item has a weight, otherwise false
+     */
+    public boolean hasWeights() {
+        return weights != null;
+    }
+
+    /**
+     * Get the position of the first item occurrence of a transaction.
+     * @param transaction the position of the transaction, or the transaction count for the end of the last transaction
+     * @return the position of its first item occurrence
+     */
+    private long getOffset(int transaction) {
+        return offsets[transaction >>> SEGMENT_SHIFT].get(transaction & (SEGMENT_SIZE - 1));
+    }
+
+    @Override
+    public TransactionCursor cursor(int first, int end) {
+        return new ColumnCursor(this::getOffset, transactionCount, SEGMENT_SHIFT, itemCodes, probabilities, weights,
+                first, end);
+    }
+
+    /**
+     * A column of values of a fixed size, stored in direct buffers of SEGMENT_SIZE values,
+     * which are allocated when the column is filled.
+     */
+    private static class Column {
+        // the number of bytes of a value
+        private final int valueSize;
+        // the segments, in the native byte order
+        private final List<ByteBuffer> segments = new ArrayList<>();
+
+        Column(int valueSize) {
+            this.valueSize = valueSize;
+        }
+
+        /**
+         * Get the segment of a position, which is allocated if the position is the first one after the column.
+         * @param position the position
+         * @return the segment
+         */
+        private ByteBuffer segment(long position) {
+            int segment = (int) (position >>> SEGMENT_SHIFT);
+            if (segment == segments.size()) {
+                segments.add(ByteBuffer.allocateDirect(SEGMENT_SIZE * valueSize).order(ByteOrder.nativeOrder()));
+            }
+            return segments.get(segment);
+        }
+
+        void putInt(long position, int value) {
+            segment(position).putInt((int) (position & (SEGMENT_SIZE - 1)) * valueSize, value);
+        }
+
+        void putLong(long position, long value) {
+            segment(position).putLong((int) (position & (SEGMENT_SIZE - 1)) * valueSize, value);
+        }
+
+        void putDouble(long position, double value) {
+            segment(position).putDouble((int) (position & (SEGMENT_SIZE - 1)) * valueSize, value);
+        }
+
+        LongBuffer[] asLongBuffers() {
+            LongBuffer[] views = new LongBuffer[segments.size()];
+            for (int i = 0; i < views.length; i++) {
+                views[i] = segments.get(i).asLongBuffer();
+            }
+            return views;
+        }
+
+        IntBuffer[] asIntBuffers() {
+            IntBuffer[] views = new IntBuffer[segments.size()];
+            for (int i = 0; i < views.length; i++) {
+                views[i] = segments.get(i).asIntBuffer();
+            }
+            return views;
+        }
+
+        DoubleBuffer[] asDoubleBuffers() {
+            DoubleBuffer[] views = new DoubleBuffer[segments.size()];
+            for (int i = 0; i < views.length; i++) {
+                views[i] = segments.get(i).asDoubleBuffer();
+            }
+            return views;
+        }
+    }
+
+    /**
+     * A handler of the text parser appending the items to columns. The column of the weights
+     * is only created when an item has a weight.
+     */
+    private static class Loader implements TransactionParser.Handler {
+        final ItemDictionary<Object> dictionary = new ItemDictionary<>();
+        final Column offsets = new Column(8);
+        final Column itemCodes = new Column(4);
+        final Column probabilities = new Column(8);
+        Column weights = null;
+        int transactionCount = 0;
+        long occurrenceCount = 0;
+
+        Loader() {
+            offsets.putLong(0, 0);
+        }
+
+        @Override
+        public void item(int id, double probability, double weight) {
+            add(dictionary.encodeInt(id), probability, weight);
+        }
+
+        @Override
+        public void item(String id, double probability, double weight) {
+            add(dictionary.encode(id), probability, weight);
+        }
+
+        private void add(int code, double probability, double weight) {
+            if (weights == null && !Double.isNaN(weight)) {
+                // the previous items have no weight
+                weights = new Column(8);
+                for (long position = 0; position < occurrenceCount; position++) {
+                    weights.putDouble(position, Double.NaN);
+                }
+            }
+            itemCodes.putInt(occurrenceCount, code);
+            probabilities.putDouble(occurrenceCount, probability);
+            if (weights != null) {
+                weights.putDouble(occurrenceCount, weight);
+            }
+            occurrenceCount++;
+        }
+
+        @Override
+        public void endTransaction() {
+            if (transactionCount == Integer.MAX_VALUE - 1) {
+                throw new IllegalStateException("The database has too many transactions");
+            }
+            transactionCount++;
+            offsets.putLong(transactionCount, occurrenceCount);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package pattern.itemset;
+
+import java.util.Arrays;
+
+/**
+ * A packed list of (transaction id, probability) pairs used by the vertical
+ * mode of the miners. The transaction ids are kept in increasing order so that
+ * two lists can be intersected with a single merge pass.
+ */
+public class TidList {
+    // the ids of the transactions containing the itemset (in increasing order)
+    private int[] tids;
+    // the probability of the itemset in each of these transactions
+    private double[] probabilities;
+    // the number of pairs stored in this list
+    private int size = 0;
+
+    /**
+     * Constructor
+     * @param initialCapacity the initial number of pairs that can be stored
+     */
+    public TidList(int initialCapacity) {
+        tids = new int[Math.max(initialCapacity, 1)];
+        probabilities = new double[Math.max(initialCapacity, 1)];
+    }
+
+    /**
+     * Default constructor
+     */
+    public TidList() {
+        this(8);
+    }
+
+    /**
+     * Append a pair to this list. The transaction id must be larger than
+     * the last one that was added.
+     * @param tid the transaction id
+     * @param probability the probability of the itemset in that transaction
+     */
+    public void add(int tid, double probability) {
+        if (size == tids.length) {
+            int newCapacity = tids.length * 2;
+            tids = Arrays.copyOf(tids, newCapacity);
+            probabilities = Arrays.copyOf(probabilities, newCapacity);
+        }
+        tids[size] = tid;
+        probabilities[size] = probability;
+        size++;
+    }
+
+    /**
+     * Get the number of transactions in this list.
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the transaction id at a given position.
+     * @param index the position
+     * @return the transaction id
+     */
+    public int getTid(int index) {
+        return tids[index];
+    }
+
+    /**
+     * Get the probability at a given position.
+     * @param index the position
+     * @return the probability
+     */
+    public double getProbability(int index) {
+        return probabilities[index];
+    }
+
+    /**
+     * Get the last transaction id of this list, or -1 if the list is empty.
+     * @return the transaction id
+     */
+    public int getLastTid() {
+        return size == 0 ? -1 : tids[size - 1];
+    }
+
+    /**
+     * Calculate the expected support of the itemset represented by this list,
+     * that is the sum of its probabilities.
+     * @return the expected support
+     */
+    public double getExpectedSupport() {
+        double expectedSupport = 0;
+        for (int i = 0; i < size; i++) {
+            expectedSupport += probabilities[i];
+        }
+        return expectedSupport;
+    }
+
+    /**
+     * Intersect this list with another list. The probability of each common
+     * transaction is the product of the probabilities of both lists, since the items
+     * are assumed to be independent.
+     * @param other the other list
+     * @return a new list containing the common transactions
+     */
+    public TidList intersect(TidList other) {
+        TidList result = new TidList(Math.min(size, other.size));
+        int i = 0;
+        int j = 0;
+        // merge both lists, keeping only the common transaction ids
+        while (i < size && j < other.size) {
+            int tid = tids[i];
+            int otherTid = other.tids[j];
+            if (tid == otherTid) {
+                result.add(tid, probabilities[i] * other.probabilities[j]);
+                i++;
+                j++;
+            } else if (tid < otherTid) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        result.trimToSize();
+        return result;
+    }
+
+    /**
+     * Release the unused capacity of this list.
+     */
+    public void trimToSize() {
+        if (tids.length > size) {
+            tids = Arrays.copyOf(tids, Math.max(size, 1));
+            probabilities = Arrays.copyOf(probabilities, Math.max(size, 1));
+        }
+    }
+}
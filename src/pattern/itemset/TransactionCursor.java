@@ -0,0 +1,58 @@
+package pattern.itemset;
+
+/**
+ * A read-only cursor over a range of transactions of a {@link ColumnarDatabase}. The cursor is
+ * positioned before the first transaction of the range, and next() moves it to the following
+ * transaction, whose items are then read by position:
+ * <pre>
+ * TransactionCursor cursor = database.cursor(0, database.getTransactionCount());
+ * while (cursor.next()) {
+ *     for (int i = 0; i < cursor.size(); i++) {
+ *         ... cursor.getItemCode(i), cursor.getProbability(i), cursor.getWeight(i)
+ *     }
+ * }
+ * </pre>
+ * No object is created per transaction or per item. A cursor is used by a single thread, but
+ * several cursors of the same database can be used concurrently.
+ */
+public interface TransactionCursor {
+
+    /**
+     * Move to the next transaction of the range.
+     * @return true if there is such a transaction, false if the end of the range is reached
+     */
+    boolean next();
+
+    /**
+     * Get the position of the current transaction in the database.
+     * @return the tid
+     */
+    int getTid();
+
+    /**
+     * Get the number of item occurrences of the current transaction.
+     * @return the size
+     */
+    int size();
+
+    /**
+     * Get the code of an item of the current transaction (see ColumnarDatabase.getItem).
+     * @param position the position of the item in the transaction
+     * @return the item code
+     */
+    int getItemCode(int position);
+
+    /**
+     * Get the existential probability of an item of the current transaction.
+     * @param position the position of the item in the transaction
+     * @return the probability
+     */
+    double getProbability(int position);
+
+    /**
+     * Get the weight of an item of the current transaction.
+     * @param position the position of the item in the transaction
+     * @return the weight, or NaN if the item has no weight
+     */
+    double getWeight(int position);
+}
@@ -0,0 +1,300 @@
+package pattern.itemset;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A single-pass parser of uncertain databases in the text formats "item(probability)"
+ * and "item(probability)[weight]", where each line is a transaction and items are separated
+ * by spaces. Lines that are empty or start with '#', '%' or '@' are skipped.
+ * <br/><br/>
+ * The parser reads bytes from a ByteBuffer (refilled from a channel when reading a stream)
+ * and does not use regular expressions nor create substrings: numeric item ids and
+ * decimal numbers are parsed digit by digit. Only item ids that are not integers are
+ * converted to strings. Each item is reported to a {@link Handler}, which can store it
+ * directly in a compact layout.
+ */
+public class TransactionParser {
+
+    /**
+     * Receive the items parsed from a database.
+     */
+    public interface Handler {
+        /**
+         * Called for an item having an integer id.
+         * @param id the item id
+         * @param probability the existential probability
+         * @param weight the weight, or NaN if the item has no weight
+         */
+        void item(int id, double probability, double weight);
+
+        /**
+         * Called for an item having an id that is not an integer.
+         * @param id the item id
+         * @param probability the existential probability
+         * @param weight the weight, or NaN if the item has no weight
+         */
+        void item(String id, double probability, double weight);
+
+        /**
+         * Called at the end of each transaction (line).
+         */
+        void endTransaction();
+    }
+
+    /**
+     * A handler receiving only the items that have a weight, with ids of the type of items: an
+     * integer id is boxed as an Integer and another id is a String, so the type of items must match
+     * the ids of the database.
+     * @param <T> the type of items
+     */
+    public abstract static class WeightedItemHandler<T> implements Handler {
+        @Override
+        @SuppressWarnings("unchecked")
+        public final void item(int id, double probability, double weight) {
+            if (!Double.isNaN(weight)) {
+                weightedItem((T) Integer.valueOf(id), probability, weight);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public final void item(String id, double probability, double weight) {
+            if (!Double.isNaN(weight)) {
+                weightedItem((T) id, probability, weight);
+            }
+        }
+
+        /**
+         * Called for an item having a weight.
+         * @param item the item
+         * @param probability the existential probability
+         * @param weight the weight
+         */
+        protected abstract void weightedItem(T item, double probability, double weight);
+    }
+
+    // the size of the buffer used when reading a stream
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // the powers of ten that are exactly represented as doubles
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    // the buffer of bytes to parse
+    private final ByteBuffer buffer;
+    // the channel used to refill the buffer, or null if the buffer contains the whole input
+    private final ReadableByteChannel channel;
+    // the bytes of the current token (only used for string ids and unusual numbers)
+    private byte[] token = new byte[64];
+    // the current line, for error messages
+    private int lineNumber = 1;
+
+    /**
+     * Constructor of a parser reading a stream.
+     * @param input the stream
+     */
+    public TransactionParser(InputStream input) {
+        this.channel = Channels.newChannel(input);
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buffer.limit(0);
+    }
+
+    /**
+     * Constructor of a parser reading a buffer containing the whole input (e.g. a mapped file).
+     * @param buffer the buffer, read from its position to its limit
+     */
+    public TransactionParser(ByteBuffer buffer) {
+        this.channel = null;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Parse the whole input.
+     * @param handler the handler receiving the items
+     * @throws IOException if an error occurs while reading or if the input is malformed
+     */
+    public void parse(Handler handler) throws IOException {
+        int c = read();
+        while (c != -1) {
+            // skip empty lines, comments and metadata
+            if (c == '\n' || c == '\r' || c == '#' || c == '%' || c == '@') {
+                c = skipLine(c);
+                continue;
+            }
+            c = parseTransaction(c, handler);
+        }
+    }
+
+    /**
+     * Parse a transaction (line).
+     * @param c the first byte of the line
+     * @param handler the handler
+     * @return the first byte of the next line, or -1 at the end of the input
+     * @throws IOException if an error occurs while reading or if the line is malformed
+     */
+    private int parseTransaction(int c, Handler handler) throws IOException {
+        while (true) {
+            // skip the separators
+            while (c == ' ' || c == '\t') {
+                c = read();
+            }
+            if (c == -1 || c == '\n' || c == '\r') {
+                handler.endTransaction();
+                return skipLine(c);
+            }
+            c = parseItem(c, handler);
+        }
+    }
+
+    /**
+     * Parse an item "id(probability)" or "id(probability)[weight]".
+     * @param c the first byte of the item
+     * @param handler the handler
+     * @return the byte following the item
+     * @throws IOException if an error occurs while reading or if the item is malformed
+     */
+    private int parseItem(int c, Handler handler) throws IOException {
+        // read the id, as an integer as long as it only contains digits
+        int length = 0;
+        long numericId = 0;
+        boolean numeric = true;
+        while (c != '(') {
+            if (c == -1 || c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                throw new IOException("Missing probability for an item at line " + lineNumber);
+            }
+            if (c >= '0' && c <= '9' && numeric) {
+                numericId = numericId * 10 + (c - '0');
+                numeric = numericId <= Integer.MAX_VALUE;
+            } else {
+                numeric = false;
+            }
+            appendToToken(length++, c);
+            c = read();
+        }
+        numeric = numeric && length > 0;
+        String stringId = numeric ? null : new String(token, 0, length, StandardCharsets.UTF_8);
+
+        // read the probability
+        double probability = parseNumber(')');
+        c = read();
+        // read the weight, if any
+        double weight = Double.NaN;
+        if (c == '[') {
+            weight = parseNumber(']');
+            c = read();
+        }
+        if (numeric) {
+            handler.item((int) numericId, probability, weight);
+        } else {
+            handler.item(stringId, probability, weight);
+        }
+        return c;
+    }
+
+    /**
+     * Parse a decimal number such as "0.25" or ".5" up to a closing byte. The digits are
+     * accumulated in a long which is then divided by a power of ten, which gives the same
+     * double as Double.parseDouble. Other notations (e.g. exponents) fall back to Double.parseDouble.
+     * @param end the closing byte
+     * @return the number
+     * @throws IOException if an error occurs while reading or if the number is malformed
+     */
+    private double parseNumber(int end) throws IOException {
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        boolean simple = true;
+        int length = 0;
+        int c = read();
+        while (c != end) {
+            if (c == -1 || c == '\n' || c == '\r') {
+                throw new IOException("Unterminated number at line " + lineNumber);
+            }
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                simple = false;
+            }
+            appendToToken(length++, c);
+            c = read();
+        }
+        if (simple && digits > 0 && digits <= 15 && fractionDigits < POWERS_OF_TEN.length) {
+            return fractionDigits <= 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+        }
+        try {
+            return Double.parseDouble(new String(token, 0, length, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number at line " + lineNumber, e);
+        }
+    }
+
+    /**
+     * Skip the remaining bytes of the current line.
+     * @param c the current byte
+     * @return the first byte of the next line, or -1 at the end of the input
+     * @throws IOException if an error occurs while reading
+     */
+    private int skipLine(int c) throws IOException {
+        while (c != -1 && c != '\n') {
+            c = read();
+        }
+        if (c == '\n') {
+            lineNumber++;
+            c = read();
+        }
+        return c;
+    }
+
+    /**
+     * Store a byte of the current token.
+     * @param position the position of the byte in the token
+     * @param c the byte
+     */
+    private void appendToToken(int position, int c) {
+        if (position == token.length) {
+            token = Arrays.copyOf(token, token.length * 2);
+        }
+        token[position] = (byte) c;
+    }
+
+    /**
+     * Read the next byte, refilling the buffer from the channel if needed.
+     * @return the byte, or -1 at the end of the input
+     * @throws IOException if an error occurs while reading
+     */
+    private int read() throws IOException {
+        if (!buffer.hasRemaining()) {
+            if (channel == null) {
+                return -1;
+            }
+            buffer.clear();
+            int count;
+            do {
+                count = channel.read(buffer);
+            } while (count == 0);
+            buffer.flip();
+            if (count == -1) {
+                return -1;
+            }
+        }
+        return buffer.get() & 0xFF;
+    }
+}
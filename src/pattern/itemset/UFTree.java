@@ -0,0 +1,162 @@
+package pattern.itemset;
+
+import java.util.Arrays;
+
+/**
+ * A UF-tree: a prefix tree compressing uncertain transactions, where a node is identified by
+ * an item code and the existential probability of that item. Transactions sharing a prefix of
+ * (item, probability) pairs share the same nodes, and each node counts the transactions going
+ * through it. The nodes of each item are linked from a header table.
+ * <br/><br/>
+ * The items of a path are stored in decreasing order of their codes, so that the conditional
+ * tree of an item only contains items with larger codes. In a conditional tree, each path also
+ * has a multiplier: the probability of the conditioning itemset in the transactions of that path.
+ * The probability of (conditioning itemset + item) in a transaction is then the probability of the
+ * item multiplied by the multiplier of its node.
+ */
+public class UFTree {
+
+    /**
+     * A node of the tree.
+     */
+    private static class Node {
+        // the item code
+        final int code;
+        // the existential probability of the item
+        final double probability;
+        // the probability of the conditioning itemset in the transactions of this node
+        final double multiplier;
+        // the number of transactions going through this node
+        int count;
+        // the parent, first child, next sibling and next node of the same item
+        final Node parent;
+        Node firstChild;
+        Node nextSibling;
+        Node nextOfItem;
+
+        Node(int code, double probability, double multiplier, Node parent) {
+            this.code = code;
+            this.probability = probability;
+            this.multiplier = multiplier;
+            this.parent = parent;
+        }
+    }
+
+    // the root (which has no item)
+    private final Node root = new Node(-1, 1, 1, null);
+    // the first node of each item code
+    private final Node[] headers;
+    // the number of nodes, excluding the root
+    private int nodeCount = 0;
+
+    /**
+     * Constructor of an empty tree.
+     * @param itemCount the number of item codes
+     */
+    public UFTree(int itemCount) {
+        headers = new Node[itemCount];
+    }
+
+    /**
+     * Insert a transaction (or a conditional transaction).
+     * @param codes the item codes, in decreasing order
+     * @param probabilities the existential probability of each item
+     * @param length the number of items
+     * @param multiplier the probability of the conditioning itemset in this transaction (1 for the initial tree)
+     * @param count the number of identical transactions
+     */
+    public void insert(int[] codes, double[] probabilities, int length, double multiplier, int count) {
+        Node node = root;
+        for (int i = 0; i < length; i++) {
+            Node child = node.firstChild;
+            while (child != null && (child.code != codes[i] || child.probability != probabilities[i]
+                    || child.multiplier != multiplier)) {
+                child = child.nextSibling;
+            }
+            if (child == null) {
+                child = new Node(codes[i], probabilities[i], multiplier, node);
+                child.nextSibling = node.firstChild;
+                node.firstChild = child;
+                child.nextOfItem = headers[codes[i]];
+                headers[codes[i]] = child;
+                nodeCount++;
+            }
+            child.count += count;
+            node = child;
+        }
+    }
+
+    /**
+     * Check if an item appears in this tree.
+     * @param code the item code
+     * @return true if yes, otherwise false
+     */
+    public boolean contains(int code) {
+        return headers[code] != null;
+    }
+
+    /**
+     * Get the probability of (conditioning itemset + item) in each transaction of this tree containing the item.
+     * @param code the item code
+     * @return an array with one probability per transaction
+     */
+    public double[] getProbabilities(int code) {
+        int size = 0;
+        for (Node node = headers[code]; node != null; node = node.nextOfItem) {
+            size += node.count;
+        }
+        double[] result = new double[size];
+        int position = 0;
+        for (Node node = headers[code]; node != null; node = node.nextOfItem) {
+            double probability = node.probability * node.multiplier;
+            for (int i = 0; i < node.count; i++) {
+                result[position++] = probability;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Build the conditional tree of an item: for each node of the item, its path of ancestors is
+     * inserted with the probability of (conditioning itemset + item) as multiplier.
+     * @param code the item code
+     * @return the conditional tree, which only contains items with larger codes
+     */
+    public UFTree conditionalTree(int code) {
+        UFTree tree = new UFTree(headers.length);
+        int[] codes = new int[16];
+        double[] probabilities = new double[16];
+        for (Node node = headers[code]; node != null; node = node.nextOfItem) {
+            // collect the ancestors, from the node to the root
+            int length = 0;
+            for (Node ancestor = node.parent; ancestor != root; ancestor = ancestor.parent) {
+                if (length == codes.length) {
+                    codes = Arrays.copyOf(codes, length * 2);
+                    probabilities = Arrays.copyOf(probabilities, length * 2);
+                }
+                codes[length] = ancestor.code;
+                probabilities[length] = ancestor.probability;
+                length++;
+            }
+            // reverse them to get the decreasing order of codes
+            for (int i = 0, j = length - 1; i < j; i++, j--) {
+                int swappedCode = codes[i];
+                codes[i] = codes[j];
+                codes[j] = swappedCode;
+                double probability = probabilities[i];
+                probabilities[i] = probabilities[j];
+                probabilities[j] = probability;
+            }
+            tree.insert(codes, probabilities, length, node.probability * node.multiplier, node.count);
+        }
+        return tree;
+    }
+
+    /**
+     * Get the number of nodes of this tree.
+     * @return the node count
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+}
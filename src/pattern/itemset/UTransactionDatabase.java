@@ -2,8 +2,11 @@ package pattern.itemset;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class UTransactionDatabase<T extends Comparable<T>> {
@@ -11,8 +14,58 @@ public class UTransactionDatabase<T extends Comparable<T>> {
 
     // this is the set of items in the database
     private final Set<ItemU<T>> allItems = new HashSet<>();
-    // this is the list of transactions in the database
-    private final List<ItemsetU<T>> transactions = new ArrayList<>();
+    // the dictionary mapping each item id to a dense int code
+    private final ItemDictionary<T> dictionary;
+
+    // The transactions are stored in compressed sparse row format:
+    // the items of transaction i are at positions transactionOffsets[i] (inclusive)
+    // to transactionOffsets[i+1] (exclusive) of the itemCodes and probabilities arrays.
+    private int[] transactionOffsets = new int[]{0};
+    private int[] itemCodes = new int[16];
+    private double[] probabilities = new double[16];
+    // the number of transactions
+    private int transactionCount = 0;
+    // the number of item occurrences in all transactions
+    private int itemOccurrenceCount = 0;
+
+    // the number of loaded transactions represented by each transaction (1 unless duplicates are merged)
+    private int[] multiplicities = new int[1];
+    // the number of loaded transactions, including the merged duplicates
+    private int loadedTransactionCount = 0;
+    // if true, identical transactions of a batch are stored once, with a multiplicity
+    private boolean mergeDuplicates = false;
+    // the transactions of the batch being loaded, by content (only used if duplicates are merged)
+    private Map<TransactionKey, Integer> batchTransactions = null;
+
+    /**
+     * Default constructor
+     */
+    public UTransactionDatabase() {
+        this(new ItemDictionary<>());
+    }
+
+    /**
+     * Constructor of an empty database sharing the item codes of another database.
+     *
+     * @param dictionary the dictionary of the other database
+     */
+    private UTransactionDatabase(ItemDictionary<T> dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Set whether identical transactions (the same items with the same probabilities) are merged
+     * into a single transaction when they are loaded. A merged transaction has a multiplicity, the
+     * number of loaded transactions it represents, which the algorithms multiply its support by,
+     * so that each distinct transaction is scanned once. A transaction is only merged with the
+     * transactions of the same batch (a call to load, append or loadBinaryFile), so that appended
+     * transactions are always stored after the existing ones.
+     *
+     * @param mergeDuplicates true to merge the identical transactions of the next batches (false by default)
+     */
+    public void setMergeDuplicates(boolean mergeDuplicates) {
+        this.mergeDuplicates = mergeDuplicates;
+    }
 
     /**
      * Load a transaction database from a file.
@@ -21,109 +74,465 @@ public class UTransactionDatabase<T extends Comparable<T>> {
      * @throws IOException exception if error while reading the file.
      */
     public void loadFile(String path) throws IOException {
-        String thisLine;
-        BufferedReader myInput = null;
+        InputStream input = null;
         try {
-            FileInputStream fin = new FileInputStream(new File(path));
-            myInput = new BufferedReader(new InputStreamReader(fin));
-            // for each transaction (line) in the input file
-            while ((thisLine = myInput.readLine()) != null) {
-                // if the line is  a comment, is  empty or is a
-                // kind of metadata
-                if (thisLine.isEmpty() == true ||
-                        thisLine.charAt(0) == '#' || thisLine.charAt(0) == '%'
-                        || thisLine.charAt(0) == '@') {
-                    continue;
-                }
-
-                // process the transaction
-                processTransactions(thisLine.split(" "));
-            }
+            input = new FileInputStream(new File(path));
+            load(input);
         } catch (Exception e) {
             // catch exceptions
             e.printStackTrace();
         } finally {
-            if (myInput != null) {
+            if (input != null) {
                 // close the file
-                myInput.close();
+                input.close();
+            }
+        }
+    }
+
+    /**
+     * Load transactions from a stream in the format "item(probability)", with one transaction per line.
+     * The items are stored directly in the compact arrays of this database.
+     *
+     * @param input the stream
+     * @throws IOException exception if error while reading the stream or if it is malformed.
+     */
+    public void load(InputStream input) throws IOException {
+        batchTransactions = mergeDuplicates ? new HashMap<>() : null;
+        try {
+            parseTransactions(input);
+        } finally {
+            batchTransactions = null;
+        }
+    }
+
+    /**
+     * Parse transactions from a stream and add them to the compact arrays of this database.
+     *
+     * @param input the stream
+     * @throws IOException exception if error while reading the stream or if it is malformed.
+     */
+    private void parseTransactions(InputStream input) throws IOException {
+        new TransactionParser(input).parse(new TransactionParser.Handler() {
+            @Override
+            public void item(int id, double probability, double weight) {
+                int size = dictionary.size();
+                int code = dictionary.encodeInt(id);
+                addItem(code, dictionary.size() > size, probability);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void item(String id, double probability, double weight) {
+                int size = dictionary.size();
+                int code = dictionary.encode((T) id);
+                addItem(code, dictionary.size() > size, probability);
+            }
+
+            @Override
+            public void endTransaction() {
+                int start = transactionOffsets[transactionCount];
+                // sort the items by increasing id, as expected by the algorithms
+                sortTransaction(start, itemOccurrenceCount);
+                // add the transaction to the in-memory database (or discard it if it is a duplicate)
+                itemOccurrenceCount = addTransaction(start, itemOccurrenceCount);
+            }
+        });
+    }
+
+    /**
+     * Append a batch of transactions read from a stream, in the format of {@link #load(InputStream)}.
+     * The new transactions are added after the existing ones, so that an algorithm in incremental mode
+     * (see AprioriAlgo.setIncrementalMode) only has to scan them to update the supports it counted.
+     *
+     * @param input the stream
+     * @return the number of appended transactions (counting merged duplicates once)
+     * @throws IOException exception if error while reading the stream or if it is malformed.
+     */
+    public int append(InputStream input) throws IOException {
+        int previousCount = transactionCount;
+        load(input);
+        return transactionCount - previousCount;
+    }
+
+    /**
+     * Append a batch of transactions read from a file (see {@link #append(InputStream)}).
+     *
+     * @param path the path of the file
+     * @return the number of appended transactions (counting merged duplicates once)
+     * @throws IOException exception if error while reading the file or if it is malformed.
+     */
+    public int appendFile(String path) throws IOException {
+        try (InputStream input = new FileInputStream(path)) {
+            return append(input);
+        }
+    }
+
+    /**
+     * Load a transaction database from a file in the binary format of {@link BinaryUncertainDatabase}.
+     * The file is memory-mapped and its columns are copied to the arrays of this database,
+     * so that no text is parsed. The weights, if any, are ignored.
+     *
+     * @param path the path of the file
+     * @throws IOException exception if error while reading the file.
+     */
+    @SuppressWarnings("unchecked")
+    public void loadBinaryFile(String path) throws IOException {
+        BinaryUncertainDatabase binary = BinaryUncertainDatabase.open(path);
+        // the items are encoded in the order of the dictionary of the file
+        // so that the item codes of the file can be used directly
+        int codeOffset = dictionary.size();
+        int[] codes = new int[binary.getItemCount()];
+        boolean sameCodes = true;
+        for (int code = 0; code < codes.length; code++) {
+            codes[code] = dictionary.encode((T) binary.getItem(code));
+            sameCodes &= codes[code] == code;
+        }
+        int start = itemOccurrenceCount;
+        ensureCapacity(start + binary.getOccurrenceCount());
+        if (sameCodes && start == 0) {
+            binary.copyItemCodes(itemCodes);
+            binary.copyProbabilities(probabilities);
+        } else {
+            for (int i = 0; i < binary.getOccurrenceCount(); i++) {
+                itemCodes[start + i] = codes[binary.getItemCode(i)];
+                probabilities[start + i] = binary.getProbability(i);
             }
         }
+        boolean[] seen = new boolean[dictionary.size()];
+        for (int code = 0; code < codeOffset; code++) {
+            seen[code] = true;
+        }
+        batchTransactions = mergeDuplicates ? new HashMap<>() : null;
+        // the position of the next transaction, before the position of its items in the file
+        // if duplicates were discarded
+        int position = start;
+        for (int transaction = 0; transaction < binary.getTransactionCount(); transaction++) {
+            int end = start + binary.getTransactionEnd(transaction);
+            int first = start + binary.getTransactionStart(transaction);
+            for (int i = first; i < end; i++) {
+                // add the item to the set of all items (only the first occurrence is kept)
+                if (!seen[itemCodes[i]]) {
+                    seen[itemCodes[i]] = true;
+                    allItems.add(new ItemU<T>(dictionary.getItem(itemCodes[i]), probabilities[i]));
+                }
+            }
+            if (position != first) {
+                System.arraycopy(itemCodes, first, itemCodes, position, end - first);
+                System.arraycopy(probabilities, first, probabilities, position, end - first);
+            }
+            // sort the items by increasing id, as expected by the algorithms
+            sortTransaction(position, position + end - first);
+            position = addTransaction(position, position + end - first);
+        }
+        batchTransactions = null;
+        itemOccurrenceCount = position;
+    }
+
+    /**
+     * Add an item to the transaction being loaded.
+     *
+     * @param code the code of the item
+     * @param isNew true if the item was never seen before
+     * @param probability the existential probability
+     */
+    private void addItem(int code, boolean isNew, double probability) {
+        if (isNew) {
+            // add it to the set of all items (only the first occurrence is kept)
+            allItems.add(new ItemU<T>(dictionary.getItem(code), probability));
+        }
+        ensureCapacity(itemOccurrenceCount + 1);
+        itemCodes[itemOccurrenceCount] = code;
+        probabilities[itemOccurrenceCount] = probability;
+        itemOccurrenceCount++;
     }
 
-    private <T> T parseItemID(String itemString) {
-        // Check if data Type of ID
-        // if ID is Integer
-        if (itemString.matches("\\d+")) {
-            return (T) Integer.valueOf(itemString);
+    /**
+     * Sort the items of a transaction by increasing id (insertion sort, since transactions are short).
+     * @param start the position of the first item of the transaction
+     * @param end the position after the last item of the transaction
+     */
+    private void sortTransaction(int start, int end) {
+        for (int i = start + 1; i < end; i++) {
+            int code = itemCodes[i];
+            double probability = probabilities[i];
+            T item = dictionary.getItem(code);
+            int j = i - 1;
+            while (j >= start && dictionary.getItem(itemCodes[j]).compareTo(item) > 0) {
+                itemCodes[j + 1] = itemCodes[j];
+                probabilities[j + 1] = probabilities[j];
+                j--;
+            }
+            itemCodes[j + 1] = code;
+            probabilities[j + 1] = probability;
         }
-        // if ID is String
-        else {
-            return (T) itemString;
+    }
+
+    /**
+     * Make sure that the item arrays can hold a given number of item occurrences.
+     * @param capacity the number of item occurrences
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > itemCodes.length) {
+            int newCapacity = Math.max(capacity, itemCodes.length * 2);
+            itemCodes = Arrays.copyOf(itemCodes, newCapacity);
+            probabilities = Arrays.copyOf(probabilities, newCapacity);
         }
     }
 
-    private void processTransactions(String itemsString[]) {
-        // We assume that there is no empty line
+    /**
+     * Add a loaded transaction, whose sorted items follow the items of the last transaction.
+     * If duplicates are merged and an identical transaction was loaded in the same batch,
+     * the multiplicity of that transaction is increased and the items are discarded.
+     * @param start the position of the first item of the transaction
+     * @param end the position after the last item of the transaction
+     * @return the position of the items of the next transaction
+     */
+    private int addTransaction(int start, int end) {
+        loadedTransactionCount++;
+        if (batchTransactions != null) {
+            Integer duplicate = batchTransactions.putIfAbsent(new TransactionKey(start, end), transactionCount);
+            if (duplicate != null) {
+                multiplicities[duplicate]++;
+                return start;
+            }
+        }
+        addTransactionOffset(end);
+        return end;
+    }
 
-        // create a new itemset oject representing the transaction
-        ItemsetU<T> transaction = new ItemsetU<T>();
-        // for each item
-        for (String itemString : itemsString) {
-            // get the position of left parenthesis and right parenthesis
-            int indexOfLeftParanthesis = itemString.indexOf('(');
-            int indexOfRightParanthesis = itemString.indexOf(')');
-            // get the item ID
-            T itemID = parseItemID(itemString.substring(0,
-                    indexOfLeftParanthesis));
-            // get the existential probability
-            double value = Double.parseDouble(itemString.substring(
-                    indexOfLeftParanthesis + 1, indexOfRightParanthesis));
-            // create an item
-            ItemU<T> item = new ItemU<T>(itemID, value);
-            // add it to the transaction
-            transaction.addItem(item);
-            // add it to the set of all items
-            allItems.add(item);
-        }
-        // add the itemset to the transaction to the in-memory database
-        transactions.add(transaction);
-    }
-
-    /**
-     * Print this database to System.out.
+    /**
+     * Record the end of a new transaction.
+     * @param end the position after the last item of the transaction
+     */
+    private void addTransactionOffset(int end) {
+        if (transactionCount + 1 == transactionOffsets.length) {
+            transactionOffsets = Arrays.copyOf(transactionOffsets, transactionOffsets.length * 2);
+            multiplicities = Arrays.copyOf(multiplicities, transactionOffsets.length);
+        }
+        multiplicities[transactionCount] = 1;
+        transactionCount++;
+        transactionOffsets[transactionCount] = end;
+    }
+
+    /**
+     * Create a reduced copy of this database, to be scanned by the next levels of a level-wise algorithm.
+     * Only the occurrences of the kept items whose probability is at least minProbability are copied, and
+     * only the transactions containing at least minLength distinct copied items are kept. The copy shares
+     * the dictionary of this database, so that the item codes are the same, and keeps the multiplicity of
+     * each transaction, but the positions of the transactions change.
+     *
+     * @param keptCodes whether each item is kept, indexed by item code
+     * @param minLength the minimum number of distinct items of a kept transaction
+     * @param minProbability the minimum probability of a kept item occurrence
+     * @return the reduced database, or this database if nothing is dropped
+     */
+    public UTransactionDatabase<T> project(boolean[] keptCodes, int minLength, double minProbability) {
+        // first pass: count the kept transactions and item occurrences to allocate the exact capacity
+        int keptTransactionCount = 0;
+        int keptOccurrenceCount = 0;
+        for (int transaction = 0; transaction < transactionCount; transaction++) {
+            int length = countKeptItems(transaction, keptCodes, minProbability, false);
+            if (length >= minLength) {
+                keptTransactionCount++;
+                keptOccurrenceCount += countKeptItems(transaction, keptCodes, minProbability, true);
+            }
+        }
+        if (keptTransactionCount == transactionCount && keptOccurrenceCount == itemOccurrenceCount) {
+            return this;
+        }
+        // second pass: copy the kept item occurrences
+        UTransactionDatabase<T> projection = new UTransactionDatabase<>(dictionary);
+        projection.transactionOffsets = new int[keptTransactionCount + 1];
+        projection.multiplicities = new int[keptTransactionCount + 1];
+        projection.itemCodes = new int[Math.max(keptOccurrenceCount, 1)];
+        projection.probabilities = new double[Math.max(keptOccurrenceCount, 1)];
+        for (int transaction = 0; transaction < transactionCount; transaction++) {
+            if (countKeptItems(transaction, keptCodes, minProbability, false) < minLength) {
+                continue;
+            }
+            for (int i = transactionOffsets[transaction]; i < transactionOffsets[transaction + 1]; i++) {
+                if (isKept(i, keptCodes, minProbability)) {
+                    projection.itemCodes[projection.itemOccurrenceCount] = itemCodes[i];
+                    projection.probabilities[projection.itemOccurrenceCount] = probabilities[i];
+                    projection.itemOccurrenceCount++;
+                }
+            }
+            projection.addTransactionOffset(projection.itemOccurrenceCount);
+            projection.multiplicities[projection.transactionCount - 1] = multiplicities[transaction];
+            projection.loadedTransactionCount += multiplicities[transaction];
+        }
+        for (ItemU<T> item : allItems) {
+            int code = dictionary.getCode(item.getId());
+            if (code < keptCodes.length && keptCodes[code]) {
+                projection.allItems.add(item);
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * Count the item occurrences of a transaction that are kept by a projection.
+     *
+     * @param transaction the position of the transaction
+     * @param keptCodes whether each item is kept, indexed by item code
+     * @param minProbability the minimum probability of a kept item occurrence
+     * @param countRepeatedItems if false, the occurrences of an item are counted once
+     * @return the number of kept occurrences (or distinct items)
+     */
+    private int countKeptItems(int transaction, boolean[] keptCodes, double minProbability, boolean countRepeatedItems) {
+        int count = 0;
+        int previousCode = -1;
+        for (int i = transactionOffsets[transaction]; i < transactionOffsets[transaction + 1]; i++) {
+            // the occurrences of an item are consecutive since the transaction is sorted
+            if (isKept(i, keptCodes, minProbability) && (countRepeatedItems || itemCodes[i] != previousCode)) {
+                count++;
+                previousCode = itemCodes[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Check if an item occurrence is kept by a projection.
+     *
+     * @param position the position of the occurrence in the item arrays
+     * @param keptCodes whether each item is kept, indexed by item code
+     * @param minProbability the minimum probability of a kept item occurrence
+     * @return true if the occurrence is kept, otherwise false
+     */
+    private boolean isKept(int position, boolean[] keptCodes, double minProbability) {
+        int code = itemCodes[position];
+        return code < keptCodes.length && keptCodes[code] && probabilities[position] >= minProbability;
+    }
+
+    /**
+     * Print this database to System.out, with the multiplicity of the merged duplicates.
      */
     public void printDatabase() {
         System.out
                 .println("===================  UNCERTAIN DATABASE ===================");
-        int count = 0;
         // for each transaction
-        for (ItemsetU<T> itemset : transactions) {
+        for (int count = 0; count < transactionCount; count++) {
             // print the transaction
             System.out.print("0" + count + ":  ");
-            itemset.print();
-            System.out.println("");
-            count++;
+            getTransaction(count).print();
+            System.out.println(multiplicities[count] > 1 ? " x" + multiplicities[count] : "");
         }
     }
 
     /**
-     * Get the number of transactions.
+     * Get the number of transactions. If duplicates are merged, each distinct transaction
+     * is counted once (see getLoadedTransactionCount).
      *
      * @return a int
      */
     public int size() {
-        return transactions.size();
+        return transactionCount;
+    }
+
+    /**
+     * Get the number of loaded transactions, counting each merged duplicate
+     * (the sum of the multiplicities of the transactions).
+     *
+     * @return the number of loaded transactions
+     */
+    public int getLoadedTransactionCount() {
+        return loadedTransactionCount;
+    }
+
+    /**
+     * Get the number of loaded transactions represented by a transaction,
+     * which is 1 unless identical transactions were merged.
+     *
+     * @param index the position of the transaction
+     * @return the multiplicity of the transaction
+     */
+    public int getMultiplicity(int index) {
+        return multiplicities[index];
     }
 
     /**
-     * Get the list of transactions.
+     * Get the list of transactions. The transactions are created from the compact
+     * storage at each call, so the algorithms should rather iterate over the
+     * item codes and probabilities. If duplicates are merged, each distinct transaction
+     * is in the list once, and the number of loaded transactions it represents is given by
+     * getMultiplicity at the same position: a support computed from this list must be
+     * weighted by the multiplicities.
      *
      * @return the list of Transactions.
      */
     public List<ItemsetU<T>> getTransactions() {
+        List<ItemsetU<T>> transactions = new ArrayList<>(transactionCount);
+        for (int i = 0; i < transactionCount; i++) {
+            transactions.add(getTransaction(i));
+        }
         return transactions;
     }
 
+    /**
+     * Create the itemset object representing a transaction. If duplicates are merged, it
+     * represents getMultiplicity(index) loaded transactions.
+     *
+     * @param index the position of the transaction
+     * @return the transaction
+     */
+    public ItemsetU<T> getTransaction(int index) {
+        ItemsetU<T> transaction = new ItemsetU<T>();
+        for (int i = transactionOffsets[index]; i < transactionOffsets[index + 1]; i++) {
+            transaction.addItem(new ItemU<T>(dictionary.getItem(itemCodes[i]), probabilities[i]));
+        }
+        return transaction;
+    }
+
+    /**
+     * Get the position of the first item of a transaction in the item arrays.
+     *
+     * @param index the position of the transaction
+     * @return the position of its first item
+     */
+    public int getTransactionStart(int index) {
+        return transactionOffsets[index];
+    }
+
+    /**
+     * Get the position after the last item of a transaction in the item arrays.
+     *
+     * @param index the position of the transaction
+     * @return the position after its last item
+     */
+    public int getTransactionEnd(int index) {
+        return transactionOffsets[index + 1];
+    }
+
+    /**
+     * Get the codes of the items of all transactions (see getTransactionStart).
+     * The array may be larger than the number of item occurrences.
+     *
+     * @return the item codes
+     */
+    public int[] getItemCodes() {
+        return itemCodes;
+    }
+
+    /**
+     * Get the probabilities of the items of all transactions (see getTransactionStart).
+     * The array may be larger than the number of item occurrences.
+     *
+     * @return the probabilities
+     */
+    public double[] getProbabilities() {
+        return probabilities;
+    }
+
+    /**
+     * Get the dictionary mapping item ids to item codes.
+     *
+     * @return the dictionary
+     */
+    public ItemDictionary<T> getDictionary() {
+        return dictionary;
+    }
+
     /**
      * Get the set of items in this database.
      *
@@ -133,5 +542,55 @@ public class UTransactionDatabase<T extends Comparable<T>> {
         return allItems;
     }
 
+    /**
+     * The content of a transaction stored in the item arrays, used to find identical transactions.
+     * The transaction is referenced by the positions of its items, which remain valid when the arrays grow.
+     */
+    private class TransactionKey {
+        // the position of the first item and the position after the last item
+        private final int start;
+        private final int end;
+        // the hash code of the items and probabilities
+        private final int hash;
+
+        /**
+         * Constructor
+         * @param start the position of the first item of the transaction
+         * @param end the position after the last item of the transaction
+         */
+        TransactionKey(int start, int end) {
+            this.start = start;
+            this.end = end;
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * (31 * hash + itemCodes[i]) + Double.hashCode(probabilities[i]);
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof UTransactionDatabase<?>.TransactionKey)) {
+                return false;
+            }
+            UTransactionDatabase<?>.TransactionKey other = (UTransactionDatabase<?>.TransactionKey) object;
+            if (hash != other.hash || end - start != other.end - other.start) {
+                return false;
+            }
+            for (int i = 0; i < end - start; i++) {
+                if (itemCodes[start + i] != itemCodes[other.start + i]
+                        || Double.compare(probabilities[start + i], probabilities[other.start + i]) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
 }
 
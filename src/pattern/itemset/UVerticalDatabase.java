@@ -0,0 +1,94 @@
+package pattern.itemset;
+
+/**
+ * A vertical view of an uncertain transaction database where each item
+ * owns a list of (transaction id, probability) pairs.
+ * It is built with a single scan of the horizontal database.
+ */
+public class UVerticalDatabase<T extends Comparable<T>> {
+
+    // the tid-list of each item, indexed by item code
+    private final TidList[] tidLists;
+
+    // the dictionary of item codes
+    private final ItemDictionary<T> dictionary;
+
+    // the number of transactions
+    private final int transactionCount;
+
+    // the multiplicity of each transaction, or null if no identical transactions were merged
+    private final int[] multiplicities;
+
+    /**
+     * Constructor that converts a horizontal database to a vertical one.
+     * @param database the uncertain transaction database
+     */
+    public UVerticalDatabase(UTransactionDatabase<T> database) {
+        dictionary = database.getDictionary();
+        transactionCount = database.size();
+        tidLists = new TidList[dictionary.size()];
+        for (int code = 0; code < tidLists.length; code++) {
+            tidLists[code] = new TidList();
+        }
+        int[] itemCodes = database.getItemCodes();
+        double[] probabilities = database.getProbabilities();
+        // for each transaction
+        for (int tid = 0; tid < transactionCount; tid++) {
+            // for each item of that transaction
+            for (int i = database.getTransactionStart(tid); i < database.getTransactionEnd(tid); i++) {
+                TidList tidList = tidLists[itemCodes[i]];
+                // only the first occurrence of an item in a transaction is kept
+                if (tidList.getLastTid() != tid) {
+                    tidList.add(tid, probabilities[i]);
+                }
+            }
+        }
+        for (TidList tidList : tidLists) {
+            tidList.trimToSize();
+        }
+        if (database.getLoadedTransactionCount() > transactionCount) {
+            multiplicities = new int[transactionCount];
+            for (int tid = 0; tid < transactionCount; tid++) {
+                multiplicities[tid] = database.getMultiplicity(tid);
+            }
+        } else {
+            multiplicities = null;
+        }
+    }
+
+    /**
+     * Calculate the expected support of the itemset represented by a tid-list of this database,
+     * where the probability in each transaction is multiplied by the multiplicity of the transaction
+     * (see UTransactionDatabase.setMergeDuplicates).
+     * @param tidList the tid-list
+     * @return the expected support
+     */
+    public double getExpectedSupport(TidList tidList) {
+        if (multiplicities == null) {
+            return tidList.getExpectedSupport();
+        }
+        double expectedSupport = 0;
+        for (int i = 0; i < tidList.size(); i++) {
+            expectedSupport += multiplicities[tidList.getTid(i)] * tidList.getProbability(i);
+        }
+        return expectedSupport;
+    }
+
+    /**
+     * Get the tid-list of an item.
+     * @param item the item id
+     * @return the tid-list, or an empty list if the item does not appear in the database
+     */
+    public TidList getTidList(T item) {
+        int code = dictionary.getCode(item);
+        return code == -1 ? new TidList(1) : tidLists[code];
+    }
+
+    /**
+     * Get the number of transactions.
+     * @return the transaction count
+     */
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+}
@@ -1,14 +1,11 @@
 package pattern.itemset;
 
-import java.io.BufferedReader;
-import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Random;
 
 public class UncertainTransaction<T> {
 	public List<T> items;
@@ -16,75 +13,167 @@ public class UncertainTransaction<T> {
 
 	public double weight;
 
+	/** the position of the line (transaction) of the file containing the items */
+	public int tid;
+
 	public static int transaction;
 
-	UncertainTransaction(List<T> items, double probability, double weight) {
+	UncertainTransaction(List<T> items, double probability, double weight, int tid) {
 		this.items = items;
 		this.probability = probability;
 		this.weight = weight;
+		this.tid = tid;
 	}
 
 	public static <T> void loadFile(String path, List<UncertainTransaction<T>> uncertainDB) throws IOException {
-		String thisLine;
-		BufferedReader myInput = null;
+		InputStream input = null;
 		try {
-			FileInputStream fin = new FileInputStream(path);
-			myInput = new BufferedReader(new InputStreamReader(fin));
+			input = new FileInputStream(path);
 			transaction = 0; // Initialize transaction count
-
-			// for each transaction (line) in the input file
-			while ((thisLine = myInput.readLine()) != null) {
-				// if the line is a comment, is empty, or is a kind of metadata
-				if (thisLine.isEmpty() || thisLine.charAt(0) == '#' || thisLine.charAt(0) == '%' || thisLine.charAt(0) == '@') {
-					continue;
-				}
-
-				// process the transaction
-				List<UncertainTransaction<T>> transactions = parseTransaction(thisLine);
-				transaction++; // Increment transaction count
-
-				// Add transactions to uncertainDB
-				uncertainDB.addAll(transactions);
-			}
+			load(input, uncertainDB);
 		} catch (Exception e) {
 			// catch exceptions
 			e.printStackTrace();
 		} finally {
-			if (myInput != null) {
+			if (input != null) {
 				// close the file
-				myInput.close();
+				input.close();
 			}
 		}
 	}
 
-	private static <T> List<UncertainTransaction<T>> parseTransaction(String transactionLine) {
-		List<UncertainTransaction<T>> transactions = new ArrayList<>();
+	/**
+	 * Load uncertain transactions from a file in the binary format of {@link BinaryUncertainDatabase}.
+	 * Each weighted item becomes an uncertain transaction, as with the text format. As with load, the tids
+	 * follow the tid of the last transaction of the list, so that appended batches have distinct tids.
+	 *
+	 * @param path        the path of the file
+	 * @param uncertainDB the list where the uncertain transactions are added
+	 * @throws IOException if an error occurs while reading the file
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> void loadBinaryFile(String path, List<UncertainTransaction<T>> uncertainDB) throws IOException {
+		BinaryUncertainDatabase binary = BinaryUncertainDatabase.open(path);
+		transaction = binary.getTransactionCount();
+		if (!binary.hasWeights()) {
+			return;
+		}
+		int firstTid = uncertainDB.isEmpty() ? 0 : uncertainDB.get(uncertainDB.size() - 1).tid + 1;
+		for (int line = 0; line < binary.getTransactionCount(); line++) {
+			for (int i = binary.getTransactionStart(line); i < binary.getTransactionEnd(line); i++) {
+				double weight = binary.getWeight(i);
+				if (!Double.isNaN(weight)) {
+					List<T> items = new ArrayList<>(1);
+					items.add((T) binary.getItem(binary.getItemCode(i)));
+					uncertainDB.add(new UncertainTransaction<>(items, binary.getProbability(i), weight, firstTid + line));
+				}
+			}
+		}
+	}
 
-		// Use a regular expression to separate items and probability
-		Pattern pattern = Pattern.compile("([\\w\\d]+)\\((\\d*\\.?\\d+)\\)\\[(\\d*\\.?\\d+)\\]");
-		Matcher matcher = pattern.matcher(transactionLine);
+	/**
+	 * Load a uniform random sample of the lines of a stream in the format "item(probability)[weight]",
+	 * reading the stream once (reservoir sampling): the k-th line replaces a random line of the sample
+	 * with probability sampleSize / k. Whether a line is kept is decided before its items are parsed,
+	 * so the memory only depends on the size of the sample. The tid of an uncertain transaction is the
+	 * position of its line in the sample.
+	 *
+	 * @param input       the stream
+	 * @param sampleSize  the maximum number of lines in the sample
+	 * @param random      the random generator
+	 * @param uncertainDB the list where the uncertain transactions of the sample are added
+	 * @return the number of lines of the stream
+	 * @throws IOException if an error occurs while reading the stream or if it is malformed
+	 */
+	public static <T> long loadSample(InputStream input, int sampleSize, Random random,
+			List<UncertainTransaction<T>> uncertainDB) throws IOException {
+		if (sampleSize < 1) {
+			throw new IllegalArgumentException("The sample must contain at least one line: " + sampleSize);
+		}
+		// the items of each line of the sample
+		List<List<UncertainTransaction<T>>> reservoir = new ArrayList<>();
+		long[] lineCount = new long[1];
+		new TransactionParser(input).parse(new TransactionParser.WeightedItemHandler<T>() {
+			// the items of the current line, or null if the line is not kept
+			List<UncertainTransaction<T>> line;
+			// true once it is decided whether the current line is kept
+			boolean started = false;
+
+			@Override
+			protected void weightedItem(T item, double probability, double weight) {
+				if (!started) {
+					startLine();
+				}
+				if (line == null) {
+					return;
+				}
+				List<T> items = new ArrayList<>(1);
+				items.add(item);
+				line.add(new UncertainTransaction<>(items, probability, weight, 0));
+			}
 
-		while (matcher.find()) {
-			T item = parseItemID(matcher.group(1));
-			double probability = Double.parseDouble(matcher.group(2));
-			double weight = Double.parseDouble(matcher.group(3));
+			@Override
+			public void endTransaction() {
+				if (!started) {
+					startLine();
+				}
+				lineCount[0]++;
+				started = false;
+			}
 
-			List<T> items = new ArrayList<>();
-			items.add(item);
-			transactions.add(new UncertainTransaction<>(items, probability, weight));
+			private void startLine() {
+				started = true;
+				long position = lineCount[0];
+				line = null;
+				if (position < sampleSize) {
+					line = new ArrayList<>();
+					reservoir.add(line);
+				} else {
+					long slot = (long) (random.nextDouble() * (position + 1));
+					if (slot < sampleSize) {
+						line = new ArrayList<>();
+						reservoir.set((int) slot, line);
+					}
+				}
+			}
+		});
+		for (int tid = 0; tid < reservoir.size(); tid++) {
+			for (UncertainTransaction<T> transaction : reservoir.get(tid)) {
+				transaction.tid = tid;
+				uncertainDB.add(transaction);
+			}
 		}
-
-		return transactions;
+		transaction = (int) Math.min(lineCount[0], Integer.MAX_VALUE);
+		return lineCount[0];
 	}
 
-	private static <T> T parseItemID(String itemString) {
-		// Check if data Type of ID
-		// if ID is Integer
-		try {
-			return (T) Integer.valueOf(itemString);
-		} catch (NumberFormatException e) {
-			// if not Integer, return as String
-			return (T) itemString;
-		}
+	/**
+	 * Load transactions from a stream in the format "item(probability)[weight]", with one
+	 * transaction per line. Each item becomes an uncertain transaction; items without a weight are ignored.
+	 * The tid of an uncertain transaction is the position of its line among the lines of the stream,
+	 * following the tid of the last transaction of the list, so that appended batches have distinct tids.
+	 *
+	 * @param input       the stream
+	 * @param uncertainDB the list where the uncertain transactions are added
+	 * @throws IOException if an error occurs while reading the stream or if it is malformed
+	 */
+	public static <T> void load(InputStream input, List<UncertainTransaction<T>> uncertainDB) throws IOException {
+		new TransactionParser(input).parse(new TransactionParser.WeightedItemHandler<T>() {
+			// the position of the current line
+			int tid = uncertainDB.isEmpty() ? 0 : uncertainDB.get(uncertainDB.size() - 1).tid + 1;
+
+			@Override
+			protected void weightedItem(T item, double probability, double weight) {
+				List<T> items = new ArrayList<>(1);
+				items.add(item);
+				uncertainDB.add(new UncertainTransaction<>(items, probability, weight, tid));
+			}
+
+			@Override
+			public void endTransaction() {
+				transaction++; // Increment transaction count
+				tid++;
+			}
+		});
 	}
 }
@@ -0,0 +1,235 @@
+package pattern.itemset;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A transaction of an uncertain database with weighted items: one line of a file in the format
+ * "item(probability)[weight]". Unlike {@link UncertainTransaction}, which represents a single item
+ * occurrence, the items of a line are kept together in parallel arrays of items, probabilities and
+ * weights, so that a database has one object per transaction rather than per item occurrence.
+ * <br/><br/>
+ * Items are stored in the order of the line, and an item appearing several times in a line has
+ * several occurrences. Items without a weight are ignored, as by UncertainTransaction.load.
+ */
+public class WeightedTransaction<T> {
+
+    // the items, their existential probabilities and their weights
+    private final Object[] items;
+    private final double[] probabilities;
+    private final double[] weights;
+    // the position of the line of the file
+    private final int tid;
+
+    /**
+     * Constructor
+     * @param items the items
+     * @param probabilities the existential probability of each item
+     * @param weights the weight of each item
+     * @param tid the position of the line
+     */
+    public WeightedTransaction(Object[] items, double[] probabilities, double[] weights, int tid) {
+        if (items.length != probabilities.length || items.length != weights.length) {
+            throw new IllegalArgumentException("The items, probabilities and weights must have the same length");
+        }
+        this.items = items;
+        this.probabilities = probabilities;
+        this.weights = weights;
+        this.tid = tid;
+    }
+
+    /**
+     * Get the number of item occurrences of this transaction.
+     * @return the size
+     */
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * Get an item.
+     * @param position the position of the item in the transaction
+     * @return the item
+     */
+    @SuppressWarnings("unchecked")
+    public T getItem(int position) {
+        return (T) items[position];
+    }
+
+    /**
+     * Get the existential probability of an item.
+     * @param position the position of the item in the transaction
+     * @return the probability
+     */
+    public double getProbability(int position) {
+        return probabilities[position];
+    }
+
+    /**
+     * Get the weight of an item.
+     * @param position the position of the item in the transaction
+     * @return the weight
+     */
+    public double getWeight(int position) {
+        return weights[position];
+    }
+
+    /**
+     * Get the contribution of an item to its expected weighted support: its probability multiplied by its weight.
+     * @param position the position of the item in the transaction
+     * @return the support of the item in this transaction
+     */
+    public double getSupport(int position) {
+        return probabilities[position] * weights[position];
+    }
+
+    /**
+     * Get the position of the line of this transaction.
+     * @return the tid
+     */
+    public int getTid() {
+        return tid;
+    }
+
+    /**
+     * Load the transactions of a file in the format "item(probability)[weight]".
+     * @param path the path of the file
+     * @param database the list where the transactions are added
+     * @throws IOException if an error occurs while reading the file or if it is malformed
+     */
+    public static <T> void loadFile(String path, List<WeightedTransaction<T>> database) throws IOException {
+        try (InputStream input = new FileInputStream(path)) {
+            load(input, database);
+        }
+    }
+
+    /**
+     * Load transactions from a stream in the format "item(probability)[weight]", with one transaction
+     * per line. Every line becomes a transaction, even if it has no weighted item, so that the tid of a
+     * transaction is its position in the list when the list is initially empty. The tids follow the tid
+     * of the last transaction of the list, so that appended batches have distinct tids.
+     * @param input the stream
+     * @param database the list where the transactions are added
+     * @throws IOException if an error occurs while reading the stream or if it is malformed
+     */
+    public static <T> void load(InputStream input, List<WeightedTransaction<T>> database) throws IOException {
+        WeightedTransaction.<T>parse(input, database.isEmpty() ? 0 : database.get(database.size() - 1).tid + 1, database::add);
+    }
+
+    /**
+     * Read transactions from a stream in the format "item(probability)[weight]" and pass each of them to
+     * a consumer as soon as its line is parsed, so that a stream larger than the memory can be processed
+     * (see load for the transactions created).
+     * @param input the stream
+     * @param firstTid the tid of the first line
+     * @param consumer the consumer of the transactions
+     * @throws IOException if an error occurs while reading the stream or if it is malformed
+     */
+    public static <T> void parse(InputStream input, int firstTid, Consumer<WeightedTransaction<T>> consumer)
+            throws IOException {
+        new TransactionParser(input).parse(new TransactionParser.WeightedItemHandler<T>() {
+            // the position of the current line
+            int tid = firstTid;
+            // the items of the current line (the arrays are reused for each line)
+            Object[] items = new Object[16];
+            double[] probabilities = new double[16];
+            double[] weights = new double[16];
+            int length = 0;
+
+            @Override
+            public void endTransaction() {
+                consumer.accept(new WeightedTransaction<>(Arrays.copyOf(items, length),
+                        Arrays.copyOf(probabilities, length), Arrays.copyOf(weights, length), tid));
+                length = 0;
+                tid++;
+            }
+
+            @Override
+            protected void weightedItem(T item, double probability, double weight) {
+                if (length == items.length) {
+                    items = Arrays.copyOf(items, length * 2);
+                    probabilities = Arrays.copyOf(probabilities, length * 2);
+                    weights = Arrays.copyOf(weights, length * 2);
+                }
+                items[length] = item;
+                probabilities[length] = probability;
+                weights[length] = weight;
+                length++;
+            }
+        });
+    }
+
+    /**
+     * Load the transactions of a file in the binary format of {@link BinaryUncertainDatabase}.
+     * If the items of the file have no weight, every transaction is empty.
+     * @param path the path of the file
+     * @param database the list where the transactions are added
+     * @throws IOException if an error occurs while reading the file
+     */
+    public static <T> void loadBinaryFile(String path, List<WeightedTransaction<T>> database) throws IOException {
+        BinaryUncertainDatabase binary = BinaryUncertainDatabase.open(path);
+        int firstTid = database.isEmpty() ? 0 : database.get(database.size() - 1).tid + 1;
+        for (int transaction = 0; transaction < binary.getTransactionCount(); transaction++) {
+            int start = binary.getTransactionStart(transaction);
+            int end = binary.hasWeights() ? binary.getTransactionEnd(transaction) : start;
+            int length = 0;
+            for (int i = start; i < end; i++) {
+                if (!Double.isNaN(binary.getWeight(i))) {
+                    length++;
+                }
+            }
+            Object[] items = new Object[length];
+            double[] probabilities = new double[length];
+            double[] weights = new double[length];
+            length = 0;
+            for (int i = start; i < end; i++) {
+                double weight = binary.getWeight(i);
+                if (!Double.isNaN(weight)) {
+                    items[length] = binary.getItem(binary.getItemCode(i));
+                    probabilities[length] = binary.getProbability(i);
+                    weights[length] = weight;
+                    length++;
+                }
+            }
+            database.add(new WeightedTransaction<>(items, probabilities, weights, firstTid + transaction));
+        }
+    }
+
+    /**
+     * Group uncertain transactions (one per item occurrence) into weighted transactions, one per tid.
+     * The uncertain transactions of a tid must be consecutive, as they are when loaded by UncertainTransaction.
+     * Lines without any weighted item have no uncertain transaction, so they have no weighted transaction either.
+     * @param uncertainDB the uncertain transactions
+     * @param from the position of the first uncertain transaction to group
+     * @param database the list where the weighted transactions are added
+     */
+    public static <T> void addUncertainTransactions(List<UncertainTransaction<T>> uncertainDB, int from,
+                                                    List<WeightedTransaction<T>> database) {
+        List<Object> items = new ArrayList<>();
+        double[] probabilities = new double[16];
+        double[] weights = new double[16];
+        for (int i = from; i < uncertainDB.size(); i++) {
+            UncertainTransaction<T> transaction = uncertainDB.get(i);
+            for (T item : transaction.items) {
+                if (items.size() == probabilities.length) {
+                    probabilities = Arrays.copyOf(probabilities, items.size() * 2);
+                    weights = Arrays.copyOf(weights, items.size() * 2);
+                }
+                probabilities[items.size()] = transaction.probability;
+                weights[items.size()] = transaction.weight;
+                items.add(item);
+            }
+            if (i + 1 == uncertainDB.size() || uncertainDB.get(i + 1).tid != transaction.tid) {
+                int length = items.size();
+                database.add(new WeightedTransaction<>(items.toArray(), Arrays.copyOf(probabilities, length),
+                        Arrays.copyOf(weights, length), transaction.tid));
+                items.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package util;
+
+import pattern.itemset.ItemU;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A result sink writing the patterns in a compact binary file, which is much smaller and
+ * faster to write and read than text when millions of patterns are found.
+ * <br/><br/>
+ * The file contains (all numbers are big-endian) the magic number "PAT1", followed by each
+ * pattern: its number of items, each item (a tag 0 followed by an int for an integer id,
+ * or a tag 1 followed by a modified UTF-8 string for any other id) and its support as a double
+ * (NaN if it is not known). The id of an {@link ItemU} is written, without its probability.
+ * Information lines are not stored. The file is read with {@link #read(String, CallbackResultSink.PatternListener)}.
+ *
+ * @param <T> the type of items
+ */
+public class BinaryResultSink<T> implements ResultSink<T> {
+
+    // the magic number at the beginning of a file ("PAT1")
+    private static final int MAGIC = 0x50415431;
+    // the tags of the item ids
+    private static final byte TAG_INT = 0;
+    private static final byte TAG_STRING = 1;
+
+    // the stream of the file
+    private final DataOutputStream output;
+
+    /**
+     * Constructor
+     * @param path the path of the output file
+     * @throws IOException if the file cannot be created
+     */
+    public BinaryResultSink(String path) throws IOException {
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+        output.writeInt(MAGIC);
+    }
+
+    @Override
+    public void writePattern(List<T> items, double support) throws IOException {
+        output.writeInt(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Object item = items.get(i);
+            if (item instanceof ItemU) {
+                item = ((ItemU<?>) item).getId();
+            }
+            if (item instanceof Integer) {
+                output.writeByte(TAG_INT);
+                output.writeInt((Integer) item);
+            } else {
+                output.writeByte(TAG_STRING);
+                output.writeUTF(String.valueOf(item));
+            }
+        }
+        output.writeDouble(support);
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+
+    /**
+     * Read the patterns of a file written by this sink.
+     * @param path the path of the file
+     * @param listener the listener receiving each pattern. The items are Integers or Strings,
+     *                 and the list is reused for the next pattern.
+     * @throws IOException if an error occurs while reading or if the file is not in this format
+     */
+    public static void read(String path, CallbackResultSink.PatternListener<Object> listener) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a binary pattern file");
+            }
+            List<Object> items = new ArrayList<>();
+            while (true) {
+                int size;
+                try {
+                    size = input.readInt();
+                } catch (EOFException e) {
+                    // no more pattern
+                    return;
+                }
+                items.clear();
+                for (int i = 0; i < size; i++) {
+                    items.add(input.readByte() == TAG_INT ? (Object) input.readInt() : input.readUTF());
+                }
+                listener.pattern(items, input.readDouble());
+            }
+        }
+    }
+}
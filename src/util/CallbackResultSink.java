@@ -0,0 +1,42 @@
+package util;
+
+import java.util.List;
+
+/**
+ * A result sink passing each pattern to a listener, for example to process the patterns
+ * in a program without writing them to a file.
+ *
+ * @param <T> the type of items
+ */
+public class CallbackResultSink<T> implements ResultSink<T> {
+
+    /**
+     * Receive the patterns found by an algorithm.
+     * @param <T> the type of items
+     */
+    @FunctionalInterface
+    public interface PatternListener<T> {
+        /**
+         * Called for each pattern.
+         * @param items the items of the pattern (the list may be reused after the call)
+         * @param support the (expected) support of the pattern, or NaN if it is not known
+         */
+        void pattern(List<T> items, double support);
+    }
+
+    // the listener receiving the patterns
+    private final PatternListener<T> listener;
+
+    /**
+     * Constructor
+     * @param listener the listener receiving the patterns
+     */
+    public CallbackResultSink(PatternListener<T> listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void writePattern(List<T> items, double support) {
+        listener.pattern(items, support);
+    }
+}
@@ -0,0 +1,52 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A result sink keeping a copy of the patterns in memory.
+ *
+ * @param <T> the type of items
+ */
+public class MemoryResultSink<T> implements ResultSink<T> {
+
+    // the items of each pattern
+    private final List<List<T>> patterns = new ArrayList<>();
+    // the support of each pattern
+    private double[] supports = new double[16];
+
+    @Override
+    public void writePattern(List<T> items, double support) {
+        if (patterns.size() == supports.length) {
+            supports = Arrays.copyOf(supports, supports.length * 2);
+        }
+        supports[patterns.size()] = support;
+        patterns.add(new ArrayList<>(items));
+    }
+
+    /**
+     * Get the patterns, in the order in which they were found.
+     * @return a list of patterns, each being a list of items
+     */
+    public List<List<T>> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * Get the support of a pattern.
+     * @param index the position of the pattern in the list of patterns
+     * @return the support, or NaN if it is not known
+     */
+    public double getSupport(int index) {
+        return supports[index];
+    }
+
+    /**
+     * Get the number of patterns.
+     * @return the pattern count
+     */
+    public int size() {
+        return patterns.size();
+    }
+}
@@ -0,0 +1,183 @@
+package util;
+
+/**
+ * The cumulative distribution function (CDF) of the standard normal distribution, used
+ * by the normal approximation of the support of itemsets.
+ * <br/><br/>
+ * The CDF is computed with the double precision rational approximation of Hart (1968)
+ * described by G. West, "Better approximations to cumulative normal functions" (2005),
+ * whose absolute error is below 1e-14 (the relative error of the tail probabilities is
+ * below 1e-8). It only needs one exponential and a fixed number of multiplications, with no
+ * loop depending on x, so that the batch method {@link #cdf(double[], double[], int)} can be
+ * compiled to a tight loop. An interpolated table can also be used for the hot range
+ * of values (see {@link Table}).
+ */
+public class NormalDistribution {
+
+    // 1 / sqrt(2 * PI)
+    private static final double INV_SQRT_2PI = 0.3989422804014327;
+    // below this absolute value, the rational approximation is used, otherwise a continued fraction
+    private static final double RATIONAL_LIMIT = 7.07106781186547;
+    // above this absolute value, the tail probability is 0 in double precision
+    private static final double TAIL_LIMIT = 37;
+
+    /**
+     * Get the probability that a standard normal variable is at most x.
+     * @param x the value
+     * @return P(X &lt;= x)
+     */
+    public static double cdf(double x) {
+        double tail = lowerTail(Math.abs(x));
+        return x > 0 ? 1 - tail : tail;
+    }
+
+    /**
+     * Get the probability that a standard normal variable is greater than x, that is 1 - cdf(x),
+     * without the loss of precision of the subtraction when cdf(x) is close to 1.
+     * @param x the value
+     * @return P(X &gt; x)
+     */
+    public static double complementaryCdf(double x) {
+        double tail = lowerTail(Math.abs(x));
+        return x > 0 ? tail : 1 - tail;
+    }
+
+    /**
+     * Compute the CDF of several values.
+     * @param values the values
+     * @param results the array receiving the CDF of each value
+     * @param count the number of values
+     */
+    public static void cdf(double[] values, double[] results, int count) {
+        for (int i = 0; i < count; i++) {
+            results[i] = cdf(values[i]);
+        }
+    }
+
+    /**
+     * Get the density of the standard normal distribution.
+     * @param x the value
+     * @return the density at x
+     */
+    public static double pdf(double x) {
+        return INV_SQRT_2PI * Math.exp(-0.5 * x * x);
+    }
+
+    /**
+     * Get P(X &lt;= -x) for a non-negative x.
+     * @param x the absolute value
+     * @return the lower tail probability
+     */
+    private static double lowerTail(double x) {
+        if (x > TAIL_LIMIT) {
+            return 0;
+        }
+        double exponential = Math.exp(-x * x / 2);
+        if (x < RATIONAL_LIMIT) {
+            double numerator = 3.52624965998911E-02 * x + 0.700383064443688;
+            numerator = numerator * x + 6.37396220353165;
+            numerator = numerator * x + 33.912866078383;
+            numerator = numerator * x + 112.079291497871;
+            numerator = numerator * x + 221.213596169931;
+            numerator = numerator * x + 220.206867912376;
+            double denominator = 8.83883476483184E-02 * x + 1.75566716318264;
+            denominator = denominator * x + 16.064177579207;
+            denominator = denominator * x + 86.7807322029461;
+            denominator = denominator * x + 296.564248779674;
+            denominator = denominator * x + 637.333633378831;
+            denominator = denominator * x + 793.826512519948;
+            denominator = denominator * x + 440.413735824752;
+            return exponential * numerator / denominator;
+        }
+        double fraction = x + 0.65;
+        fraction = x + 4 / fraction;
+        fraction = x + 3 / fraction;
+        fraction = x + 2 / fraction;
+        fraction = x + 1 / fraction;
+        return exponential * INV_SQRT_2PI / fraction;
+    }
+
+    /**
+     * A table of the CDF on a range of values, where the CDF of a value is obtained by cubic
+     * Hermite interpolation between the two closest points of the table (using the density as
+     * derivative). It is faster than the rational approximation since it does not need an
+     * exponential. Values outside the range use the rational approximation.
+     */
+    public static class Table {
+        // the smallest and largest values of the table
+        private final double min;
+        private final double max;
+        // the inverse of the distance between two points of the table
+        private final double inverseStep;
+        // the distance between two points of the table
+        private final double step;
+        // the CDF and the density at each point of the table
+        private final double[] cdfs;
+        private final double[] pdfs;
+
+        /**
+         * Constructor of a table on [-8, 8] with 256 points per unit, whose absolute error is below 1e-12.
+         */
+        public Table() {
+            this(-8, 8, 256);
+        }
+
+        /**
+         * Constructor
+         * @param min the smallest value of the table
+         * @param max the largest value of the table
+         * @param pointsPerUnit the number of points per unit (the error decreases with the fourth power of the step)
+         */
+        public Table(double min, double max, int pointsPerUnit) {
+            if (!(min < max) || pointsPerUnit <= 0) {
+                throw new IllegalArgumentException("Invalid table range or resolution");
+            }
+            this.min = min;
+            this.max = max;
+            this.inverseStep = pointsPerUnit;
+            this.step = 1.0 / pointsPerUnit;
+            int size = (int) Math.ceil((max - min) * pointsPerUnit) + 2;
+            cdfs = new double[size];
+            pdfs = new double[size];
+            for (int i = 0; i < size; i++) {
+                double x = min + i * step;
+                cdfs[i] = NormalDistribution.cdf(x);
+                pdfs[i] = NormalDistribution.pdf(x);
+            }
+        }
+
+        /**
+         * Get the probability that a standard normal variable is at most x.
+         * @param x the value
+         * @return P(X &lt;= x)
+         */
+        public double cdf(double x) {
+            if (!(x >= min && x < max)) {
+                return NormalDistribution.cdf(x);
+            }
+            double position = (x - min) * inverseStep;
+            int i = (int) position;
+            double t = position - i;
+            double t2 = t * t;
+            double t3 = t2 * t;
+            // cubic Hermite basis functions
+            double h00 = 2 * t3 - 3 * t2 + 1;
+            double h10 = t3 - 2 * t2 + t;
+            double h01 = -2 * t3 + 3 * t2;
+            double h11 = t3 - t2;
+            return h00 * cdfs[i] + h10 * step * pdfs[i] + h01 * cdfs[i + 1] + h11 * step * pdfs[i + 1];
+        }
+
+        /**
+         * Compute the CDF of several values.
+         * @param values the values
+         * @param results the array receiving the CDF of each value
+         * @param count the number of values
+         */
+        public void cdf(double[] values, double[] results, int count) {
+            for (int i = 0; i < count; i++) {
+                results[i] = cdf(values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package util;
+
+import pattern.itemset.ItemDictionary;
+import pattern.itemset.UncertainTransaction;
+import pattern.itemset.WeightedTransaction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * This class counts supports in parallel by splitting the transactions of a database
+ * into chunks. Each chunk is counted by a fork-join task into its own array of partial
+ * supports, and the partial supports are then summed. Since the expected support is a sum
+ * over transactions, the result is the same as a sequential count. The chunks have a fixed
+ * size and their partial supports are always summed in the same order, even with a single
+ * thread, so that the result is bit-identical for every thread count. With a single thread,
+ * the chunks are counted in the current thread into arrays reused from one chunk to the next.
+ * <br/><br/>
+ * The fork-join pools are shared by the counters having the same thread count, so that a
+ * counter can be created for each count. The parallel searches of the miners use the same pools
+ * (see getPool). Their threads are daemon threads, which terminate
+ * when they are idle.
+ */
+public class ParallelSupportCounter {
+
+    /**
+     * A function counting the supports of a range of transactions.
+     */
+    public interface RangeCounter {
+        /**
+         * Add the supports of the transactions at positions from (inclusive) to to (exclusive).
+         * @param from the first transaction
+         * @param to the position after the last transaction
+         * @param supports the array where the supports are added
+         */
+        void count(int from, int to, double[] supports);
+    }
+
+    // the number of transactions in each chunk (it does not depend on the thread count,
+    // so that the floating-point additions are done in the same order for every thread count)
+    private static final int CHUNK_SIZE = 1024;
+
+    // the pool of each thread count
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    // the number of threads
+    private final int threadCount;
+
+    /**
+     * Constructor
+     * @param threadCount the number of threads to use
+     */
+    public ParallelSupportCounter(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("The thread count must be at least 1");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Get the number of threads used by this counter.
+     * @return the thread count
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Count supports into an array by splitting the transactions into chunks.
+     * @param transactionCount the number of transactions
+     * @param length the number of supports to count (the length of the array)
+     * @param counter the function counting the supports of a range of transactions
+     * @return the array of supports
+     */
+    public double[] count(int transactionCount, int length, RangeCounter counter) {
+        int chunkCount = Math.max(1, (transactionCount + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        if (threadCount == 1) {
+            // same chunks and order of additions as the parallel count, in the current thread
+            double[] supports = new double[length];
+            double[][] rightSupports = new double[32 - Integer.numberOfLeadingZeros(chunkCount)][];
+            countSequentially(0, chunkCount, transactionCount, counter, supports, rightSupports, 0);
+            return supports;
+        }
+        return getPool().invoke(new CountTask(0, chunkCount, transactionCount, length, counter));
+    }
+
+    /**
+     * Count the supports of a range of chunks in the current thread, split as by CountTask.
+     * @param firstChunk the first chunk
+     * @param endChunk the chunk after the last chunk
+     * @param transactionCount the number of transactions
+     * @param counter the function counting the supports of a range of transactions
+     * @param supports the array where the supports are added, which contains zeros
+     * @param rightSupports the arrays of the supports of the right halves, one per depth, created when needed
+     * @param depth the depth of the range in the recursion
+     */
+    private static void countSequentially(int firstChunk, int endChunk, int transactionCount, RangeCounter counter,
+                                          double[] supports, double[][] rightSupports, int depth) {
+        if (endChunk - firstChunk == 1) {
+            counter.count(firstChunk * CHUNK_SIZE, Math.min(transactionCount, endChunk * CHUNK_SIZE), supports);
+            return;
+        }
+        int middle = (firstChunk + endChunk) >>> 1;
+        countSequentially(firstChunk, middle, transactionCount, counter, supports, rightSupports, depth + 1);
+        if (rightSupports[depth] == null) {
+            rightSupports[depth] = new double[supports.length];
+        } else {
+            Arrays.fill(rightSupports[depth], 0);
+        }
+        double[] right = rightSupports[depth];
+        countSequentially(middle, endChunk, transactionCount, counter, right, rightSupports, depth + 1);
+        for (int i = 0; i < supports.length; i++) {
+            supports[i] += right[i];
+        }
+    }
+
+    /**
+     * Get the fork-join pool of the thread count of this counter.
+     * @return the pool
+     */
+    private ForkJoinPool getPool() {
+        return getPool(threadCount);
+    }
+
+    /**
+     * Get the shared fork-join pool of a thread count. The pool must not be shut down, since it
+     * is reused by every counter and every search running with the same thread count.
+     * @param threadCount the number of threads
+     * @return the pool
+     */
+    public static ForkJoinPool getPool(int threadCount) {
+        return POOLS.computeIfAbsent(threadCount, ForkJoinPool::new);
+    }
+
+    /**
+     * Calculate the support of each item of an uncertain database in parallel. Each chunk
+     * encodes the items it sees with its own dictionary and sums their supports in a primitive array.
+     * @param uncertainDB the uncertain database
+     * @param support the function giving the support of a transaction
+     * @return a map where keys are items and values are their corresponding total support
+     */
+    public <T> Map<T, Double> countItemSupports(List<UncertainTransaction<T>> uncertainDB,
+                                                ToDoubleFunction<UncertainTransaction<T>> support) {
+        return countItemSupports(uncertainDB.size(), (from, to, partialSupports) -> {
+            for (int i = from; i < to; i++) {
+                UncertainTransaction<T> transaction = uncertainDB.get(i);
+                double value = support.applyAsDouble(transaction);
+                for (T item : transaction.items) {
+                    partialSupports.add(item, value);
+                }
+            }
+        });
+    }
+
+    /**
+     * Calculate the expected weighted support (the sum of p * w) of each item of a database of
+     * weighted transactions in parallel, as countItemSupports does for uncertain transactions.
+     * @param database the weighted transactions
+     * @return a map where keys are items and values are their corresponding total support
+     */
+    public <T> Map<T, Double> countWeightedItemSupports(List<WeightedTransaction<T>> database) {
+        return countItemSupports(database.size(), (from, to, partialSupports) -> {
+            for (int i = from; i < to; i++) {
+                WeightedTransaction<T> transaction = database.get(i);
+                for (int j = 0; j < transaction.size(); j++) {
+                    partialSupports.add(transaction.getItem(j), transaction.getSupport(j));
+                }
+            }
+        });
+    }
+
+    /**
+     * Count the supports of the items of the chunks of a database in parallel, and merge them in the order of the chunks.
+     * With a single thread, the chunks are counted one after the other in the current thread, and merged in the same order.
+     * @param transactionCount the number of transactions
+     * @param counter the function adding the supports of a range of transactions to the partial supports of a chunk
+     * @return a map where keys are items and values are their corresponding total support
+     */
+    private <T> Map<T, Double> countItemSupports(int transactionCount, ItemRangeCounter<T> counter) {
+        if (threadCount == 1) {
+            // one dictionary for all the chunks, whose partial supports are added to the totals in the order of the chunks
+            ItemSupports<T> partialSupports = new ItemSupports<>();
+            for (int from = 0; from < transactionCount; from += CHUNK_SIZE) {
+                counter.count(from, Math.min(transactionCount, from + CHUNK_SIZE), partialSupports);
+                partialSupports.endChunk();
+            }
+            return partialSupports.getTotals();
+        }
+        // merge the partial supports in the order of the chunks
+        Map<T, Double> supports = new HashMap<>();
+        // create one task per chunk
+        List<Callable<ItemSupports<T>>> tasks = new ArrayList<>();
+        for (int from = 0; from < transactionCount; from += CHUNK_SIZE) {
+            int chunkStart = from;
+            int chunkEnd = Math.min(transactionCount, from + CHUNK_SIZE);
+            tasks.add(() -> {
+                ItemSupports<T> partialSupports = new ItemSupports<>();
+                counter.count(chunkStart, chunkEnd, partialSupports);
+                return partialSupports;
+            });
+        }
+        try {
+            for (Future<ItemSupports<T>> future : getPool().invokeAll(tasks)) {
+                future.get().addTo(supports);
+            }
+            return supports;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Error while counting the item supports", e);
+        }
+    }
+
+    /**
+     * The partial supports of the items seen by a chunk, stored in a primitive array
+     * indexed by the codes of a dictionary local to that chunk. When the chunks are counted
+     * one after the other, the same partial supports are reused: at the end of each chunk, the
+     * supports of the items seen by the chunk are added to their totals and reset.
+     */
+    private static class ItemSupports<T> {
+        private final ItemDictionary<T> dictionary = new ItemDictionary<>();
+        private double[] supports = new double[64];
+        // the totals of the previous chunks, and the codes of the items seen by the current chunk
+        private double[] totals = new double[64];
+        private boolean[] seen = new boolean[64];
+        private int[] seenCodes = new int[64];
+        private int seenCount = 0;
+
+        void add(T item, double support) {
+            int code = dictionary.encode(item);
+            if (code == supports.length) {
+                supports = Arrays.copyOf(supports, supports.length * 2);
+                totals = Arrays.copyOf(totals, supports.length);
+                seen = Arrays.copyOf(seen, supports.length);
+                seenCodes = Arrays.copyOf(seenCodes, supports.length);
+            }
+            if (!seen[code]) {
+                seen[code] = true;
+                seenCodes[seenCount++] = code;
+            }
+            supports[code] += support;
+        }
+
+        void addTo(Map<T, Double> totalSupports) {
+            for (int code = 0; code < dictionary.size(); code++) {
+                totalSupports.merge(dictionary.getItem(code), supports[code], Double::sum);
+            }
+        }
+
+        void endChunk() {
+            for (int i = 0; i < seenCount; i++) {
+                int code = seenCodes[i];
+                totals[code] += supports[code];
+                supports[code] = 0;
+                seen[code] = false;
+            }
+            seenCount = 0;
+        }
+
+        Map<T, Double> getTotals() {
+            Map<T, Double> totalSupports = new HashMap<>();
+            for (int code = 0; code < dictionary.size(); code++) {
+                totalSupports.put(dictionary.getItem(code), totals[code]);
+            }
+            return totalSupports;
+        }
+    }
+
+    /**
+     * A function adding the supports of the items of a range of transactions to the partial supports of a chunk.
+     */
+    private interface ItemRangeCounter<T> {
+        void count(int from, int to, ItemSupports<T> partialSupports);
+    }
+
+    /**
+     * A task counting the supports of a range of chunks, split recursively until it has a single chunk.
+     * The ranges are split at the same chunks whatever the number of threads, and the partial supports
+     * of the left half are always added to those of the right half, so that the result does not depend
+     * on the scheduling of the tasks.
+     */
+    @SuppressWarnings("serial")
+    private static class CountTask extends RecursiveTask<double[]> {
+        private final int firstChunk;
+        private final int endChunk;
+        private final int transactionCount;
+        private final int length;
+        private final RangeCounter counter;
+
+        CountTask(int firstChunk, int endChunk, int transactionCount, int length, RangeCounter counter) {
+            this.firstChunk = firstChunk;
+            this.endChunk = endChunk;
+            this.transactionCount = transactionCount;
+            this.length = length;
+            this.counter = counter;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (endChunk - firstChunk == 1) {
+                double[] supports = new double[length];
+                counter.count(firstChunk * CHUNK_SIZE, Math.min(transactionCount, endChunk * CHUNK_SIZE), supports);
+                return supports;
+            }
+            int middle = (firstChunk + endChunk) >>> 1;
+            CountTask left = new CountTask(firstChunk, middle, transactionCount, length, counter);
+            CountTask right = new CountTask(middle, endChunk, transactionCount, length, counter);
+            left.fork();
+            double[] rightSupports = right.compute();
+            double[] supports = left.join();
+            // merge the partial supports
+            for (int i = 0; i < length; i++) {
+                supports[i] += rightSupports[i];
+            }
+            return supports;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package util;
+
+/**
+ * Exact computation of the frequent probability of an itemset in an uncertain database,
+ * that is the probability P(sup &gt;= minSupport) where the support sup is the number of
+ * transactions containing the itemset. Since the transactions are independent, sup follows
+ * a Poisson-binomial distribution defined by the probability of the itemset in each transaction.
+ * <br/><br/>
+ * Two methods are used:
+ * <ul>
+ * <li>a dynamic program in O(n * minSupport) which only keeps P(sup = j) for j &lt; minSupport,
+ * and which can stop early as soon as the answer to "is P(sup &gt;= minSupport) &gt;= minProbability?"
+ * is known,</li>
+ * <li>a divide-and-conquer product of the polynomials (1 - p_i + p_i x), where large products are
+ * done by FFT, in O(n log^2 n). It is used for large databases and large minimum supports.</li>
+ * </ul>
+ */
+public class PoissonBinomial {
+
+    // below this degree, polynomials are multiplied directly rather than by FFT
+    private static final int DIRECT_PRODUCT_DEGREE = 64;
+    // the minimum support and number of transactions from which the FFT method is used
+    private static final int FFT_MIN_SUPPORT = 256;
+    private static final int FFT_MIN_TRANSACTIONS = 1024;
+
+    /**
+     * Compute the probability that the support is at least a minimum support.
+     * @param probabilities the probability of the itemset in each transaction containing it
+     * @param count the number of probabilities to use (from the beginning of the array)
+     * @param minSupport the minimum support (a number of transactions)
+     * @return P(sup &gt;= minSupport)
+     */
+    public static double frequentProbability(double[] probabilities, int count, int minSupport) {
+        if (minSupport <= 0) {
+            return 1;
+        }
+        if (minSupport > count) {
+            return 0;
+        }
+        if (minSupport >= FFT_MIN_SUPPORT && count >= FFT_MIN_TRANSACTIONS) {
+            return frequentProbabilityByFFT(probabilities, count, minSupport);
+        }
+        double[] distribution = new double[minSupport];
+        distribution[0] = 1;
+        double tail = 0;
+        for (int i = 0; i < count; i++) {
+            tail += addTransaction(distribution, probabilities[i]);
+        }
+        return Math.min(1, tail);
+    }
+
+    /**
+     * Check if an itemset is probabilistic frequent, that is if P(sup &gt;= minSupport) &gt;= minProbability.
+     * The dynamic program stops as soon as the probability of the supports that are already at least
+     * minSupport reaches minProbability, or as soon as the probability of the supports that cannot reach
+     * minSupport anymore (because too few transactions remain) exceeds 1 - minProbability.
+     * @param probabilities the probability of the itemset in each transaction containing it
+     * @param count the number of probabilities to use (from the beginning of the array)
+     * @param minSupport the minimum support (a number of transactions)
+     * @param minProbability the minimum probability
+     * @return true if the itemset is probabilistic frequent, otherwise false
+     */
+    public static boolean isFrequent(double[] probabilities, int count, int minSupport, double minProbability) {
+        if (minSupport <= 0) {
+            return true;
+        }
+        if (minSupport > count) {
+            return false;
+        }
+        if (minSupport >= FFT_MIN_SUPPORT && count >= FFT_MIN_TRANSACTIONS) {
+            return frequentProbabilityByFFT(probabilities, count, minSupport) >= minProbability;
+        }
+        double[] distribution = new double[minSupport];
+        distribution[0] = 1;
+        // the probability of the supports that are at least minSupport
+        double tail = 0;
+        // the probability of the supports that cannot reach minSupport anymore
+        double unreachable = 0;
+        for (int i = 0; i < count; i++) {
+            tail += addTransaction(distribution, probabilities[i]);
+            if (tail >= minProbability) {
+                return true;
+            }
+            // after this transaction, the support minSupport - remaining - 1 cannot reach minSupport
+            // anymore. Its probability is removed from the distribution, so that each unreachable
+            // support is only counted once (the lower supports were removed at the previous steps).
+            int remaining = count - i - 1;
+            int deadSupport = minSupport - remaining - 1;
+            if (deadSupport >= 0) {
+                unreachable += distribution[deadSupport];
+                distribution[deadSupport] = 0;
+                if (1 - unreachable < minProbability) {
+                    return false;
+                }
+            }
+        }
+        return tail >= minProbability;
+    }
+
+    /**
+     * Update the distribution P(sup = j) for j &lt; minSupport with a new transaction.
+     * @param distribution the distribution, of length minSupport
+     * @param probability the probability of the itemset in the transaction
+     * @return the probability moving from support minSupport - 1 to support minSupport
+     */
+    private static double addTransaction(double[] distribution, double probability) {
+        int last = distribution.length - 1;
+        double moved = distribution[last] * probability;
+        for (int j = last; j > 0; j--) {
+            distribution[j] = distribution[j] * (1 - probability) + distribution[j - 1] * probability;
+        }
+        distribution[0] *= 1 - probability;
+        return moved;
+    }
+
+    /**
+     * Compute P(sup &gt;= minSupport) as 1 - P(sup &lt; minSupport), where the distribution is the
+     * product of the polynomials (1 - p_i + p_i x) truncated to the degree minSupport - 1.
+     * @param probabilities the probabilities
+     * @param count the number of probabilities
+     * @param minSupport the minimum support
+     * @return P(sup &gt;= minSupport)
+     */
+    private static double frequentProbabilityByFFT(double[] probabilities, int count, int minSupport) {
+        double[] distribution = product(probabilities, 0, count, minSupport);
+        double head = 0;
+        for (int j = 0; j < distribution.length; j++) {
+            // remove the rounding errors of the FFT
+            head += Math.max(0, distribution[j]);
+        }
+        return Math.max(0, Math.min(1, 1 - head));
+    }
+
+    /**
+     * Multiply the polynomials (1 - p_i + p_i x) of a range of transactions.
+     * @param probabilities the probabilities
+     * @param from the first transaction (inclusive)
+     * @param to the last transaction (exclusive)
+     * @param length the number of coefficients to keep
+     * @return the coefficients of the product, truncated to the given length
+     */
+    private static double[] product(double[] probabilities, int from, int to, int length) {
+        if (to - from <= DIRECT_PRODUCT_DEGREE) {
+            double[] distribution = new double[Math.min(length, to - from + 1)];
+            distribution[0] = 1;
+            int degree = 0;
+            for (int i = from; i < to; i++) {
+                double probability = probabilities[i];
+                degree = Math.min(degree + 1, distribution.length - 1);
+                for (int j = degree; j > 0; j--) {
+                    distribution[j] = distribution[j] * (1 - probability) + distribution[j - 1] * probability;
+                }
+                distribution[0] *= 1 - probability;
+            }
+            return distribution;
+        }
+        int middle = (from + to) >>> 1;
+        return multiply(product(probabilities, from, middle, length), product(probabilities, middle, to, length), length);
+    }
+
+    /**
+     * Multiply two polynomials.
+     * @param a the coefficients of the first polynomial
+     * @param b the coefficients of the second polynomial
+     * @param length the number of coefficients to keep
+     * @return the coefficients of the product, truncated to the given length
+     */
+    private static double[] multiply(double[] a, double[] b, int length) {
+        int resultLength = Math.min(length, a.length + b.length - 1);
+        double[] result = new double[resultLength];
+        if (Math.min(a.length, b.length) <= DIRECT_PRODUCT_DEGREE) {
+            for (int i = 0; i < a.length && i < resultLength; i++) {
+                for (int j = 0; j < b.length && i + j < resultLength; j++) {
+                    result[i + j] += a[i] * b[j];
+                }
+            }
+            return result;
+        }
+        int size = Integer.highestOneBit(a.length + b.length - 2) << 1;
+        double[] real = new double[size];
+        double[] imaginary = new double[size];
+        // both polynomials are transformed at once: a in the real part and b in the imaginary part
+        System.arraycopy(a, 0, real, 0, a.length);
+        System.arraycopy(b, 0, imaginary, 0, b.length);
+        fft(real, imaginary, false);
+        // the transform of a * b is obtained from the transform of a + ib
+        double[] productReal = new double[size];
+        double[] productImaginary = new double[size];
+        for (int k = 0; k < size; k++) {
+            int opposite = (size - k) & (size - 1);
+            double aReal = (real[k] + real[opposite]) / 2;
+            double aImaginary = (imaginary[k] - imaginary[opposite]) / 2;
+            double bReal = (imaginary[k] + imaginary[opposite]) / 2;
+            double bImaginary = (real[opposite] - real[k]) / 2;
+            productReal[k] = aReal * bReal - aImaginary * bImaginary;
+            productImaginary[k] = aReal * bImaginary + aImaginary * bReal;
+        }
+        fft(productReal, productImaginary, true);
+        System.arraycopy(productReal, 0, result, 0, resultLength);
+        return result;
+    }
+
+    /**
+     * In-place iterative radix-2 fast Fourier transform.
+     * @param real the real parts (the length is a power of two)
+     * @param imaginary the imaginary parts
+     * @param inverse true for the inverse transform (which is divided by the length)
+     */
+    private static void fft(double[] real, double[] imaginary, boolean inverse) {
+        int n = real.length;
+        // bit-reversal permutation
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double temp = real[i];
+                real[i] = real[j];
+                real[j] = temp;
+                temp = imaginary[i];
+                imaginary[i] = imaginary[j];
+                imaginary[j] = temp;
+            }
+        }
+        for (int length = 2; length <= n; length <<= 1) {
+            double angle = 2 * Math.PI / length * (inverse ? 1 : -1);
+            double stepReal = Math.cos(angle);
+            double stepImaginary = Math.sin(angle);
+            for (int start = 0; start < n; start += length) {
+                double wReal = 1;
+                double wImaginary = 0;
+                for (int k = 0; k < length / 2; k++) {
+                    int even = start + k;
+                    int odd = even + length / 2;
+                    double oddReal = real[odd] * wReal - imaginary[odd] * wImaginary;
+                    double oddImaginary = real[odd] * wImaginary + imaginary[odd] * wReal;
+                    real[odd] = real[even] - oddReal;
+                    imaginary[odd] = imaginary[even] - oddImaginary;
+                    real[even] += oddReal;
+                    imaginary[even] += oddImaginary;
+                    double nextReal = wReal * stepReal - wImaginary * stepImaginary;
+                    wImaginary = wReal * stepImaginary + wImaginary * stepReal;
+                    wReal = nextReal;
+                }
+            }
+        }
+        if (inverse) {
+            for (int i = 0; i < n; i++) {
+                real[i] /= n;
+                imaginary[i] /= n;
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A destination for the patterns found by an algorithm. Patterns are written as soon as
+ * they are found, so that the result set does not need to be kept in memory until the end.
+ * <br/><br/>
+ * The list of items given to {@link #writePattern(List, double)} may be reused by the
+ * algorithm after the call, so an implementation must not keep a reference to it.
+ *
+ * @param <T> the type of items
+ * @see TextResultSink
+ * @see BinaryResultSink
+ * @see CallbackResultSink
+ * @see MemoryResultSink
+ */
+public interface ResultSink<T> extends Closeable {
+
+    /**
+     * Write a pattern.
+     * @param items the items of the pattern
+     * @param support the (expected) support of the pattern, or NaN if it is not known
+     * @throws IOException if an error occurs while writing
+     */
+    void writePattern(List<T> items, double support) throws IOException;
+
+    /**
+     * Write a line of information about the execution (parameters, statistics...).
+     * Sinks that only store patterns ignore it.
+     * @param line the line, without line separator
+     * @throws IOException if an error occurs while writing
+     */
+    default void writeInfo(String line) throws IOException {
+    }
+
+    /**
+     * Flush the buffered patterns and release the resources of this sink.
+     * @throws IOException if an error occurs while writing
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,150 @@
+package util;
+
+import pattern.itemset.ItemU;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A result sink writing one pattern per line in a text file.
+ * <br/><br/>
+ * The lines are formatted in a large char buffer which is reused for all the patterns and
+ * written to the file when it is nearly full, instead of creating a String for each pattern.
+ * Integer ids and supports are appended without creating intermediate strings, and an
+ * {@link ItemU} is written as "id (probability)" without calling its toString method.
+ *
+ * @param <T> the type of items
+ */
+public class TextResultSink<T> implements ResultSink<T> {
+
+    // the number of chars buffered before they are written to the file
+    private static final int FLUSH_THRESHOLD = 1 << 16;
+
+    // the writer of the file
+    private final Writer writer;
+    // the buffer in which the lines are formatted
+    private final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 1024);
+    // the chars copied from the buffer before they are written
+    private char[] chars = new char[FLUSH_THRESHOLD + 1024];
+
+    // the text written before the items, after each item except the last one,
+    // after the last item, and before the support of a pattern
+    private final String prefix;
+    private final String separator;
+    private final String suffix;
+    private final String supportLabel;
+
+    /**
+     * Constructor
+     * @param writer the writer receiving the lines
+     * @param prefix the text written before the items of a pattern
+     * @param separator the text written between two items
+     * @param suffix the text written after the last item
+     * @param supportLabel the text written before the support, or null to not write the support
+     */
+    public TextResultSink(Writer writer, String prefix, String separator, String suffix, String supportLabel) {
+        this.writer = writer;
+        this.prefix = prefix;
+        this.separator = separator;
+        this.suffix = suffix;
+        this.supportLabel = supportLabel;
+    }
+
+    /**
+     * Create a sink writing lines such as "1 (0.5) 3 (0.8)  #SUP: 2.4", the format of the
+     * itemsets found by U-Apriori.
+     * @param path the path of the output file
+     * @return the sink
+     * @throws IOException if the file cannot be created
+     */
+    public static <T> TextResultSink<T> withSupport(String path) throws IOException {
+        return new TextResultSink<>(open(path), "", " ", " ", " #SUP: ");
+    }
+
+    /**
+     * Create a sink writing lines such as "[1, 3]", the format of the PMFIs found by WAPFI-MAX.
+     * @param path the path of the output file
+     * @return the sink
+     * @throws IOException if the file cannot be created
+     */
+    public static <T> TextResultSink<T> bracketed(String path) throws IOException {
+        return new TextResultSink<>(open(path), "[", ", ", "]", null);
+    }
+
+    /**
+     * Open a file for writing. The writer is not buffered since the sink has its own buffer.
+     * @param path the path of the file
+     * @return the writer
+     * @throws IOException if the file cannot be created
+     */
+    private static Writer open(String path) throws IOException {
+        return new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void writePattern(List<T> items, double support) throws IOException {
+        buffer.append(prefix);
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                buffer.append(separator);
+            }
+            appendItem(items.get(i));
+        }
+        buffer.append(suffix);
+        if (supportLabel != null && !Double.isNaN(support)) {
+            buffer.append(supportLabel).append(support);
+        }
+        buffer.append('\n');
+        if (buffer.length() >= FLUSH_THRESHOLD) {
+            flushBuffer();
+        }
+    }
+
+    /**
+     * Append an item to the buffer.
+     * @param item the item
+     */
+    private void appendItem(Object item) {
+        if (item instanceof ItemU) {
+            ItemU<?> itemU = (ItemU<?>) item;
+            appendItem(itemU.getId());
+            buffer.append(" (").append(itemU.getProbability()).append(')');
+        } else if (item instanceof Integer) {
+            buffer.append(((Integer) item).intValue());
+        } else {
+            buffer.append(item);
+        }
+    }
+
+    @Override
+    public void writeInfo(String line) throws IOException {
+        buffer.append(line).append('\n');
+        if (buffer.length() >= FLUSH_THRESHOLD) {
+            flushBuffer();
+        }
+    }
+
+    /**
+     * Write the content of the buffer to the file and clear the buffer.
+     * @throws IOException if an error occurs while writing
+     */
+    private void flushBuffer() throws IOException {
+        int length = buffer.length();
+        if (length > chars.length) {
+            chars = new char[length];
+        }
+        buffer.getChars(0, length, chars, 0);
+        writer.write(chars, 0, length);
+        buffer.setLength(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        writer.close();
+    }
+}